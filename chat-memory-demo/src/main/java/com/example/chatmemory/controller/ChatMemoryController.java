@@ -7,6 +7,7 @@ import java.util.UUID;
 import com.example.chatmemory.service.DirectMemoryChatService;
 import com.example.chatmemory.service.IntelligentCustomerServiceBot;
 import com.example.chatmemory.service.MemorizedChatService;
+import com.example.chatmemory.service.TokenEstimator;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -26,13 +27,16 @@ public class ChatMemoryController {
     private final MemorizedChatService memorizedChatService;
     private final DirectMemoryChatService directMemoryChatService;
     private final IntelligentCustomerServiceBot customerServiceBot;
+    private final TokenEstimator tokenEstimator;
 
     public ChatMemoryController(MemorizedChatService memorizedChatService,
                                DirectMemoryChatService directMemoryChatService,
-                               IntelligentCustomerServiceBot customerServiceBot) {
+                               IntelligentCustomerServiceBot customerServiceBot,
+                               TokenEstimator tokenEstimator) {
         this.memorizedChatService = memorizedChatService;
         this.directMemoryChatService = directMemoryChatService;
         this.customerServiceBot = customerServiceBot;
+        this.tokenEstimator = tokenEstimator;
     }
 
     /**
@@ -113,6 +117,17 @@ public class ChatMemoryController {
         return customerServiceBot.continueConversation(customerId, message);
     }
 
+    /**
+     * 本地 token 估算与实际 usage 的误差统计
+     */
+    @GetMapping("/tokens/stats")
+    public Map<String, Object> tokenStats() {
+        return Map.of(
+                "estimator", tokenEstimator.getStats(),
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
     /**
      * 健康检查
      */
@@ -9,13 +9,17 @@ import org.springframework.stereotype.Service;
 
 /**
  * 智能客服机器人服务
+ * 客户输入长度不受控，写入记忆前先经 {@link PromptBudgetAdvisor#fitInput} 检查，发送时再按整体预算裁剪历史
  */
 @Service
 public class IntelligentCustomerServiceBot {
 
     private final ChatClient customerServiceClient;
+    private final PromptBudgetAdvisor promptBudget;
 
-    public IntelligentCustomerServiceBot(ChatClient.Builder chatClientBuilder, ChatMemory chatMemory) {
+    public IntelligentCustomerServiceBot(ChatClient.Builder chatClientBuilder, ChatMemory chatMemory,
+                                         PromptBudgetAdvisor promptBudgetAdvisor) {
+        this.promptBudget = promptBudgetAdvisor;
         this.customerServiceClient = chatClientBuilder
                 .defaultSystem("""
                         你是一个专业的客服代表，具备以下能力：
@@ -32,7 +36,7 @@ public class IntelligentCustomerServiceBot {
                         - 如果无法解决，及时提供人工客服联系方式
                         - 记录重要信息，便于后续服务
                         """)
-                .defaultAdvisors(MessageChatMemoryAdvisor.builder(chatMemory).build())
+                .defaultAdvisors(MessageChatMemoryAdvisor.builder(chatMemory).build(), promptBudgetAdvisor)
                 .build();
     }
 
@@ -49,7 +53,7 @@ public class IntelligentCustomerServiceBot {
                 - 姓名: %s
                 
                 客户咨询：%s
-                """, customerId, customerName, inquiry);
+                """, customerId, customerName, promptBudget.fitInput(inquiry));
         
         long startTime = System.currentTimeMillis();
         
@@ -81,7 +85,7 @@ public class IntelligentCustomerServiceBot {
         long startTime = System.currentTimeMillis();
         
         String response = customerServiceClient.prompt()
-                .user(message)
+                .user(promptBudget.fitInput(message))
                 .advisors(advisor -> advisor.param(ChatMemory.CONVERSATION_ID, conversationId))
                 .call()
                 .content();
@@ -0,0 +1,116 @@
+package com.example.chatmemory.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * 客服对话的 prompt 预算
+ * 本轮消息在写入记忆之前经 {@link #fitInput} 检查：超过 max-input-tokens 时按 action 截断或拒绝（413），
+ * 被拒绝的消息不会留在记忆里，截断后的消息也只以截断后的形式进入历史。
+ * Advisor 本身排在 MessageChatMemoryAdvisor 之后，看到的是「系统提示 + 历史 + 本轮消息」的完整 prompt，
+ * 整体超过 max-prompt-tokens 时从最早的历史开始丢弃；丢弃只影响本次发送，记忆中的历史保持不变。
+ */
+@Component
+public class PromptBudgetAdvisor implements CallAdvisor {
+
+    private static final Logger log = LoggerFactory.getLogger(PromptBudgetAdvisor.class);
+
+    private final TokenEstimator estimator;
+    private final int maxPromptTokens;
+    private final int maxInputTokens;
+    private final boolean rejectOversizedInput;
+
+    public PromptBudgetAdvisor(TokenEstimator estimator,
+                               @Value("${app.prompt-budget.max-prompt-tokens:6000}") int maxPromptTokens,
+                               @Value("${app.prompt-budget.max-input-tokens:2000}") int maxInputTokens,
+                               @Value("${app.prompt-budget.action:truncate}") String action) {
+        this.estimator = estimator;
+        this.maxPromptTokens = maxPromptTokens;
+        this.maxInputTokens = maxInputTokens;
+        this.rejectOversizedInput = "reject".equalsIgnoreCase(action);
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        Prompt prompt = fit(request.prompt());
+        int estimated = estimator.count(prompt.getInstructions());
+        ChatClientResponse response = chain.nextCall(request.mutate().prompt(prompt).build());
+        record(estimated, response.chatResponse());
+        return response;
+    }
+
+    /**
+     * 检查本轮消息：超出 max-input-tokens 时返回截断后的文本，或按 reject 配置抛出 413；须在写入记忆前调用
+     */
+    public String fitInput(String text) {
+        int inputTokens = estimator.count(text);
+        if (inputTokens <= maxInputTokens) {
+            return text;
+        }
+        if (rejectOversizedInput) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "消息约 " + inputTokens + " 个 token，超过上限 " + maxInputTokens);
+        }
+        log.debug("本轮消息约 {} 个 token，截断到 {}", inputTokens, maxInputTokens);
+        return estimator.truncate(text, maxInputTokens);
+    }
+
+    private Prompt fit(Prompt prompt) {
+        List<Message> messages = new ArrayList<>(prompt.getInstructions());
+        int total = estimator.count(messages);
+        int dropped = 0;
+        // 历史位于系统提示之后、本轮消息之前，从最早的一条开始丢
+        int lastIndex = messages.size() - 1;
+        for (int i = 0; i < lastIndex && total > maxPromptTokens; ) {
+            if (messages.get(i).getMessageType() == MessageType.SYSTEM) {
+                i++;
+                continue;
+            }
+            total -= estimator.count(List.of(messages.remove(i)));
+            lastIndex--;
+            dropped++;
+        }
+        if (dropped == 0) {
+            return prompt;
+        }
+        log.debug("prompt 超出预算 {}，丢弃最早的 {} 条历史消息", maxPromptTokens, dropped);
+        return prompt.mutate().messages(messages).build();
+    }
+
+    private void record(int estimated, ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage != null && usage.getPromptTokens() != null) {
+            estimator.record(estimated, usage.getPromptTokens());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "PromptBudgetAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER + 100;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.chatmemory.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地 token 计数
+ * 基于 jtokkit 的 cl100k_base BPE 词表（首次使用时加载，之后常驻），与 DeepSeek 的分词不完全一致，
+ * 每次调用后用 usage 中的实际 prompt token 数对比，累计误差供 /api/chat/tokens/stats 查看。
+ */
+@Component
+public class TokenEstimator {
+
+    /** 每条消息的角色标记等格式开销 */
+    private static final int MESSAGE_OVERHEAD = 4;
+
+    private static final Encoding ENCODING = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+    private final LongAdder samples = new LongAdder();
+    private final DoubleAdder errorPercentTotal = new DoubleAdder();
+    private final DoubleAdder ratioTotal = new DoubleAdder();
+
+    public int count(String text) {
+        return text == null || text.isEmpty() ? 0 : ENCODING.countTokensOrdinary(text);
+    }
+
+    public int count(List<Message> messages) {
+        int tokens = 0;
+        for (Message message : messages) {
+            tokens += MESSAGE_OVERHEAD + count(message.getText());
+        }
+        return tokens;
+    }
+
+    /**
+     * 只保留前 maxTokens 个 token，并注明截断
+     */
+    public String truncate(String text, int maxTokens) {
+        EncodingResult result = ENCODING.encodeOrdinary(text, maxTokens);
+        if (!result.isTruncated()) {
+            return text;
+        }
+        return text.substring(0, result.getLastProcessedCharacterIndex() + 1) + "……（内容过长，后续部分已截断）";
+    }
+
+    public void record(int estimatedTokens, int actualTokens) {
+        if (estimatedTokens <= 0 || actualTokens <= 0) {
+            return;
+        }
+        samples.increment();
+        errorPercentTotal.add(Math.abs(estimatedTokens - actualTokens) * 100.0 / actualTokens);
+        ratioTotal.add(actualTokens / (double) estimatedTokens);
+    }
+
+    /**
+     * 估算与实际的对比：样本数、平均相对误差（%）与平均比值（实际 / 估算）
+     */
+    public Map<String, Object> getStats() {
+        long count = samples.sum();
+        return Map.of(
+                "encoding", ENCODING.getName(),
+                "samples", count,
+                "meanErrorPercent", count == 0 ? 0.0 : errorPercentTotal.sum() / count,
+                "meanActualToEstimate", count == 0 ? 1.0 : ratioTotal.sum() / count
+        );
+    }
+}
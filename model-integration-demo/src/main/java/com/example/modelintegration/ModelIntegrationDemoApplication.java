@@ -1,12 +1,19 @@
 package com.example.modelintegration;
 
+import java.time.Duration;
+
+import com.example.modelintegration.config.PooledHttpTransport;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ModelIntegrationDemoApplication {
 
     public static void main(String[] args) {
+        // 供应商连接空闲 5 分钟内保持复用，避免请求间隔稍长就重新握手
+        PooledHttpTransport.applyKeepAliveDefaults(Duration.ofMinutes(5));
         SpringApplication.run(ModelIntegrationDemoApplication.class, args);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.example.modelintegration.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD 自适应并发限制
+ * 成功时上限加性增长（每轮约 +1），失败或变慢时按比例乘性收缩（是否算慢由调用方按输出长度判定）；
+ * 在途请求达到上限时 tryAcquire 立即返回 false；排队与按优先级分配由 {@link PriorityCallScheduler} 负责。
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile double limit;
+
+    /**
+     * @param initialLimit  初始并发上限
+     * @param minLimit      收缩下限
+     * @param maxLimit      增长上限
+     * @param backoffRatio  失败或慢调用时的收缩比例，如 0.9
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * 尝试占用一个并发名额，已达上限时返回 false
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放名额并根据结果调整上限
+     *
+     * @param failed  调用失败或超出慢调用预算
+     * @param ignored 被调用方取消等与下游健康无关的结束，只释放名额不调整上限
+     */
+    public void release(boolean failed, boolean ignored) {
+        inflight.decrementAndGet();
+        if (ignored) {
+            return;
+        }
+        synchronized (this) {
+            if (failed) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (inflight.get() * 2 >= (int) limit) {
+                // 只有在接近上限时才增长，避免低负载下上限无限膨胀
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+}
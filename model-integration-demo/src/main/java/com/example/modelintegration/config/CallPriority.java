@@ -0,0 +1,59 @@
+package com.example.modelintegration.config;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 模型调用的优先级类别
+ * 绑定在当前线程上，未设置时为 INTERACTIVE；后台任务（参数扫描、批量对话、异步任务）在执行前切换为 BATCH，
+ * 由 {@link PriorityCallScheduler} 按类别排队与分配并发名额。
+ */
+public enum CallPriority {
+
+    INTERACTIVE, BATCH;
+
+    private static final ThreadLocal<CallPriority> CURRENT = new ThreadLocal<>();
+
+    public static CallPriority current() {
+        CallPriority priority = CURRENT.get();
+        return priority != null ? priority : INTERACTIVE;
+    }
+
+    /**
+     * 以指定优先级执行，结束后恢复原值
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        CallPriority previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public void run(Runnable task) {
+        CallPriority previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            task.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public <T> Callable<T> wrap(Callable<T> task) {
+        return () -> call(task);
+    }
+
+    public String tag() {
+        return name().toLowerCase();
+    }
+
+    private static void restore(CallPriority previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
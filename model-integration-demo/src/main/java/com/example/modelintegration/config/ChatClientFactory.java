@@ -1,50 +1,59 @@
 package com.example.modelintegration.config;
 
+import java.util.List;
+
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.util.function.SingletonSupplier;
 
 /**
  * ChatClient 工厂接口
- * 用于创建不同类型的 ChatClient 实例
+ * 用于创建不同类型的 ChatClient 实例；预置客户端在首次使用时才构建，不占用启动时间
  */
 public class ChatClientFactory {
 
     private final String provider;
     private final ChatModel chatModel;
+    private final List<Advisor> defaultAdvisors;
 
-    private final ChatClient primaryChatClient;
-    private final ChatClient codeChatClient;
-    private final ChatClient creativeChatClient;
+    private final SingletonSupplier<ChatClient> primaryChatClient;
+    private final SingletonSupplier<ChatClient> codeChatClient;
+    private final SingletonSupplier<ChatClient> creativeChatClient;
 
-    public ChatClientFactory(String provider, ChatModel chatModel) {
+    public ChatClientFactory(String provider, ChatModel chatModel, Advisor... defaultAdvisors) {
         this.provider = provider;
         this.chatModel = chatModel;
+        this.defaultAdvisors = List.of(defaultAdvisors);
 
-        primaryChatClient = createChatClient(SystemPrompts.PRIMARY);
-        codeChatClient = createChatClient(SystemPrompts.CODE);
-        creativeChatClient = createChatClient(SystemPrompts.CREATIVE);
+        primaryChatClient = SingletonSupplier.of(() -> createChatClient(SystemPrompts.PRIMARY));
+        codeChatClient = SingletonSupplier.of(() -> createChatClient(SystemPrompts.CODE));
+        creativeChatClient = SingletonSupplier.of(() -> createChatClient(SystemPrompts.CREATIVE));
     }
 
     public ChatClient getPrimaryChatClient() {
-        return primaryChatClient;
+        return primaryChatClient.obtain();
     }
 
     public ChatClient getCodeChatClient() {
-        return codeChatClient;
+        return codeChatClient.obtain();
     }
 
     public ChatClient getCreativeChatClient() {
-        return creativeChatClient;
+        return creativeChatClient.obtain();
     }
 
     public ChatModel getChatModel() {
         return chatModel;
     }
 
-
-    private ChatClient createChatClient(String prompt) {
+    /**
+     * 以指定系统提示词创建客户端，自动附加工厂的默认 advisor
+     */
+    public ChatClient createChatClient(String prompt) {
         return ChatClient.builder(chatModel)
                 .defaultSystem(prompt)
+                .defaultAdvisors(defaultAdvisors)
                 .build();
     }
 
@@ -1,22 +1,130 @@
 package com.example.modelintegration.config;
 
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.example.modelintegration.service.ChatMetrics;
+import com.example.modelintegration.service.PromptBudgetAdvisor;
+import com.example.modelintegration.service.SingleFlightAdvisor;
+import com.example.modelintegration.service.TokenEstimator;
+import com.example.modelintegration.service.TokenRateLimitAdvisor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.ai.chat.model.ChatModel;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 /**
- * DeepSeek 模型配置类 - 使用工厂模式重构
- * 减少重复代码，提高可维护性
+ * ChatClient 工厂配置 - 使用工厂模式重构
+ * 容器中只有一个 ChatModel 时直接使用；存在多个供应商时包装为 {@link RoutingChatModel}，
+ * 最外层统一包装 {@link GuardedChatModel} 做过载保护
  */
 @Configuration
 public class ChatClientFactoryConfig {
     @Value("${info.model.provider:Unknown}")
     private String provider;
 
+    @Value("${app.routing.providers.hedging:true}")
+    private boolean hedging;
+
+    @Value("${app.routing.providers.min-hedge-delay:2s}")
+    private Duration minHedgeDelay;
+
+    @Value("${app.routing.providers.ewma-alpha:0.2}")
+    private double ewmaAlpha;
+
+    @Value("${app.routing.providers.exploration-rate:0.05}")
+    private double explorationRate;
+
+    @Value("${app.model-guard.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${app.model-guard.min-limit:2}")
+    private int minLimit;
+
+    @Value("${app.model-guard.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${app.model-guard.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${app.model-guard.slow-call-threshold:10s}")
+    private Duration slowCallThreshold;
+
+    @Value("${app.model-guard.slow-call-per-token:50ms}")
+    private Duration slowCallPerToken;
+
+    @Value("${app.model-guard.reserved-interactive:2}")
+    private int reservedInteractive;
+
+    @Value("${app.model-guard.circuit.window-size:50}")
+    private int circuitWindowSize;
+
+    @Value("${app.model-guard.circuit.minimum-calls:10}")
+    private int circuitMinimumCalls;
+
+    @Value("${app.model-guard.circuit.failure-rate-threshold:0.5}")
+    private double circuitFailureRateThreshold;
+
+    @Value("${app.model-guard.circuit.open-duration:30s}")
+    private Duration circuitOpenDuration;
+
+    @Value("${app.model-guard.circuit.half-open-calls:3}")
+    private int circuitHalfOpenCalls;
+
     @Bean
-    public ChatClientFactory deepSeekChatClientFactory(@Qualifier("deepSeekChatModel") ChatModel chatModel) {
-        return new ChatClientFactory("provider", chatModel);
+    public ChatClientFactory chatClientFactory(Map<String, ChatModel> chatModels,
+                                               SingleFlightAdvisor singleFlightAdvisor,
+                                               TokenRateLimitAdvisor rateLimitAdvisor,
+                                               PromptBudgetAdvisor promptBudgetAdvisor,
+                                               TokenEstimator tokenEstimator,
+                                               ChatMetrics chatMetrics,
+                                               MeterRegistry meterRegistry,
+                                               Environment environment) {
+        ChatModel chatModel;
+        if (chatModels.size() == 1) {
+            chatModel = chatModels.values().iterator().next();
+        } else {
+            RoutingChatModel routingChatModel = new RoutingChatModel(chatModels, hedging, minHedgeDelay,
+                    ewmaAlpha, explorationRate);
+            routingChatModel.bindTo(meterRegistry);
+            chatModel = routingChatModel;
+        }
+
+        // 所有模型调用统一经过熔断与自适应并发限制，名额按优先级类别加权公平分配
+        Map<CallPriority, PriorityCallScheduler.Policy> policies = new EnumMap<>(CallPriority.class);
+        policies.put(CallPriority.INTERACTIVE, policy(environment, CallPriority.INTERACTIVE,
+                4, Duration.ofMillis(500), Duration.ofSeconds(2), 200));
+        policies.put(CallPriority.BATCH, policy(environment, CallPriority.BATCH,
+                1, Duration.ofSeconds(10), Duration.ofSeconds(60), 1000));
+        PriorityCallScheduler scheduler = new PriorityCallScheduler(
+                new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, backoffRatio),
+                reservedInteractive, policies);
+        scheduler.bindTo(meterRegistry);
+
+        GuardedChatModel guardedChatModel = new GuardedChatModel(chatModel, scheduler,
+                new CircuitBreaker(circuitWindowSize, circuitMinimumCalls, circuitFailureRateThreshold,
+                        circuitOpenDuration.toNanos(), circuitHalfOpenCalls),
+                slowCallThreshold.toNanos(), slowCallPerToken.toNanos(), tokenEstimator);
+        guardedChatModel.bindTo(meterRegistry);
+        chatModel = guardedChatModel;
+
+        return new ChatClientFactory(provider, chatModel, promptBudgetAdvisor, rateLimitAdvisor,
+                singleFlightAdvisor, chatMetrics);
+    }
+
+    /**
+     * 读取 app.model-guard.classes.<类别>.* 下的调度参数
+     */
+    private static PriorityCallScheduler.Policy policy(Environment environment, CallPriority priority,
+                                                      int weight, Duration slo, Duration maxWait, int maxQueue) {
+        String prefix = "app.model-guard.classes." + priority.tag() + ".";
+        return new PriorityCallScheduler.Policy(
+                Math.max(1, environment.getProperty(prefix + "weight", Integer.class, weight)),
+                environment.getProperty(prefix + "slo", Duration.class, slo),
+                environment.getProperty(prefix + "max-wait", Duration.class, maxWait),
+                environment.getProperty(prefix + "max-queue", Integer.class, maxQueue));
     }
-} 
\ No newline at end of file
+}
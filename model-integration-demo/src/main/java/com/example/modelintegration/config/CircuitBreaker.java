@@ -0,0 +1,142 @@
+package com.example.modelintegration.config;
+
+/**
+ * 基于滑动计数窗口的熔断器
+ * CLOSED：窗口内失败率（含慢调用）超过阈值即打开；OPEN：在等待时间内拒绝全部调用；
+ * HALF_OPEN：放行有限个探测调用，全部成功则关闭，任一失败重新打开。
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    private final boolean[] outcomes;
+    private int recorded;
+    private int failures;
+    private int cursor;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    /**
+     * @param windowSize           统计最近多少次调用
+     * @param minimumCalls         窗口内至少多少次调用才计算失败率
+     * @param failureRateThreshold 打开熔断的失败率，如 0.5
+     * @param openNanos            打开后等待多久进入半开
+     * @param halfOpenCalls        半开状态放行的探测调用数
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openNanos, int halfOpenCalls) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openNanos;
+        this.halfOpenCalls = halfOpenCalls;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    /**
+     * 是否允许本次调用；允许后必须调用 {@link #onResult(boolean)} 或 {@link #onIgnored()}
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    public synchronized void onResult(boolean failed) {
+        switch (state) {
+            case HALF_OPEN -> {
+                if (failed) {
+                    open();
+                } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                    close();
+                }
+            }
+            case CLOSED -> {
+                record(failed);
+                if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+                    open();
+                }
+            }
+            case OPEN -> {
+                // 打开前已放行的调用陆续返回，结果不再影响状态
+            }
+        }
+    }
+
+    /**
+     * 调用被取消等与下游健康无关的结束：半开状态下归还探测名额
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * 距离进入半开还剩多少秒，用于 Retry-After
+     */
+    public synchronized long retryAfterSeconds() {
+        if (state != State.OPEN) {
+            return 1;
+        }
+        long remaining = openNanos - (System.nanoTime() - openedAt);
+        return Math.max(1, (remaining + 999_999_999L) / 1_000_000_000L);
+    }
+
+    private void record(boolean failed) {
+        if (recorded == windowSize) {
+            if (outcomes[cursor]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[cursor] = failed;
+        if (failed) {
+            failures++;
+        }
+        cursor = (cursor + 1) % windowSize;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        recorded = 0;
+        failures = 0;
+        cursor = 0;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.modelintegration.config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * 向量的紧凑二进制编码
+ * float32：每个分量 4 字节小端序；float16：每个分量 2 字节小端序（IEEE 754 半精度）
+ */
+public final class EmbeddingCodec {
+
+    public static final String FLOAT32 = "float32";
+    public static final String FLOAT16 = "float16";
+
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    private EmbeddingCodec() {
+    }
+
+    /**
+     * 解析编码参数，未知值按 float32 处理
+     */
+    public static String resolve(String encoding) {
+        return FLOAT16.equalsIgnoreCase(encoding) ? FLOAT16 : FLOAT32;
+    }
+
+    public static int bytesPerValue(String encoding) {
+        return FLOAT16.equals(encoding) ? 2 : 4;
+    }
+
+    /**
+     * 将向量按行依次写出，不在堆上拼接整个响应体
+     */
+    public static void write(List<float[]> vectors, String encoding, OutputStream out) throws IOException {
+        int bytesPerValue = bytesPerValue(encoding);
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (float[] vector : vectors) {
+            for (float value : vector) {
+                if (buffer.remaining() < bytesPerValue) {
+                    out.write(buffer.array(), 0, buffer.position());
+                    buffer.clear();
+                }
+                if (bytesPerValue == 2) {
+                    buffer.putShort(Float.floatToFloat16(value));
+                } else {
+                    buffer.putFloat(value);
+                }
+            }
+        }
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    public static byte[] encode(float[] vector, String encoding) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * bytesPerValue(encoding)).order(ByteOrder.LITTLE_ENDIAN);
+        boolean half = FLOAT16.equals(encoding);
+        for (float value : vector) {
+            if (half) {
+                buffer.putShort(Float.floatToFloat16(value));
+            } else {
+                buffer.putFloat(value);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 将向量追加为 JSON 数组文本，避免经由 Jackson 构建 Float 对象树
+     * JSON 没有 NaN / Infinity，这类分量写为 null，保证每行仍是合法 JSON
+     */
+    public static StringBuilder appendJsonArray(StringBuilder sb, float[] vector) {
+        sb.append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            if (Float.isFinite(vector[i])) {
+                sb.append(vector[i]);
+            } else {
+                sb.append("null");
+            }
+        }
+        return sb.append(']');
+    }
+}
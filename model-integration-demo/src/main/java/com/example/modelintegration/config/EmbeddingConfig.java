@@ -2,22 +2,39 @@ package com.example.modelintegration.config;
 
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 
+import java.time.Duration;
+
 @Configuration
 public class EmbeddingConfig {
 
+    @Value("${app.embedding.batch.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${app.embedding.batch.max-concurrency:4}")
+    private int maxConcurrency;
+
+    @Value("${app.embedding.batch.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.embedding.batch.retry-backoff:500ms}")
+    private Duration retryBackoff;
+
     @Bean
     @Profile("openai")
-    public EmbeddingService openAiEmbeddingService(@Qualifier("openAiEmbeddingModel") EmbeddingModel embeddingModel) {
-        return new EmbeddingService(embeddingModel);
+    public EmbeddingService openAiEmbeddingService(@Qualifier("openAiEmbeddingModel") EmbeddingModel embeddingModel,
+                                                   @Value("${spring.ai.openai.embedding.options.model:unknown}") String modelName) {
+        return new EmbeddingService(embeddingModel, modelName, chunkSize, maxConcurrency, maxAttempts, retryBackoff);
     }
 
     @Bean
     @Profile("ollama")
-    public EmbeddingService ollamaEmbeddingService(@Qualifier("ollamaEmbeddingModel") EmbeddingModel embeddingModel) {
-        return new EmbeddingService(embeddingModel);
+    public EmbeddingService ollamaEmbeddingService(@Qualifier("ollamaEmbeddingModel") EmbeddingModel embeddingModel,
+                                                   @Value("${spring.ai.ollama.embedding.options.model:unknown}") String modelName) {
+        return new EmbeddingService(embeddingModel, modelName, chunkSize, maxConcurrency, maxAttempts, retryBackoff);
     }
 } 
\ No newline at end of file
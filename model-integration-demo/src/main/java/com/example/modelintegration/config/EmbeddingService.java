@@ -3,15 +3,44 @@ package com.example.modelintegration.config;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.embedding.EmbeddingResponse;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class EmbeddingService {
 
     private final EmbeddingModel embeddingModel;
+    private final String modelName;
+    private final int chunkSize;
+    private final int maxConcurrency;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Map<Path, EmbeddingStore> openStores = new ConcurrentHashMap<>();
 
-    public EmbeddingService(EmbeddingModel embeddingModel) {
+    public EmbeddingService(EmbeddingModel embeddingModel, String modelName, int chunkSize,
+                            int maxConcurrency, int maxAttempts, Duration retryBackoff) {
         this.embeddingModel = embeddingModel;
+        this.modelName = modelName;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoff = retryBackoff;
     }
 
     /**
@@ -24,18 +53,205 @@ public class EmbeddingService {
 
     /**
      * 批量嵌入文本
+     * 重复文本只嵌入一次，结果按输入中首次出现的顺序返回
      */
     public Map<String, float[]> embedBatch(List<String> texts) {
-        EmbeddingResponse response = embeddingModel.embedForResponse(texts);
+        List<String> unique = new ArrayList<>(new LinkedHashSet<>(texts));
+        float[][] vectors = embedUnique(unique);
 
-        Map<String, float[]> result = new java.util.HashMap<>();
-        for (int i = 0; i < texts.size(); i++) {
-            result.put(texts.get(i), response.getResults().get(i).getOutput());
+        Map<String, float[]> result = new LinkedHashMap<>();
+        for (int i = 0; i < unique.size(); i++) {
+            result.put(unique.get(i), vectors[i]);
         }
 
         return result;
     }
 
+    /**
+     * 批量嵌入文本，返回与输入一一对应（含重复项）的向量列表
+     */
+    public List<float[]> embedAll(List<String> texts) {
+        Map<String, float[]> embeddings = embedBatch(texts);
+
+        List<float[]> result = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            result.add(embeddings.get(text));
+        }
+
+        return result;
+    }
+
+    /**
+     * 批量嵌入文本，每个分块完成即回调一次，不在堆上保留整批向量
+     * 回调收到该分块涉及的输入下标 → 向量（重复文本的每个位置都会给出）；回调串行执行，顺序按分块完成先后
+     */
+    public void embedEach(List<String> texts, Consumer<Map<Integer, float[]>> onChunk) {
+        Map<String, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            positions.computeIfAbsent(texts.get(i), text -> new ArrayList<>()).add(i);
+        }
+        List<String> unique = new ArrayList<>(positions.keySet());
+
+        ReentrantLock lock = new ReentrantLock();
+        forEachChunk(unique, (offset, vectors) -> {
+            Map<Integer, float[]> embedded = new TreeMap<>();
+            for (int i = 0; i < vectors.size(); i++) {
+                for (int index : positions.get(unique.get(offset + i))) {
+                    embedded.put(index, vectors.get(i));
+                }
+            }
+            lock.lock();
+            try {
+                onChunk.accept(embedded);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * 批量嵌入并写入内存映射存储文件，文本本身作为 ID
+     */
+    public EmbeddingStore saveBatch(List<String> texts, Path file, boolean normalize) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(texts));
+        Map<String, float[]> embeddings = embedBatch(ids);
+
+        List<float[]> vectors = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            vectors.add(embeddings.get(id));
+        }
+
+        Path key = file.toAbsolutePath().normalize();
+        try {
+            closeStore(key);
+            EmbeddingStore.write(key, modelName, ids, vectors, normalize);
+            return openStore(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入向量存储失败：" + file, e);
+        }
+    }
+
+    /**
+     * 打开（并缓存）已有的向量存储文件
+     */
+    public EmbeddingStore openStore(Path file) {
+        return openStores.computeIfAbsent(file.toAbsolutePath().normalize(), path -> {
+            try {
+                return EmbeddingStore.open(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException("打开向量存储失败：" + path, e);
+            }
+        });
+    }
+
+    /**
+     * 在向量存储中检索与查询文本最相似的条目
+     */
+    public List<EmbeddingStore.Match> searchStore(Path file, String query, int topK) {
+        EmbeddingStore store = openStore(file);
+        return store.search(embed(query), topK);
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+
+    private float[][] embedUnique(List<String> unique) {
+        float[][] vectors = new float[unique.size()][];
+        forEachChunk(unique, (offset, chunkVectors) -> copyChunk(vectors, offset, chunkVectors));
+        return vectors;
+    }
+
+    /**
+     * 按 chunkSize 切分，在虚拟线程上并发调用（最多 maxConcurrency 个在途请求），每个分块独立重试；
+     * 分块完成后以 (分块起始位置, 向量) 回调，回调抛出的异常与嵌入失败一样会取消其余分块
+     */
+    private void forEachChunk(List<String> unique, BiConsumer<Integer, List<float[]>> onChunk) {
+        if (unique.isEmpty()) {
+            return;
+        }
+        if (unique.size() <= chunkSize) {
+            onChunk.accept(0, embedChunkWithRetry(unique));
+            return;
+        }
+
+        Semaphore inFlight = new Semaphore(maxConcurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int start = 0; start < unique.size(); start += chunkSize) {
+                int offset = start;
+                List<String> chunk = unique.subList(start, Math.min(start + chunkSize, unique.size()));
+                futures.add(executor.submit(() -> {
+                    inFlight.acquire();
+                    try {
+                        onChunk.accept(offset, embedChunkWithRetry(chunk));
+                    } finally {
+                        inFlight.release();
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    futures.forEach(f -> f.cancel(true));
+                    Throwable cause = e.getCause();
+                    throw cause instanceof RuntimeException re ? re : new RuntimeException("批量嵌入失败", cause);
+                } catch (InterruptedException e) {
+                    futures.forEach(f -> f.cancel(true));
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("批量嵌入被中断", e);
+                }
+            }
+        }
+    }
+
+    private List<float[]> embedChunkWithRetry(List<String> chunk) {
+        RuntimeException lastError = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                EmbeddingResponse response = embeddingModel.embedForResponse(chunk);
+                if (response.getResults().size() != chunk.size()) {
+                    throw new IllegalStateException("嵌入结果数量不匹配：期望 " + chunk.size()
+                            + "，实际 " + response.getResults().size());
+                }
+                List<float[]> vectors = new ArrayList<>(chunk.size());
+                response.getResults().forEach(embedding -> vectors.add(embedding.getOutput()));
+                return vectors;
+            } catch (RuntimeException e) {
+                lastError = e;
+                if (attempt < maxAttempts) {
+                    sleepBeforeRetry(attempt);
+                }
+            }
+        }
+        throw lastError;
+    }
+
+    private void sleepBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(retryBackoff.multipliedBy(1L << (attempt - 1)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("批量嵌入重试被中断", e);
+        }
+    }
+
+    private static void copyChunk(float[][] target, int offset, List<float[]> chunkVectors) {
+        for (int i = 0; i < chunkVectors.size(); i++) {
+            target[offset + i] = chunkVectors.get(i);
+        }
+    }
+
+    private void closeStore(Path path) throws IOException {
+        EmbeddingStore previous = openStores.remove(path);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
     /**
      * 计算两个文本的相似度
      */
@@ -0,0 +1,336 @@
+package com.example.modelintegration.config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 内存映射的列式向量存储
+ *
+ * 文件格式（全部小端序）：
+ * <pre>
+ * [header]   magic(int) version(int) dimensions(int) normalized(int)
+ *            count(long) dataOffset(long) modelLength(int) model(UTF-8)
+ * [id table] count 项：offset(long) idLength(int) id(UTF-8)
+ * [vectors]  按 8 字节对齐，count * dimensions 个 float32，固定步长
+ * </pre>
+ * 向量区只做内存映射，相似度扫描直接读取映射区域，不做反序列化，数据也不占用堆内存。
+ */
+public final class EmbeddingStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x454D4253; // "EMBS"
+    private static final int VERSION = 1;
+    private static final int FIXED_HEADER_BYTES = 4 * 4 + 8 * 2 + 4;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final String model;
+    private final int dimensions;
+    private final long count;
+    private final boolean normalized;
+    private final String[] ids;
+    private final Map<String, Integer> indexById;
+    private final FloatBuffer[] regions;
+    private final int vectorsPerRegion;
+
+    private EmbeddingStore(Path path, FileChannel channel, String model, int dimensions, long count,
+                           boolean normalized, String[] ids, FloatBuffer[] regions, int vectorsPerRegion) {
+        this.path = path;
+        this.channel = channel;
+        this.model = model;
+        this.dimensions = dimensions;
+        this.count = count;
+        this.normalized = normalized;
+        this.ids = ids;
+        this.regions = regions;
+        this.vectorsPerRegion = vectorsPerRegion;
+        this.indexById = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            indexById.put(ids[i], i);
+        }
+    }
+
+    /**
+     * 将一批向量写入存储文件（先写临时文件，再原子替换）
+     */
+    public static void write(Path path, String model, List<String> ids, List<float[]> vectors,
+                             boolean normalize) throws IOException {
+        if (ids.size() != vectors.size()) {
+            throw new IllegalArgumentException("ID 数量与向量数量不一致");
+        }
+        int dimensions = vectors.isEmpty() ? 0 : vectors.get(0).length;
+        byte[] modelBytes = (model == null ? "" : model).getBytes(StandardCharsets.UTF_8);
+
+        List<byte[]> idBytes = new ArrayList<>(ids.size());
+        long idTableBytes = 0;
+        for (String id : ids) {
+            byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+            idBytes.add(bytes);
+            idTableBytes += 8 + 4 + bytes.length;
+        }
+        long dataOffset = align8(FIXED_HEADER_BYTES + modelBytes.length + idTableBytes);
+        long stride = (long) dimensions * Float.BYTES;
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER_BYTES + modelBytes.length)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(dimensions)
+                    .putInt(normalize ? 1 : 0)
+                    .putLong(ids.size())
+                    .putLong(dataOffset)
+                    .putInt(modelBytes.length)
+                    .put(modelBytes);
+            writeFully(out, header.flip());
+
+            ByteBuffer entry = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < idBytes.size(); i++) {
+                byte[] bytes = idBytes.get(i);
+                if (entry.remaining() < 12 + bytes.length) {
+                    writeFully(out, entry.flip());
+                    entry.clear();
+                    if (entry.capacity() < 12 + bytes.length) {
+                        entry = ByteBuffer.allocate(12 + bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+                    }
+                }
+                entry.putLong(dataOffset + i * stride).putInt(bytes.length).put(bytes);
+            }
+            writeFully(out, entry.flip());
+
+            out.position(dataOffset);
+            long vectorsPerWrite = stride == 0 ? 1 : Math.max(1, 64 * 1024 / stride);
+            ByteBuffer vectorBuffer = ByteBuffer.allocate((int) (vectorsPerWrite * stride))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            for (float[] vector : vectors) {
+                if (vector.length != dimensions) {
+                    throw new IllegalArgumentException("向量维度不一致：期望 " + dimensions + "，实际 " + vector.length);
+                }
+                if (vectorBuffer.remaining() < stride) {
+                    writeFully(out, vectorBuffer.flip());
+                    vectorBuffer.clear();
+                }
+                float scale = normalize ? inverseNorm(vector) : 1.0f;
+                for (float value : vector) {
+                    vectorBuffer.putFloat(value * scale);
+                }
+            }
+            writeFully(out, vectorBuffer.flip());
+            out.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 以只读方式映射存储文件
+     */
+    public static EmbeddingStore open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer fixed = ByteBuffer.allocate(FIXED_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, fixed, 0);
+            fixed.flip();
+            if (fixed.getInt() != MAGIC) {
+                throw new IOException("不是有效的向量存储文件：" + path);
+            }
+            int version = fixed.getInt();
+            if (version != VERSION) {
+                throw new IOException("不支持的存储文件版本：" + version);
+            }
+            int dimensions = fixed.getInt();
+            boolean normalized = fixed.getInt() != 0;
+            long count = fixed.getLong();
+            long dataOffset = fixed.getLong();
+            int modelLength = fixed.getInt();
+            if (count > Integer.MAX_VALUE - 8) {
+                throw new IOException("向量数量超出支持范围：" + count);
+            }
+
+            // ID 表只读一次进堆；向量区保持映射
+            long idTableStart = FIXED_HEADER_BYTES + modelLength;
+            MappedByteBuffer meta = channel.map(FileChannel.MapMode.READ_ONLY, 0, dataOffset);
+            meta.order(ByteOrder.LITTLE_ENDIAN);
+            byte[] modelBytes = new byte[modelLength];
+            meta.get(FIXED_HEADER_BYTES, modelBytes);
+            String model = new String(modelBytes, StandardCharsets.UTF_8);
+
+            String[] ids = new String[(int) count];
+            long stride = (long) dimensions * Float.BYTES;
+            int position = (int) idTableStart;
+            for (int i = 0; i < count; i++) {
+                long offset = meta.getLong(position);
+                int length = meta.getInt(position + 8);
+                if (offset != dataOffset + i * stride) {
+                    throw new IOException("ID 表偏移损坏：第 " + i + " 项");
+                }
+                byte[] idBytes = new byte[length];
+                meta.get(position + 12, idBytes);
+                ids[i] = new String(idBytes, StandardCharsets.UTF_8);
+                position += 12 + length;
+            }
+
+            // 单个 MappedByteBuffer 最大 2GB，按整条向量切分映射区域
+            int vectorsPerRegion = stride == 0 ? Integer.MAX_VALUE
+                    : (int) Math.max(1, Math.min(count, Integer.MAX_VALUE / stride));
+            int regionCount = count == 0 ? 0 : (int) ((count + vectorsPerRegion - 1) / vectorsPerRegion);
+            FloatBuffer[] regions = new FloatBuffer[regionCount];
+            for (int r = 0; r < regionCount; r++) {
+                long first = (long) r * vectorsPerRegion;
+                long vectors = Math.min(vectorsPerRegion, count - first);
+                regions[r] = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + first * stride, vectors * stride)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asFloatBuffer();
+            }
+
+            return new EmbeddingStore(path, channel, model, dimensions, count, normalized, ids, regions, vectorsPerRegion);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 按 ID 读取单个向量（拷贝到堆上）
+     */
+    public float[] get(String id) {
+        Integer index = indexById.get(id);
+        if (index == null) {
+            return null;
+        }
+        float[] vector = new float[dimensions];
+        regions[index / vectorsPerRegion].get((index % vectorsPerRegion) * dimensions, vector);
+        return vector;
+    }
+
+    /**
+     * 在映射区域上直接做余弦相似度扫描，返回得分最高的 topK 条
+     */
+    public List<Match> search(float[] query, int topK) {
+        if (query.length != dimensions) {
+            throw new IllegalArgumentException("向量维度不匹配");
+        }
+        if (topK <= 0 || count == 0) {
+            return List.of();
+        }
+        float[] q = Arrays.copyOf(query, query.length);
+        float scale = inverseNorm(q);
+        for (int i = 0; i < q.length; i++) {
+            q[i] *= scale;
+        }
+
+        PriorityQueue<Match> heap = new PriorityQueue<>(topK, Comparator.comparingDouble(Match::score));
+        for (int r = 0; r < regions.length; r++) {
+            FloatBuffer region = regions[r];
+            int vectors = region.capacity() / Math.max(dimensions, 1);
+            for (int v = 0; v < vectors; v++) {
+                int base = v * dimensions;
+                double dot = 0.0;
+                double norm = 0.0;
+                for (int d = 0; d < dimensions; d++) {
+                    float value = region.get(base + d);
+                    dot += value * q[d];
+                    norm += value * value;
+                }
+                double score = normalized ? dot : (norm == 0 ? 0 : dot / Math.sqrt(norm));
+                if (heap.size() < topK) {
+                    heap.add(new Match(ids[r * vectorsPerRegion + v], score));
+                } else if (score > heap.peek().score()) {
+                    heap.poll();
+                    heap.add(new Match(ids[r * vectorsPerRegion + v], score));
+                }
+            }
+        }
+
+        List<Match> result = new ArrayList<>(heap);
+        result.sort(Comparator.comparingDouble(Match::score).reversed());
+        return result;
+    }
+
+    public boolean contains(String id) {
+        return indexById.containsKey(id);
+    }
+
+    public List<String> getIds() {
+        return Collections.unmodifiableList(Arrays.asList(ids));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isNormalized() {
+        return normalized;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * 相似度检索结果
+     */
+    public record Match(String id, double score) {
+    }
+
+    private static float inverseNorm(float[] vector) {
+        double sum = 0.0;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        return sum == 0 ? 1.0f : (float) (1.0 / Math.sqrt(sum));
+    }
+
+    private static long align8(long value) {
+        return (value + 7) & ~7L;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("存储文件头不完整");
+            }
+        }
+    }
+}
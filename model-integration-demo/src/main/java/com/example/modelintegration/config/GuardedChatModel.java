@@ -0,0 +1,197 @@
+package com.example.modelintegration.config;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.modelintegration.service.TokenEstimator;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.web.client.RestClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+/**
+ * 过载保护 ChatModel
+ * 每次模型调用先经过熔断器，再向 {@link PriorityCallScheduler} 按当前线程的 {@link CallPriority} 申请并发名额；
+ * 熔断拒绝、排队超时或队列已满都抛出 {@link ModelOverloadedException}（映射为 503），
+ * 避免请求线程在变慢的下游上无限堆积；调用结果（含慢调用）反馈给熔断器与自适应并发限制，
+ * 调用方取消、本地拒绝与请求自身的错误不计入（见 {@link #unrelatedToProvider}）。
+ * 慢调用按输出长度归一：同步调用的耗时预算为 slow-call-threshold + 输出 token 数 × slow-call-per-token，
+ * 流式调用只看首个分片的到达时间，正常完成的长文本生成不会被当作下游变慢。
+ */
+public class GuardedChatModel implements ChatModel, MeterBinder {
+
+    public static final String REJECTED_BY_CIRCUIT = "circuit_open";
+
+    private final ChatModel delegate;
+    private final PriorityCallScheduler scheduler;
+    private final CircuitBreaker circuitBreaker;
+    private final long slowCallNanos;
+    private final long slowCallPerTokenNanos;
+    private final TokenEstimator tokenEstimator;
+
+    private final LongAdder circuitRejections = new LongAdder();
+
+    public GuardedChatModel(ChatModel delegate, PriorityCallScheduler scheduler,
+                            CircuitBreaker circuitBreaker, long slowCallNanos, long slowCallPerTokenNanos,
+                            TokenEstimator tokenEstimator) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.circuitBreaker = circuitBreaker;
+        this.slowCallNanos = slowCallNanos;
+        this.slowCallPerTokenNanos = slowCallPerTokenNanos;
+        this.tokenEstimator = tokenEstimator;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        CallPriority priority = CallPriority.current();
+        acquire(priority);
+        long start = System.nanoTime();
+        boolean failed = true;
+        boolean ignored = false;
+        try {
+            ChatResponse response = delegate.call(prompt);
+            failed = System.nanoTime() - start > slowCallNanos + outputTokens(response) * slowCallPerTokenNanos;
+            return response;
+        } catch (RuntimeException e) {
+            ignored = unrelatedToProvider(e);
+            throw e;
+        } finally {
+            release(priority, failed && !ignored, ignored);
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        // 订阅可能发生在其他线程上，优先级在组装时确定
+        CallPriority priority = CallPriority.current();
+        return Flux.defer(() -> {
+            acquire(priority);
+            long start = System.nanoTime();
+            // 首个分片到达的耗时；没有任何分片时取结束时刻
+            AtomicLong firstChunkNanos = new AtomicLong(-1);
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            AtomicBoolean released = new AtomicBoolean();
+            return delegate.stream(prompt)
+                    .doOnNext(chunk -> firstChunkNanos.compareAndSet(-1, System.nanoTime() - start))
+                    .doOnError(error::set)
+                    .doFinally(signal -> {
+                        if (released.compareAndSet(false, true)) {
+                            firstChunkNanos.compareAndSet(-1, System.nanoTime() - start);
+                            boolean ignored = signal == SignalType.CANCEL
+                                    || signal == SignalType.ON_ERROR && unrelatedToProvider(error.get());
+                            release(priority, !ignored && (signal == SignalType.ON_ERROR
+                                    || firstChunkNanos.get() > slowCallNanos), ignored);
+                        }
+                    });
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    public ChatModel getDelegate() {
+        return delegate;
+    }
+
+    public PriorityCallScheduler getScheduler() {
+        return scheduler;
+    }
+
+    private void acquire(CallPriority priority) {
+        if (!circuitBreaker.tryAcquire()) {
+            circuitRejections.increment();
+            throw new ModelOverloadedException(REJECTED_BY_CIRCUIT, circuitBreaker.retryAfterSeconds());
+        }
+        try {
+            scheduler.acquire(priority);
+        } catch (RuntimeException e) {
+            circuitBreaker.onIgnored();
+            throw e;
+        }
+    }
+
+    /**
+     * @param failed 调用失败或超出慢调用预算
+     */
+    private void release(CallPriority priority, boolean failed, boolean cancelled) {
+        scheduler.release(priority, failed, cancelled);
+        if (cancelled) {
+            circuitBreaker.onIgnored();
+        } else {
+            circuitBreaker.onResult(failed);
+        }
+    }
+
+    /**
+     * 与下游健康无关的失败只释放名额，不计入熔断与并发调整：本地拒绝（如连接池排队超时）、
+     * 调用方中断（扫描截止、任务取消），以及请求本身有误的 4xx（429 限流除外）
+     */
+    static boolean unrelatedToProvider(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ModelOverloadedException || cause instanceof InterruptedException
+                    || cause instanceof ClosedByInterruptException
+                    || cause instanceof InterruptedIOException && !(cause instanceof SocketTimeoutException)) {
+                return true;
+            }
+            if (cause instanceof RestClientResponseException response) {
+                return response.getStatusCode().is4xxClientError() && response.getStatusCode().value() != 429;
+            }
+            if (cause instanceof NonTransientAiException) {
+                // 由 4xx 响应转换而来，消息以状态码开头
+                return !String.valueOf(cause.getMessage()).startsWith("429");
+            }
+        }
+        return Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * 回复的输出 token 数：优先取 usage，供应商未返回时本地估算
+     */
+    private long outputTokens(ChatResponse response) {
+        if (response == null) {
+            return 0;
+        }
+        Usage usage = response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+        if (usage != null && usage.getCompletionTokens() != null && usage.getCompletionTokens() > 0) {
+            return usage.getCompletionTokens();
+        }
+        return response.getResults().stream()
+                .mapToLong(generation -> tokenEstimator.count(generation.getOutput().getText()))
+                .sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ai.model.concurrency.limit", scheduler, PriorityCallScheduler::getLimit)
+                .description("Current adaptive concurrency limit for model calls")
+                .register(registry);
+        Gauge.builder("ai.model.concurrency.inflight", scheduler, PriorityCallScheduler::getInflight)
+                .description("Model calls currently in flight")
+                .register(registry);
+        Gauge.builder("ai.model.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(registry);
+        FunctionCounter.builder("ai.model.rejections", circuitRejections, LongAdder::sum)
+                .description("Model calls rejected before reaching the provider")
+                .tag("reason", REJECTED_BY_CIRCUIT)
+                .register(registry);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.modelintegration.config;
+
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * 让 Spring AI 各供应商的 RestClient（同步调用）与 WebClient（流式调用）都使用 {@link PooledHttpTransport}
+ * 供应商自动配置通过容器中的 Builder 创建客户端，这里的 customizer 会作用到每一个 Builder 上
+ */
+@Configuration
+public class HttpTransportConfig {
+
+    @Bean
+    public RestClientCustomizer pooledTransportRestClientCustomizer(PooledHttpTransport transport) {
+        return builder -> builder
+                .requestFactory(transport.requestFactory())
+                .requestInterceptor(transport.interceptor());
+    }
+
+    /**
+     * 排在 Spring Boot 默认的 connector customizer 之后，覆盖其创建的独立 HttpClient
+     */
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public WebClientCustomizer pooledTransportWebClientCustomizer(PooledHttpTransport transport) {
+        return builder -> builder
+                .clientConnector(transport.connector())
+                .filter(transport.filter());
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.modelintegration.config;
+
+/**
+ * 模型调用被并发限制或熔断器拒绝
+ */
+public class ModelOverloadedException extends RuntimeException {
+
+    private final String reason;
+    private final long retryAfterSeconds;
+
+    public ModelOverloadedException(String reason, long retryAfterSeconds) {
+        super("模型服务繁忙（" + reason + "），请稍后重试");
+        this.reason = reason;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
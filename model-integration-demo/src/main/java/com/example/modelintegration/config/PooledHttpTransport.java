@@ -0,0 +1,343 @@
+package com.example.modelintegration.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.net.ssl.SSLContext;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 供应商共享 HTTP 传输
+ * 所有供应商调用（同步 RestClient 与流式 WebClient）共用一个 JDK HttpClient。
+ * 优先使用 HTTP/2，同一主机的并发请求复用一条连接；HTTP/1.1 下连接保持存活复用。
+ * 每个主机的在途请求数有上限，获取连接槽位的等待时间与 TLS 握手耗时都记为指标。
+ * 应用就绪后预热配置的供应商地址（DNS 解析 + TCP/TLS 建连），首个用户请求不必承担握手延迟。
+ */
+@Component
+public class PooledHttpTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledHttpTransport.class);
+
+    public static final String REJECTED_BY_POOL = "connection_pool";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry meterRegistry;
+    private final int maxConnectionsPerHost;
+    private final Duration acquireTimeout;
+    private final Duration connectTimeout;
+    private final List<String> prewarmUrls;
+
+    private final HttpClient httpClient;
+    private final JdkClientHttpRequestFactory requestFactory;
+    private final JdkClientHttpConnector connector;
+    private final Map<String, HostSlots> hosts = new ConcurrentHashMap<>();
+    // 槽位已满时在虚拟线程上等待，不阻塞 Reactor 线程
+    private final Scheduler acquireScheduler =
+            Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "http-slot-acquire");
+
+    public PooledHttpTransport(MeterRegistry meterRegistry,
+                               @Value("${app.http.connect-timeout:5s}") Duration connectTimeout,
+                               @Value("${app.http.read-timeout:120s}") Duration readTimeout,
+                               @Value("${app.http.max-connections-per-host:64}") int maxConnectionsPerHost,
+                               @Value("${app.http.acquire-timeout:5s}") Duration acquireTimeout,
+                               @Value("${app.http.prewarm.urls:}") List<String> prewarmUrls)
+            throws NoSuchAlgorithmException {
+        this.meterRegistry = meterRegistry;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.acquireTimeout = acquireTimeout;
+        this.connectTimeout = connectTimeout;
+        this.prewarmUrls = prewarmUrls.stream().filter(url -> !url.isBlank()).map(String::strip).toList();
+
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .sslContext(new HandshakeTimingSslContext(SSLContext.getDefault(), this::recordHandshake))
+                .build();
+        this.requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        this.requestFactory.setReadTimeout(readTimeout);
+        this.connector = new JdkClientHttpConnector(httpClient);
+        this.connector.setReadTimeout(readTimeout);
+    }
+
+    /**
+     * JDK HttpClient 只在首次创建客户端时读取保活时间（默认 30 秒），必须在应用启动前设置；
+     * 已通过 -D 指定时不覆盖
+     */
+    public static void applyKeepAliveDefaults(Duration keepAlive) {
+        String seconds = String.valueOf(keepAlive.toSeconds());
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout", seconds);
+        }
+        if (System.getProperty("jdk.httpclient.keepalive.timeout.h2") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout.h2", seconds);
+        }
+    }
+
+    public ClientHttpRequestFactory requestFactory() {
+        return requestFactory;
+    }
+
+    public ClientHttpConnector connector() {
+        return connector;
+    }
+
+    /**
+     * RestClient 拦截器：占用目标主机的一个槽位，响应关闭时归还
+     */
+    public ClientHttpRequestInterceptor interceptor() {
+        return (request, body, execution) -> {
+            HostSlots slots = slots(request.getURI());
+            slots.acquire();
+            try {
+                return new SlotReleasingResponse(execution.execute(request, body), slots);
+            } catch (IOException | RuntimeException e) {
+                slots.release();
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * WebClient 过滤器：流式响应在响应体结束、出错或取消时归还槽位
+     */
+    public ExchangeFilterFunction filter() {
+        return (request, next) -> Mono.defer(() -> {
+            HostSlots slots = slots(request.url());
+            Mono<HostSlots> acquired = slots.tryAcquire()
+                    ? Mono.just(slots)
+                    : Mono.fromCallable(() -> {
+                        slots.acquire();
+                        return slots;
+                    }).subscribeOn(acquireScheduler);
+            return acquired.flatMap(held -> {
+                AtomicBoolean released = new AtomicBoolean();
+                Runnable release = () -> {
+                    if (released.compareAndSet(false, true)) {
+                        held.release();
+                    }
+                };
+                return next.exchange(request)
+                        .map(response -> response.mutate()
+                                .body(bodyFlux -> bodyFlux.doFinally(signal -> release.run()))
+                                .build())
+                        .doOnError(error -> release.run())
+                        .doOnCancel(release);
+            });
+        });
+    }
+
+    /**
+     * 预热：解析 DNS 并发送一个 HEAD 请求，建立的连接留在连接池中供后续调用复用
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        for (String url : prewarmUrls) {
+            Thread.ofVirtual().name("http-prewarm").start(() -> prewarm(URI.create(url)));
+        }
+    }
+
+    private void prewarm(URI uri) {
+        try {
+            long start = System.nanoTime();
+            InetAddress.getAllByName(uri.getHost());
+            long resolved = System.nanoTime();
+            HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(uri)
+                            .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                            .timeout(connectTimeout.multipliedBy(2))
+                            .build(),
+                    HttpResponse.BodyHandlers.discarding());
+            log.info("已预热 {}：DNS {} ms，建连及首个响应 {} ms，协议 {}", uri.getHost(),
+                    (resolved - start) / 1_000_000, (System.nanoTime() - resolved) / 1_000_000, response.version());
+        } catch (IOException e) {
+            log.warn("预热 {} 失败：{}", uri, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 各主机的连接槽位占用与握手统计
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        hosts.forEach((host, slots) -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("maxConnections", maxConnectionsPerHost);
+            stats.put("inUse", slots.inUse());
+            stats.put("acquireP99Ms", percentile(slots.acquireTimer, 0.99));
+            Timer handshake = Search.in(meterRegistry).name("http.client.tls.handshake").tag("host", host).timer();
+            stats.put("tlsHandshakes", handshake != null ? handshake.count() : 0);
+            stats.put("tlsHandshakeMeanMs", handshake != null ? handshake.mean(TimeUnit.MILLISECONDS) : 0.0);
+            result.put(host, stats);
+        });
+        return result;
+    }
+
+    private void recordHandshake(String host, long nanos) {
+        Timer.builder("http.client.tls.handshake")
+                .description("TLS handshake time for new provider connections")
+                .tag("host", host)
+                .publishPercentiles(PERCENTILES)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private HostSlots slots(URI uri) {
+        String host = uri.getHost() != null ? uri.getHost() : "unknown";
+        return hosts.computeIfAbsent(host, HostSlots::new);
+    }
+
+    private static double percentile(Timer timer, double percentile) {
+        for (var value : timer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0.0;
+    }
+
+    /**
+     * 单个主机的连接槽位：HTTP/1.1 下一个在途请求占用一条连接，HTTP/2 下对应一条流
+     */
+    private final class HostSlots {
+
+        private final Semaphore permits = new Semaphore(maxConnectionsPerHost);
+        private final Timer acquireTimer;
+        private final Counter timeouts;
+
+        HostSlots(String host) {
+            this.acquireTimer = Timer.builder("http.client.connection.acquire")
+                    .description("Time spent waiting for a connection slot to a provider host")
+                    .tag("host", host)
+                    .publishPercentiles(PERCENTILES)
+                    .register(meterRegistry);
+            this.timeouts = Counter.builder("ai.model.rejections")
+                    .description("Model calls rejected before reaching the provider")
+                    .tag("reason", REJECTED_BY_POOL)
+                    .register(meterRegistry);
+            Gauge.builder("http.client.connections.in.use", this, HostSlots::inUse)
+                    .description("In-flight requests holding a connection slot")
+                    .tag("host", host)
+                    .register(meterRegistry);
+        }
+
+        boolean tryAcquire() {
+            if (permits.tryAcquire()) {
+                acquireTimer.record(0, TimeUnit.NANOSECONDS);
+                return true;
+            }
+            return false;
+        }
+
+        void acquire() {
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待连接被中断", e);
+            }
+            acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (!acquired) {
+                timeouts.increment();
+                throw new ModelOverloadedException(REJECTED_BY_POOL, 1);
+            }
+        }
+
+        void release() {
+            permits.release();
+        }
+
+        int inUse() {
+            return maxConnectionsPerHost - permits.availablePermits();
+        }
+    }
+
+    /**
+     * 关闭时归还槽位的响应包装
+     */
+    private static final class SlotReleasingResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final HostSlots slots;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        SlotReleasingResponse(ClientHttpResponse delegate, HostSlots slots) {
+            this.delegate = delegate;
+            this.slots = slots;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    slots.release();
+                }
+            }
+        }
+    }
+}
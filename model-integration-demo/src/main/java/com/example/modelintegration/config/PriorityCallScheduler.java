@@ -0,0 +1,276 @@
+package com.example.modelintegration.config;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * 按优先级类别调度模型调用的并发名额
+ * 名额总数由 {@link AdaptiveConcurrencyLimiter} 决定。名额不足时各类别分别排队，名额释放后按加权公平队列
+ * （每个类别一个虚拟时间，出队一次前进 1/weight，取最小者）分配，批量流量再多也只能拿到与权重成比例的份额。
+ * 另为 INTERACTIVE 预留 reserved-interactive 个名额：BATCH 自身的在途数不超过 上限 - 预留，交互请求到达时总有空位；
+ * 排队超过类别的 max-wait 或队列已满时抛出 {@link ModelOverloadedException}。
+ */
+public class PriorityCallScheduler implements MeterBinder {
+
+    public static final String REJECTED_BY_QUEUE_FULL = "queue_full";
+    public static final String REJECTED_BY_QUEUE_TIMEOUT = "queue_timeout";
+
+    /**
+     * 单个类别的调度参数
+     *
+     * @param weight   加权公平队列中的权重
+     * @param slo      排队时间目标，超过计入 ai.model.queue.slo.violations
+     * @param maxWait  排队时间上限，超过即拒绝
+     * @param maxQueue 排队数上限
+     */
+    public record Policy(int weight, Duration slo, Duration maxWait, int maxQueue) {
+    }
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final int reservedForInteractive;
+    private final Map<CallPriority, Lane> lanes = new EnumMap<>(CallPriority.class);
+    // 等待与出队时都在锁内操作队列和虚拟时间；用 ReentrantLock 避免钉住虚拟线程
+    private final ReentrantLock lock = new ReentrantLock();
+    private double virtualTime;
+
+    public PriorityCallScheduler(AdaptiveConcurrencyLimiter limiter, int reservedForInteractive,
+                                 Map<CallPriority, Policy> policies) {
+        this.limiter = limiter;
+        this.reservedForInteractive = Math.max(0, reservedForInteractive);
+        for (CallPriority priority : CallPriority.values()) {
+            Policy policy = policies.get(priority);
+            if (policy == null) {
+                throw new IllegalArgumentException("缺少优先级类别的调度参数：" + priority);
+            }
+            lanes.put(priority, new Lane(priority, policy));
+        }
+    }
+
+    /**
+     * 为指定类别占用一个名额，必要时排队等待
+     */
+    public void acquire(CallPriority priority) {
+        Lane lane = lanes.get(priority);
+        long start = System.nanoTime();
+        Waiter waiter;
+
+        lock.lock();
+        try {
+            // 同类别已有排队者时不插队
+            if (lane.waiters.isEmpty() && admits(lane) && limiter.tryAcquire()) {
+                lane.running++;
+                lane.recordWait(0);
+                return;
+            }
+            if (lane.waiters.size() >= lane.policy.maxQueue()) {
+                lane.rejectedFull.increment();
+                throw new ModelOverloadedException(REJECTED_BY_QUEUE_FULL, 1);
+            }
+            if (lane.waiters.isEmpty()) {
+                // 从空闲变为积压的类别从当前虚拟时间开始，不能用空闲期间「攒下」的额度
+                lane.pass = Math.max(lane.pass, virtualTime);
+            }
+            waiter = new Waiter();
+            lane.waiters.addLast(waiter);
+        } finally {
+            lock.unlock();
+        }
+
+        boolean interrupted = false;
+        try {
+            waiter.latch.await(lane.policy.maxWait().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+
+        lock.lock();
+        try {
+            if (!waiter.granted) {
+                lane.waiters.remove(waiter);
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("等待模型调用名额时被中断");
+                }
+                lane.rejectedTimeout.increment();
+                throw new ModelOverloadedException(REJECTED_BY_QUEUE_TIMEOUT,
+                        Math.max(1, lane.policy.maxWait().toSeconds()));
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        lane.recordWait(System.nanoTime() - start);
+    }
+
+    /**
+     * 释放名额（结果反馈给自适应限制），并把空出的名额分给排队者
+     */
+    public void release(CallPriority priority, boolean failed, boolean ignored) {
+        limiter.release(failed, ignored);
+        lock.lock();
+        try {
+            lanes.get(priority).running--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 持锁调用：反复取虚拟时间最小且允许进入的类别，直到没有空闲名额或没有排队者
+     */
+    private void dispatch() {
+        while (true) {
+            Lane next = null;
+            for (Lane lane : lanes.values()) {
+                if (!lane.waiters.isEmpty() && admits(lane) && (next == null || lane.pass < next.pass)) {
+                    next = lane;
+                }
+            }
+            if (next == null || !limiter.tryAcquire()) {
+                return;
+            }
+            Waiter waiter = next.waiters.pollFirst();
+            virtualTime = next.pass;
+            next.pass += 1.0 / next.policy.weight();
+            next.running++;
+            waiter.granted = true;
+            waiter.latch.countDown();
+        }
+    }
+
+    /**
+     * BATCH 不能占用为 INTERACTIVE 预留的名额；上限收缩到很小时至少保留 1 个给 BATCH，避免完全饿死
+     */
+    private boolean admits(Lane lane) {
+        if (lane.priority == CallPriority.INTERACTIVE) {
+            return true;
+        }
+        int limit = limiter.getLimit();
+        int reserved = Math.min(reservedForInteractive, limit - 1);
+        return lane.running < limit - reserved;
+    }
+
+    public int getLimit() {
+        return limiter.getLimit();
+    }
+
+    public int getInflight() {
+        return limiter.getInflight();
+    }
+
+    /**
+     * 各类别的排队与等待统计
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> classes = new LinkedHashMap<>();
+        lanes.values().forEach(lane -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("weight", lane.policy.weight());
+            stats.put("running", lane.running);
+            stats.put("queued", lane.depth());
+            stats.put("admitted", lane.admitted.sum());
+            stats.put("meanWaitMs", lane.admitted.sum() == 0 ? 0.0
+                    : lane.waitNanos.sum() / 1_000_000.0 / lane.admitted.sum());
+            stats.put("sloMs", lane.policy.slo().toMillis());
+            stats.put("sloViolations", lane.sloViolations.sum());
+            stats.put("rejectedQueueFull", lane.rejectedFull.sum());
+            stats.put("rejectedQueueTimeout", lane.rejectedTimeout.sum());
+            classes.put(lane.priority.tag(), stats);
+        });
+        return Map.of(
+                "limit", getLimit(),
+                "inflight", getInflight(),
+                "reservedForInteractive", reservedForInteractive,
+                "classes", classes
+        );
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        lanes.values().forEach(lane -> {
+            String tag = lane.priority.tag();
+            Gauge.builder("ai.model.queue.depth", lane, Lane::depth)
+                    .description("Model calls waiting for a concurrency slot")
+                    .tag("class", tag)
+                    .register(registry);
+            lane.waitTimer = Timer.builder("ai.model.queue.wait")
+                    .description("Time model calls spend waiting for a concurrency slot")
+                    .tag("class", tag)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .serviceLevelObjectives(lane.policy.slo())
+                    .register(registry);
+            FunctionCounter.builder("ai.model.queue.slo.violations", lane.sloViolations, LongAdder::sum)
+                    .description("Model calls whose queue wait exceeded the class SLO")
+                    .tag("class", tag)
+                    .register(registry);
+            FunctionCounter.builder("ai.model.queue.rejections", lane.rejectedFull, LongAdder::sum)
+                    .description("Model calls rejected while queued for a concurrency slot")
+                    .tag("class", tag)
+                    .tag("reason", REJECTED_BY_QUEUE_FULL)
+                    .register(registry);
+            FunctionCounter.builder("ai.model.queue.rejections", lane.rejectedTimeout, LongAdder::sum)
+                    .description("Model calls rejected while queued for a concurrency slot")
+                    .tag("class", tag)
+                    .tag("reason", REJECTED_BY_QUEUE_TIMEOUT)
+                    .register(registry);
+        });
+    }
+
+    private static final class Waiter {
+        final CountDownLatch latch = new CountDownLatch(1);
+        boolean granted;
+    }
+
+    private static final class Lane {
+        final CallPriority priority;
+        final Policy policy;
+        final Deque<Waiter> waiters = new ArrayDeque<>();
+        final LongAdder admitted = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAdder sloViolations = new LongAdder();
+        final LongAdder rejectedFull = new LongAdder();
+        final LongAdder rejectedTimeout = new LongAdder();
+        double pass;
+        int running;
+        volatile Timer waitTimer;
+
+        Lane(CallPriority priority, Policy policy) {
+            this.priority = priority;
+            this.policy = policy;
+        }
+
+        // 指标线程读取，不加锁，允许短暂不一致
+        int depth() {
+            return waiters.size();
+        }
+
+        void recordWait(long nanos) {
+            admitted.increment();
+            waitNanos.add(nanos);
+            if (nanos > policy.slo().toNanos()) {
+                sloViolations.increment();
+            }
+            Timer timer = waitTimer;
+            if (timer != null) {
+                timer.record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
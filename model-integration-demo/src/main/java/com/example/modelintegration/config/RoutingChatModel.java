@@ -0,0 +1,337 @@
+package com.example.modelintegration.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.modelintegration.service.ChatMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import reactor.core.publisher.Flux;
+
+/**
+ * 多供应商路由 ChatModel
+ * 按供应商维护 EWMA 延迟与 EWMA 错误率，每次调用选择得分最优的供应商；
+ * 首选供应商超过其 p95 延迟仍未返回时，向次优供应商发出对冲请求，取先成功的结果并取消另一个。
+ * 调用失败且没有其他在途请求时按排名依次故障转移。
+ * 默认参数为空：ChatClient 会把 {@link #getDefaultOptions()} 复制进每个请求，若返回某个供应商的参数，
+ * 其模型名会被发给其他供应商。转发前同样只保留通用参数（去掉 model 等供应商专有字段），由各供应商补上自己的默认值。
+ */
+public class RoutingChatModel implements ChatModel, MeterBinder {
+
+    // 错误率对得分的放大系数：错误率 10% 时得分约为延迟的 2 倍
+    private static final double ERROR_PENALTY = 10.0;
+    // 计算 p95 前要求的最少样本数，样本不足时使用最小对冲延迟
+    private static final int MIN_SAMPLES_FOR_P95 = 20;
+
+    private final List<Provider> providers;
+    private final boolean hedging;
+    private final long minHedgeDelayNanos;
+    private final double alpha;
+    private final double explorationRate;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder hedgedRequests = new LongAdder();
+
+    /**
+     * @param models          供应商名称 -> 模型，声明顺序即冷启动时的优先级
+     * @param hedging         是否启用对冲请求
+     * @param minHedgeDelay   对冲延迟下限
+     * @param alpha           EWMA 平滑系数
+     * @param explorationRate 随机选择非最优供应商的概率，让降级的供应商有机会恢复
+     */
+    public RoutingChatModel(Map<String, ChatModel> models, boolean hedging, Duration minHedgeDelay,
+                            double alpha, double explorationRate) {
+        if (models.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个 ChatModel");
+        }
+        this.providers = new ArrayList<>();
+        int index = 0;
+        for (Map.Entry<String, ChatModel> entry : models.entrySet()) {
+            providers.add(new Provider(entry.getKey(), entry.getValue(), index++));
+        }
+        this.hedging = hedging;
+        this.minHedgeDelayNanos = minHedgeDelay.toNanos();
+        this.alpha = alpha;
+        this.explorationRate = explorationRate;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        List<Provider> ranked = rank();
+        CompletionService<ChatResponse> completion = new ExecutorCompletionService<>(executor);
+        List<Future<ChatResponse>> pending = new ArrayList<>();
+        int next = 0;
+        RuntimeException lastError = null;
+
+        Provider primary = ranked.get(next++);
+        pending.add(completion.submit(() -> invoke(primary, prompt)));
+        try {
+            Future<ChatResponse> done = completion.poll(primary.hedgeDelayNanos(minHedgeDelayNanos), TimeUnit.NANOSECONDS);
+            if (done == null && hedging && next < ranked.size()) {
+                Provider hedge = ranked.get(next++);
+                hedgedRequests.increment();
+                pending.add(completion.submit(() -> invoke(hedge, prompt)));
+            }
+            while (!pending.isEmpty()) {
+                if (done == null) {
+                    done = completion.take();
+                }
+                pending.remove(done);
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    lastError = e.getCause() instanceof RuntimeException runtime
+                            ? runtime : new IllegalStateException(e.getCause());
+                    if (pending.isEmpty() && next < ranked.size()) {
+                        Provider fallback = ranked.get(next++);
+                        pending.add(completion.submit(() -> invoke(fallback, prompt)));
+                    }
+                }
+                done = null;
+            }
+            throw lastError;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("模型调用被中断", e);
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return stream(prompt, rank(), 0);
+    }
+
+    /**
+     * 流式调用不做对冲；尚未发出任何分片时出错则转移到下一个供应商
+     */
+    private Flux<ChatResponse> stream(Prompt prompt, List<Provider> ranked, int index) {
+        Provider provider = ranked.get(index);
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean emitted = new AtomicBoolean();
+            Flux<ChatResponse> flux = provider.model.stream(portable(prompt))
+                    .map(response -> tagProvider(response, provider.name))
+                    .doOnNext(response -> emitted.set(true))
+                    .doOnComplete(() -> provider.record(System.nanoTime() - start, false, alpha, minHedgeDelayNanos))
+                    .doOnError(error -> provider.record(System.nanoTime() - start, true, alpha, minHedgeDelayNanos));
+            if (index + 1 < ranked.size()) {
+                flux = flux.onErrorResume(error -> !emitted.get(), error -> stream(prompt, ranked, index + 1));
+            }
+            return flux;
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return ChatOptions.builder().build();
+    }
+
+    /**
+     * 各供应商当前的路由统计
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Provider provider : providers) {
+            result.put(provider.name, Map.of(
+                    "ewmaLatencyMs", provider.ewmaLatencyMs(),
+                    "p95LatencyMs", provider.p95Nanos() / 1_000_000.0,
+                    "errorRate", provider.errorRate(),
+                    "samples", provider.samples(),
+                    "score", provider.score()
+            ));
+        }
+        result.put("hedgedRequests", hedgedRequests.sum());
+        return result;
+    }
+
+    /**
+     * 按得分升序排列的供应商；以 explorationRate 的概率把一个随机的非最优供应商提到首位
+     */
+    List<Provider> rank() {
+        List<Provider> ranked = new ArrayList<>(providers);
+        ranked.sort(Comparator.comparingDouble(Provider::score).thenComparingInt(provider -> provider.order));
+        if (ranked.size() > 1 && explorationRate > 0 && ThreadLocalRandom.current().nextDouble() < explorationRate) {
+            Provider explored = ranked.remove(1 + ThreadLocalRandom.current().nextInt(ranked.size() - 1));
+            ranked.add(0, explored);
+        }
+        return ranked;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Provider provider : providers) {
+            Gauge.builder("ai.provider.latency.ewma", provider, Provider::ewmaLatencyMs)
+                    .description("EWMA latency of provider calls in milliseconds")
+                    .tag("provider", provider.name)
+                    .register(registry);
+            Gauge.builder("ai.provider.latency.p95", provider, p -> p.p95Nanos() / 1_000_000.0)
+                    .description("p95 latency over recent provider calls in milliseconds")
+                    .tag("provider", provider.name)
+                    .register(registry);
+            Gauge.builder("ai.provider.error.rate", provider, Provider::errorRate)
+                    .description("EWMA error rate of provider calls")
+                    .tag("provider", provider.name)
+                    .register(registry);
+        }
+        FunctionCounter.builder("ai.provider.hedged.requests", hedgedRequests, LongAdder::sum)
+                .description("Hedged requests sent to a second provider")
+                .register(registry);
+    }
+
+    private ChatResponse invoke(Provider provider, Prompt prompt) {
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = provider.model.call(portable(prompt));
+            provider.record(System.nanoTime() - start, false, alpha, minHedgeDelayNanos);
+            return tagProvider(response, provider.name);
+        } catch (RuntimeException e) {
+            // 对冲失败方被取消时会被中断，此时的异常不计入错误率
+            if (!Thread.currentThread().isInterrupted()) {
+                provider.record(System.nanoTime() - start, true, alpha, minHedgeDelayNanos);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 只保留各供应商通用的参数与工具设置，model 和供应商专有字段交给目标供应商的默认值
+     */
+    static Prompt portable(Prompt prompt) {
+        ChatOptions options = prompt.getOptions();
+        if (options == null) {
+            return prompt;
+        }
+        ToolCallingChatOptions.Builder builder = ToolCallingChatOptions.builder()
+                .temperature(options.getTemperature())
+                .topP(options.getTopP())
+                .topK(options.getTopK())
+                .maxTokens(options.getMaxTokens())
+                .frequencyPenalty(options.getFrequencyPenalty())
+                .presencePenalty(options.getPresencePenalty())
+                .stopSequences(options.getStopSequences());
+        if (options instanceof ToolCallingChatOptions tools) {
+            if (tools.getToolCallbacks() != null) {
+                builder.toolCallbacks(tools.getToolCallbacks());
+            }
+            if (tools.getToolNames() != null) {
+                builder.toolNames(tools.getToolNames());
+            }
+            if (tools.getToolContext() != null) {
+                builder.toolContext(tools.getToolContext());
+            }
+            builder.internalToolExecutionEnabled(tools.getInternalToolExecutionEnabled());
+        }
+        return prompt.mutate().chatOptions(builder.build()).build();
+    }
+
+    /**
+     * 在响应元数据中标记实际提供服务的供应商，供指标按 provider 打标签
+     */
+    private static ChatResponse tagProvider(ChatResponse response, String provider) {
+        ChatResponseMetadata metadata = response.getMetadata();
+        ChatResponseMetadata.Builder builder = ChatResponseMetadata.builder()
+                .id(metadata.getId())
+                .model(metadata.getModel())
+                .rateLimit(metadata.getRateLimit())
+                .usage(metadata.getUsage())
+                .promptMetadata(metadata.getPromptMetadata());
+        metadata.entrySet().forEach(entry -> builder.keyValue(entry.getKey(), entry.getValue()));
+        builder.keyValue(ChatMetrics.PROVIDER_METADATA_KEY, provider);
+        return new ChatResponse(response.getResults(), builder.build());
+    }
+
+    /**
+     * 单个供应商的延迟与错误统计
+     */
+    static final class Provider {
+
+        private static final int WINDOW = 128;
+
+        final String name;
+        final ChatModel model;
+        final int order;
+
+        private final long[] window = new long[WINDOW];
+        private long samples;
+        private double ewmaLatencyNanos = Double.NaN;
+        private double errorRate;
+
+        Provider(String name, ChatModel model, int order) {
+            this.name = name;
+            this.model = model;
+            this.order = order;
+        }
+
+        /**
+         * 记录一次调用；失败按不低于 failurePenaltyNanos 的耗时计入 EWMA（快速失败不应显得“快”），
+         * 且不进入 p95 窗口
+         */
+        synchronized void record(long latencyNanos, boolean failed, double alpha, long failurePenaltyNanos) {
+            if (!failed) {
+                window[(int) (samples % WINDOW)] = latencyNanos;
+                samples++;
+            }
+            double effective = failed ? Math.max(latencyNanos, failurePenaltyNanos) : latencyNanos;
+            ewmaLatencyNanos = Double.isNaN(ewmaLatencyNanos)
+                    ? effective : alpha * effective + (1 - alpha) * ewmaLatencyNanos;
+            errorRate = alpha * (failed ? 1.0 : 0.0) + (1 - alpha) * errorRate;
+        }
+
+        /**
+         * 得分越低越优；没有样本的供应商得分为 0，优先获得流量以建立统计
+         */
+        synchronized double score() {
+            return Double.isNaN(ewmaLatencyNanos) ? 0.0 : ewmaLatencyNanos * (1 + ERROR_PENALTY * errorRate);
+        }
+
+        synchronized long p95Nanos() {
+            int size = (int) Math.min(samples, WINDOW);
+            if (size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(window, size);
+            Arrays.sort(sorted);
+            return sorted[Math.min(size - 1, (int) Math.ceil(size * 0.95) - 1)];
+        }
+
+        long hedgeDelayNanos(long minimum) {
+            return samples() < MIN_SAMPLES_FOR_P95 ? minimum : Math.max(minimum, p95Nanos());
+        }
+
+        synchronized double ewmaLatencyMs() {
+            return Double.isNaN(ewmaLatencyNanos) ? 0.0 : ewmaLatencyNanos / 1_000_000.0;
+        }
+
+        synchronized double errorRate() {
+            return errorRate;
+        }
+
+        synchronized long samples() {
+            return samples;
+        }
+    }
+}
@@ -23,4 +23,14 @@ public class SystemPrompts {
             你是一个富有创造力的作家，擅长创意写作和内容创作。
             请用生动有趣的语言风格回答问题，适当使用比喻和形象化的表达。
             """;
-} 
\ No newline at end of file
+
+    /**
+     * 创意写作的用户提示（同步接口、流式接口与异步任务共用）
+     */
+    public static String creativeWriting(String topic, String style) {
+        return String.format("""
+                请以'%s'风格，围绕'%s'这个主题进行创作。
+                可以是诗歌、小故事、散文或其他创意形式。
+                """, style, topic);
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.modelintegration.config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * 虚拟线程钉住（pinning）诊断
+ * 进程内订阅 JFR 的 jdk.VirtualThreadPinned 事件（虚拟线程在 synchronized 块或本地帧中阻塞、无法让出载体线程），
+ * 按首个应用栈帧聚合钉住位置，通过 /actuator/pinning 查看，并导出 jvm.virtual.threads.pinned 计数。
+ */
+@Component
+@Endpoint(id = "pinning")
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String SUBMIT_FAILED_EVENT = "jdk.VirtualThreadSubmitFailed";
+    private static final int RECENT_EVENTS = 50;
+    private static final int STACK_DEPTH = 12;
+
+    private final boolean enabled;
+    private final Duration threshold;
+    private final String applicationPackage;
+
+    private final LongAdder pinnedEvents = new LongAdder();
+    private final LongAdder submitFailures = new LongAdder();
+    private final Map<String, Site> sites = new ConcurrentHashMap<>();
+    private final Deque<Map<String, Object>> recent = new ArrayDeque<>();
+
+    private volatile RecordingStream stream;
+    private volatile boolean running;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${app.diagnostics.pinning.enabled:true}") boolean enabled,
+                                       @Value("${app.diagnostics.pinning.threshold:20ms}") Duration threshold) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.applicationPackage = getClass().getPackageName().substring(0, getClass().getPackageName().lastIndexOf('.'));
+        FunctionCounter.builder("jvm.virtual.threads.pinned", pinnedEvents, LongAdder::sum)
+                .description("Virtual threads pinned to their carrier longer than the JFR threshold")
+                .register(meterRegistry);
+        FunctionCounter.builder("jvm.virtual.threads.submit.failed", submitFailures, LongAdder::sum)
+                .description("Virtual thread submissions rejected by the scheduler")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 钉住统计：总次数、按位置聚合（按累计耗时降序）与最近的事件
+     */
+    @ReadOperation
+    public Map<String, Object> pinning() {
+        List<Map<String, Object>> bySite = sites.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, Site> entry) -> entry.getValue().totalNanos.sum()).reversed())
+                .map(entry -> Map.<String, Object>of(
+                        "site", entry.getKey(),
+                        "count", entry.getValue().count.sum(),
+                        "totalMs", entry.getValue().totalNanos.sum() / 1_000_000.0,
+                        "maxMs", entry.getValue().maxNanos / 1_000_000.0,
+                        "stackTrace", entry.getValue().stackTrace
+                ))
+                .toList();
+        List<Map<String, Object>> recentEvents;
+        synchronized (recent) {
+            recentEvents = List.copyOf(recent);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", stream != null);
+        result.put("threshold", threshold.toString());
+        result.put("pinnedEvents", pinnedEvents.sum());
+        result.put("submitFailures", submitFailures.sum());
+        result.put("sites", bySite);
+        result.put("recent", recentEvents);
+        return result;
+    }
+
+    /**
+     * JFR 开始录制时可能长时间阻塞（如在 AOT/CDS 启动下），放到后台线程，不拖住容器刷新
+     */
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        Thread.ofPlatform().daemon().name("pinning-monitor-start").start(this::openStream);
+    }
+
+    private void openStream() {
+        try {
+            RecordingStream recording = new RecordingStream();
+            recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+            recording.enable(SUBMIT_FAILED_EVENT);
+            recording.onEvent(PINNED_EVENT, this::onPinned);
+            recording.onEvent(SUBMIT_FAILED_EVENT, event -> submitFailures.increment());
+            recording.startAsync();
+            stream = recording;
+            // 启动期间容器已关闭，则立即释放
+            if (!running) {
+                stop();
+                return;
+            }
+            log.info("虚拟线程钉住诊断已启动，阈值 {}", threshold);
+        } catch (RuntimeException e) {
+            log.warn("无法启动 JFR 事件流，钉住诊断不可用：{}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        RecordingStream recording = stream;
+        stream = null;
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedEvents.increment();
+        long durationNanos = event.getDuration().toNanos();
+        List<String> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames().stream()
+                .limit(STACK_DEPTH)
+                .map(VirtualThreadPinningMonitor::describe)
+                .toList();
+        // 优先取应用代码的栈帧，其次取第一个非 JDK 栈帧（通常是持锁的第三方库）
+        String site = frames.stream()
+                .filter(frame -> frame.startsWith(applicationPackage))
+                .findFirst()
+                .or(() -> frames.stream().filter(frame -> !frame.startsWith("java.") && !frame.startsWith("jdk.")).findFirst())
+                .orElse(frames.isEmpty() ? "unknown" : frames.get(0));
+
+        Site aggregate = sites.computeIfAbsent(site, key -> new Site(frames));
+        aggregate.record(durationNanos);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("time", Instant.ofEpochMilli(event.getStartTime().toEpochMilli()).toString());
+        summary.put("durationMs", durationNanos / 1_000_000.0);
+        summary.put("threadId", event.getThread() != null ? event.getThread().getJavaThreadId() : null);
+        summary.put("site", site);
+        synchronized (recent) {
+            recent.addFirst(summary);
+            while (recent.size() > RECENT_EVENTS) {
+                recent.removeLast();
+            }
+        }
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + (frame.isJavaFrame() ? ":" + frame.getLineNumber() : " (native)");
+    }
+
+    /**
+     * 单个钉住位置的累计统计
+     */
+    private static final class Site {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final List<String> stackTrace;
+        private volatile long maxNanos;
+
+        Site(List<String> stackTrace) {
+            this.stackTrace = stackTrace;
+        }
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+        }
+    }
+}
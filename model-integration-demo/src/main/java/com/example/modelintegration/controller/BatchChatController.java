@@ -0,0 +1,87 @@
+package com.example.modelintegration.controller;
+
+import com.example.modelintegration.service.BatchChatService;
+import com.example.modelintegration.service.BatchChatService.BatchItem;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量对话接口：请求体为 JSON 数组或 NDJSON（每行一条），结果以 NDJSON 逐条返回
+ * 每条可以是字符串，或 {"id": "...", "message": "..."}；格式错误的条目单独报错，不影响其他条目
+ */
+@RestController
+@RequestMapping("/api/chat")
+public class BatchChatController {
+
+    private final BatchChatService batchChatService;
+    private final ObjectMapper objectMapper;
+
+    public BatchChatController(BatchChatService batchChatService, ObjectMapper objectMapper) {
+        this.batchChatService = batchChatService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 批量对话 - JSON 数组
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> batchJson(@RequestBody JsonNode body,
+                                               @RequestParam(required = false) Integer parallelism,
+                                               @RequestParam(required = false) Long maxTokens) {
+        if (!body.isArray()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "请求体应为 JSON 数组");
+        }
+        List<BatchItem> items = new ArrayList<>();
+        body.forEach(node -> items.add(toItem(node)));
+        return run(items, parallelism, maxTokens);
+    }
+
+    /**
+     * 批量对话 - NDJSON 上传
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> batchNdjson(@RequestBody String body,
+                                                 @RequestParam(required = false) Integer parallelism,
+                                                 @RequestParam(required = false) Long maxTokens) {
+        List<BatchItem> items = new ArrayList<>();
+        body.lines()
+                .filter(line -> !line.isBlank())
+                .forEach(line -> {
+                    try {
+                        items.add(toItem(objectMapper.readTree(line)));
+                    } catch (JsonProcessingException e) {
+                        items.add(new BatchItem(null, null));
+                    }
+                });
+        return run(items, parallelism, maxTokens);
+    }
+
+    private Flux<Map<String, Object>> run(List<BatchItem> items, Integer parallelism, Long maxTokens) {
+        if (items.size() > batchChatService.getMaxItems()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "单批最多 " + batchChatService.getMaxItems() + " 条，实际 " + items.size() + " 条");
+        }
+        return batchChatService.run(items, parallelism, maxTokens);
+    }
+
+    private static BatchItem toItem(JsonNode node) {
+        if (node.isTextual()) {
+            return new BatchItem(null, node.asText());
+        }
+        return new BatchItem(
+                node.hasNonNull("id") ? node.get("id").asText() : null,
+                node.hasNonNull("message") ? node.get("message").asText() : null);
+    }
+}
@@ -1,24 +1,51 @@
 package com.example.modelintegration.controller;
 
 import com.example.modelintegration.config.ChatClientFactory;
+import com.example.modelintegration.config.SystemPrompts;
+import com.example.modelintegration.service.ChatMetrics;
+import com.example.modelintegration.service.CodeAnalysisPipeline;
+import com.example.modelintegration.service.PromptBudgetAdvisor;
+import com.example.modelintegration.service.ResponseCacheAdvisor;
+import com.example.modelintegration.service.TokenEstimator;
+import com.example.modelintegration.service.TokenRateLimitAdvisor;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RestController
 @RequestMapping("/api/chat")
 public class ChatModelController {
 
-    private final ChatClient primaryChatClient;
-    private final ChatClient codeChatClient;
-    private final ChatClient creativeChatClient;
+    private final ChatClientFactory clientFactory;
+    private final ResponseCacheAdvisor responseCache;
+    private final TokenRateLimitAdvisor rateLimiter;
+    private final ChatMetrics chatMetrics;
+    private final CodeAnalysisPipeline codeAnalysis;
+    private final TokenEstimator tokenEstimator;
+    private final PromptBudgetAdvisor promptBudget;
 
-    public ChatModelController(ChatClientFactory factory) {
-        this.primaryChatClient = factory.getPrimaryChatClient();
-        this.codeChatClient = factory.getCodeChatClient();
-        this.creativeChatClient = factory.getCreativeChatClient();
+    public ChatModelController(ChatClientFactory factory, ResponseCacheAdvisor responseCache,
+                               TokenRateLimitAdvisor rateLimiter, ChatMetrics chatMetrics,
+                               CodeAnalysisPipeline codeAnalysis, TokenEstimator tokenEstimator,
+                               PromptBudgetAdvisor promptBudget) {
+        this.clientFactory = factory;
+        this.responseCache = responseCache;
+        this.rateLimiter = rateLimiter;
+        this.chatMetrics = chatMetrics;
+        this.codeAnalysis = codeAnalysis;
+        this.tokenEstimator = tokenEstimator;
+        this.promptBudget = promptBudget;
     }
 
     /**
@@ -28,51 +55,64 @@ public class ChatModelController {
     public Map<String, Object> basicChat(@RequestBody Map<String, String> request) {
         String message = request.get("message");
 
-        ChatResponse response = primaryChatClient.prompt()
+        ChatClientResponse clientResponse = clientFactory.getPrimaryChatClient().prompt()
+                .advisors(a -> a.advisors(responseCache).param(ResponseCacheAdvisor.ROUTE, "basic"))
                 .user(message)
                 .call()
-                .chatResponse();
+                .chatClientResponse();
+        ChatResponse response = clientResponse.chatResponse();
 
         return Map.of(
                 "response", response.getResult().getOutput().getText(),
                 "model", response.getMetadata().getModel(),
                 "usage", response.getMetadata().getUsage(),
+                "cache", clientResponse.context().get(ResponseCacheAdvisor.RESULT),
                 "timestamp", System.currentTimeMillis()
         );
     }
 
     /**
      * 代码分析专用接口
+     * 超过一个分块的代码走 map-reduce：分块并发分析后合并，耗时接近几次小调用而不是一次超长调用
      */
     @PostMapping("/code-analysis")
     public Map<String, Object> analyzeCode(@RequestBody Map<String, String> request) {
         String code = request.get("code");
         String question = request.get("question");
 
-        String prompt = String.format("""
-                请分析以下代码：
-                
-                ```
-                %s
-                ```
-                
-                问题：%s
-                
-                请提供详细的分析和建议。
-                """, code, question);
+        if (codeAnalysis.split(code).size() > 1) {
+            Map<String, Object> result = codeAnalysis.analyze(code, question)
+                    .filter(event -> "result".equals(event.get("type")))
+                    .blockLast();
+            return Map.of(
+                    "analysis", result.get("analysis"),
+                    "model", String.valueOf(result.get("model")),
+                    "usage", result.get("usage"),
+                    "codeLength", code.length(),
+                    "chunks", result.get("chunks"),
+                    "failedChunks", result.get("failedChunks"),
+                    "timestamp", System.currentTimeMillis()
+            );
+        }
+
+        String prompt = codeAnalysisPrompt(code, question);
 
-        ChatResponse response = codeChatClient.prompt()
+        ChatClientResponse clientResponse = clientFactory.getCodeChatClient().prompt()
+                .advisors(a -> a.advisors(responseCache).param(ResponseCacheAdvisor.ROUTE, "code-analysis"))
                 .user(prompt)
                 .call()
-                .chatResponse();
+                .chatClientResponse();
+        ChatResponse response = clientResponse.chatResponse();
 
-        return Map.of(
-                "analysis", response.getResult().getOutput().getText(),
-                "model", response.getMetadata().getModel(),
-                "usage", response.getMetadata().getUsage(),
-                "codeLength", code.length(),
-                "timestamp", System.currentTimeMillis()
-        );
+        // 关闭 app.prompt-budget.enabled 时上下文里没有预算结果，Map.of 不接受 null
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("analysis", response.getResult().getOutput().getText());
+        result.put("model", response.getMetadata().getModel());
+        result.put("usage", response.getMetadata().getUsage());
+        result.put("codeLength", code.length());
+        result.put("promptBudget", clientResponse.context().get(PromptBudgetAdvisor.RESULT));
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
     }
 
     /**
@@ -83,15 +123,14 @@ public class ChatModelController {
         String topic = request.get("topic");
         String style = request.getOrDefault("style", "随意");
 
-        String prompt = String.format("""
-                请以'%s'风格，围绕'%s'这个主题进行创作。
-                可以是诗歌、小故事、散文或其他创意形式。
-                """, style, topic);
+        String prompt = SystemPrompts.creativeWriting(topic, style);
 
-        ChatResponse response = creativeChatClient.prompt()
+        ChatClientResponse clientResponse = clientFactory.getCreativeChatClient().prompt()
+                .advisors(a -> a.advisors(responseCache).param(ResponseCacheAdvisor.ROUTE, "creative-writing"))
                 .user(prompt)
                 .call()
-                .chatResponse();
+                .chatClientResponse();
+        ChatResponse response = clientResponse.chatResponse();
 
         return Map.of(
                 "content", response.getResult().getOutput().getText(),
@@ -99,6 +138,148 @@ public class ChatModelController {
                 "style", style,
                 "model", response.getMetadata().getModel(),
                 "usage", response.getMetadata().getUsage(),
+                "cache", clientResponse.context().get(ResponseCacheAdvisor.RESULT),
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
+    /**
+     * 基础对话 - 流式返回（SSE）
+     */
+    @PostMapping(value = "/basic/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Map<String, Object>>> basicChatStream(@RequestBody Map<String, String> request) {
+        return toServerSentEvents(streamChunks(clientFactory.getPrimaryChatClient(), "basic",
+                request.get("message")));
+    }
+
+    /**
+     * 基础对话 - 流式返回（NDJSON，每行一个分片）
+     */
+    @PostMapping(value = "/basic/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> basicChatNdjson(@RequestBody Map<String, String> request) {
+        return streamChunks(clientFactory.getPrimaryChatClient(), "basic", request.get("message"));
+    }
+
+    /**
+     * 代码分析 - 流式返回（SSE）
+     */
+    @PostMapping(value = "/code-analysis/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Map<String, Object>>> analyzeCodeStream(@RequestBody Map<String, String> request) {
+        return toServerSentEvents(streamChunks(clientFactory.getCodeChatClient(), "code-analysis",
+                codeAnalysisPrompt(request.get("code"), request.get("question"))));
+    }
+
+    /**
+     * 代码分析 - 流式返回（NDJSON）
+     */
+    @PostMapping(value = "/code-analysis/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> analyzeCodeNdjson(@RequestBody Map<String, String> request) {
+        return streamChunks(clientFactory.getCodeChatClient(), "code-analysis",
+                codeAnalysisPrompt(request.get("code"), request.get("question")));
+    }
+
+    /**
+     * 大段代码分析 - 分块结果随完成随推送（SSE），事件依次为 plan、chunk（每块一条）、result
+     */
+    @PostMapping(value = "/code-analysis/map-reduce", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Map<String, Object>>> analyzeCodeMapReduce(@RequestBody Map<String, String> request) {
+        return toServerSentEvents(codeAnalysis.analyze(request.get("code"), request.get("question")));
+    }
+
+    /**
+     * 大段代码分析 - 分块结果随完成随推送（NDJSON）
+     */
+    @PostMapping(value = "/code-analysis/map-reduce", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> analyzeCodeMapReduceNdjson(@RequestBody Map<String, String> request) {
+        return codeAnalysis.analyze(request.get("code"), request.get("question"));
+    }
+
+    /**
+     * 创意写作 - 流式返回（SSE）
+     */
+    @PostMapping(value = "/creative-writing/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Map<String, Object>>> creativeWritingStream(@RequestBody Map<String, String> request) {
+        return toServerSentEvents(streamChunks(clientFactory.getCreativeChatClient(), "creative-writing",
+                SystemPrompts.creativeWriting(request.get("topic"), request.getOrDefault("style", "随意"))));
+    }
+
+    /**
+     * 创意写作 - 流式返回（NDJSON）
+     */
+    @PostMapping(value = "/creative-writing/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> creativeWritingNdjson(@RequestBody Map<String, String> request) {
+        return streamChunks(clientFactory.getCreativeChatClient(), "creative-writing",
+                SystemPrompts.creativeWriting(request.get("topic"), request.getOrDefault("style", "随意")));
+    }
+
+    /**
+     * 模型调用指标汇总（完整的分位数直方图见 /actuator/prometheus）
+     */
+    @GetMapping("/metrics")
+    public Map<String, Object> metrics() {
+        return Map.of(
+                "metrics", chatMetrics.getMetrics(),
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
+    /**
+     * 本地估算一段文本的 token 数（不调用模型），可按路由查看校准后的估算值与预算
+     */
+    @PostMapping("/tokens/count")
+    public Map<String, Object> countTokens(@RequestBody Map<String, String> request) {
+        String route = request.getOrDefault("route", "default");
+        int tokens = tokenEstimator.count(request.get("text"));
+        return Map.of(
+                "route", route,
+                "tokens", tokens,
+                "estimatedTokens", tokenEstimator.estimate(route, tokens),
+                "budget", promptBudget.maxPromptTokens(route),
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
+    /**
+     * token 估算的校准状态：各路由的校准系数与估算误差
+     */
+    @GetMapping("/tokens/stats")
+    public Map<String, Object> tokenStats() {
+        return Map.of(
+                "estimator", tokenEstimator.getStats(),
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
+    /**
+     * 当前调用方的 token 配额
+     */
+    @GetMapping("/quota")
+    public Map<String, Object> quota(HttpServletRequest request) {
+        return Map.of(
+                "quota", rateLimiter.quota(rateLimiter.clientId(request)),
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
+    /**
+     * 响应缓存统计：各路由命中率与节省的 token 数
+     */
+    @GetMapping("/cache/stats")
+    public Map<String, Object> cacheStats() {
+        return Map.of(
+                "routes", responseCache.getStats(),
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
+    /**
+     * 清空响应缓存
+     */
+    @DeleteMapping("/cache")
+    public Map<String, Object> clearCache() {
+        responseCache.clear();
+        return Map.of(
+                "status", "cleared",
                 "timestamp", System.currentTimeMillis()
         );
     }
@@ -114,4 +295,81 @@ public class ChatModelController {
                 "timestamp", System.currentTimeMillis()
         );
     }
-} 
\ No newline at end of file
+
+    /**
+     * 流式调用：每个非空分片输出一条 token，结束时追加一条带 usage 的 done
+     * Spring MVC 按写出进度逐个请求分片（背压）；客户端断开时取消订阅，取消会一直传递到供应商连接
+     */
+    private Flux<Map<String, Object>> streamChunks(ChatClient client, String route, String prompt) {
+        return Flux.defer(() -> {
+            long startTime = System.currentTimeMillis();
+            AtomicInteger chunks = new AtomicInteger();
+            AtomicReference<String> model = new AtomicReference<>();
+            AtomicReference<Usage> usage = new AtomicReference<>();
+            AtomicReference<String> finishReason = new AtomicReference<>();
+
+            Flux<Map<String, Object>> tokens = client.prompt()
+                    .advisors(a -> a.param(ResponseCacheAdvisor.ROUTE, route))
+                    .user(prompt)
+                    .stream()
+                    .chatResponse()
+                    .doOnNext(response -> {
+                        if (response.getMetadata() != null) {
+                            if (response.getMetadata().getModel() != null && !response.getMetadata().getModel().isEmpty()) {
+                                model.set(response.getMetadata().getModel());
+                            }
+                            Usage chunkUsage = response.getMetadata().getUsage();
+                            if (chunkUsage != null && chunkUsage.getTotalTokens() != null && chunkUsage.getTotalTokens() > 0) {
+                                usage.set(chunkUsage);
+                            }
+                        }
+                        if (response.getResult() != null && response.getResult().getMetadata() != null
+                                && response.getResult().getMetadata().getFinishReason() != null) {
+                            finishReason.set(response.getResult().getMetadata().getFinishReason());
+                        }
+                    })
+                    .filter(response -> response.getResult() != null
+                            && response.getResult().getOutput().getText() != null
+                            && !response.getResult().getOutput().getText().isEmpty())
+                    .map(response -> Map.<String, Object>of(
+                            "type", "token",
+                            "index", chunks.getAndIncrement(),
+                            "content", response.getResult().getOutput().getText()
+                    ));
+
+            Flux<Map<String, Object>> done = Flux.defer(() -> {
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("type", "done");
+                summary.put("model", model.get());
+                summary.put("usage", usage.get());
+                summary.put("finishReason", finishReason.get());
+                summary.put("chunks", chunks.get());
+                summary.put("duration", System.currentTimeMillis() - startTime);
+                summary.put("timestamp", System.currentTimeMillis());
+                return Flux.just(summary);
+            });
+
+            return tokens.concatWith(done);
+        });
+    }
+
+    private static Flux<ServerSentEvent<Map<String, Object>>> toServerSentEvents(Flux<Map<String, Object>> chunks) {
+        return chunks.map(chunk -> ServerSentEvent.builder(chunk)
+                .event(String.valueOf(chunk.get("type")))
+                .build());
+    }
+
+    private static String codeAnalysisPrompt(String code, String question) {
+        return String.format("""
+                请分析以下代码：
+                
+                ```
+                %s
+                ```
+                
+                问题：%s
+                
+                请提供详细的分析和建议。
+                """, code, question);
+    }
+}
@@ -1,15 +1,30 @@
 package com.example.modelintegration.controller;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 
+import com.example.modelintegration.config.EmbeddingCodec;
 import com.example.modelintegration.config.EmbeddingService;
+import com.example.modelintegration.config.EmbeddingStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/embedding")
@@ -17,9 +32,15 @@ import org.springframework.web.bind.annotation.RestController;
 public class EmbeddingModelController {
 
     private final EmbeddingService embeddingService;
+    private final ObjectMapper objectMapper;
+    private final Path storeDirectory;
 
-    public EmbeddingModelController(EmbeddingService embeddingService) {
+    public EmbeddingModelController(EmbeddingService embeddingService,
+                                    ObjectMapper objectMapper,
+                                    @Value("${app.embedding.store.directory:./embedding-store/}") String storeDirectory) {
         this.embeddingService = embeddingService;
+        this.objectMapper = objectMapper;
+        this.storeDirectory = Paths.get(storeDirectory);
     }
 
     /**
@@ -56,6 +77,82 @@ public class EmbeddingModelController {
         );
     }
 
+    /**
+     * 单个文本嵌入 - 二进制编码（Accept: application/octet-stream）
+     * 响应体为小端序 float32（或 encoding=float16）原始数据，维度信息放在响应头中
+     */
+    @PostMapping(value = "/embed", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> embedTextBinary(@RequestBody Map<String, String> request,
+                                                  @RequestParam(defaultValue = EmbeddingCodec.FLOAT32) String encoding) {
+        String resolved = EmbeddingCodec.resolve(encoding);
+        float[] embedding = embeddingService.embed(request.get("text"));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header("X-Embedding-Encoding", resolved)
+                .header("X-Embedding-Dimensions", String.valueOf(embedding.length))
+                .header("X-Embedding-Count", "1")
+                .body(EmbeddingCodec.encode(embedding, resolved));
+    }
+
+    /**
+     * 批量文本嵌入 - 二进制编码（Accept: application/octet-stream）
+     * 按输入顺序连续写出 count * dimensions 个分量，直接写入响应流
+     */
+    @PostMapping(value = "/embed-batch", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> embedBatchBinary(@RequestBody Map<String, List<String>> request,
+                                                                  @RequestParam(defaultValue = EmbeddingCodec.FLOAT32) String encoding) {
+        String resolved = EmbeddingCodec.resolve(encoding);
+        List<float[]> embeddings = embeddingService.embedAll(request.get("texts"));
+        int dimensions = embeddings.isEmpty() ? 0 : embeddings.get(0).length;
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength((long) embeddings.size() * dimensions * EmbeddingCodec.bytesPerValue(resolved))
+                .header("X-Embedding-Encoding", resolved)
+                .header("X-Embedding-Dimensions", String.valueOf(dimensions))
+                .header("X-Embedding-Count", String.valueOf(embeddings.size()))
+                .body(out -> EmbeddingCodec.write(embeddings, resolved, out));
+    }
+
+    /**
+     * 批量文本嵌入 - NDJSON 流（Accept: application/x-ndjson）
+     * 每行一个 {"index","text","embedding"} 对象；每个分块嵌入完成即写出并刷新对应的行，
+     * 行按分块完成先后排列，用 index 对应输入位置
+     */
+    @PostMapping(value = "/embed-batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> embedBatchNdjson(@RequestBody Map<String, List<String>> request) {
+        List<String> texts = request.get("texts");
+
+        StreamingResponseBody body = out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            StringBuilder line = new StringBuilder();
+            try {
+                embeddingService.embedEach(texts, chunk -> {
+                    try {
+                        for (Map.Entry<Integer, float[]> entry : chunk.entrySet()) {
+                            line.setLength(0);
+                            line.append("{\"index\":").append(entry.getKey())
+                                    .append(",\"text\":").append(objectMapper.writeValueAsString(texts.get(entry.getKey())))
+                                    .append(",\"embedding\":");
+                            EmbeddingCodec.appendJsonArray(line, entry.getValue()).append("}\n");
+                            writer.write(line.toString());
+                        }
+                        writer.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     /**
      * 文本相似度计算
      */
@@ -75,6 +172,67 @@ public class EmbeddingModelController {
         );
     }
 
+    /**
+     * 批量嵌入并持久化到内存映射存储文件
+     */
+    @PostMapping("/store")
+    public Map<String, Object> saveToStore(@RequestBody Map<String, Object> request) {
+        String name = (String) request.get("name");
+        @SuppressWarnings("unchecked")
+        List<String> texts = (List<String>) request.get("texts");
+        boolean normalize = !Boolean.FALSE.equals(request.get("normalize"));
+
+        if (!isValidStoreName(name) || texts == null || texts.isEmpty()) {
+            return Map.of(
+                    "error", "name 和 texts 不能为空，name 只能包含字母、数字、下划线和短横线",
+                    "status", "failed"
+            );
+        }
+
+        long startTime = System.currentTimeMillis();
+        EmbeddingStore store = embeddingService.saveBatch(texts, storePath(name), normalize);
+        long duration = System.currentTimeMillis() - startTime;
+
+        return Map.of(
+                "name", name,
+                "model", store.getModel(),
+                "dimensions", store.getDimensions(),
+                "count", store.getCount(),
+                "normalized", store.isNormalized(),
+                "duration", duration,
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
+    /**
+     * 在已持久化的向量存储中做相似度检索
+     */
+    @PostMapping("/store/search")
+    public Map<String, Object> searchStore(@RequestBody Map<String, Object> request) {
+        String name = (String) request.get("name");
+        String query = (String) request.get("query");
+        int topK = request.get("topK") instanceof Number n ? n.intValue() : 5;
+
+        if (!isValidStoreName(name) || query == null || query.isBlank()) {
+            return Map.of(
+                    "error", "name 和 query 不能为空",
+                    "status", "failed"
+            );
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<EmbeddingStore.Match> matches = embeddingService.searchStore(storePath(name), query, topK);
+        long duration = System.currentTimeMillis() - startTime;
+
+        return Map.of(
+                "name", name,
+                "query", query,
+                "matches", matches,
+                "duration", duration,
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
     /**
      * 健康检查
      */
@@ -86,4 +244,12 @@ public class EmbeddingModelController {
                 "timestamp", System.currentTimeMillis()
         );
     }
-} 
\ No newline at end of file
+
+    private Path storePath(String name) {
+        return storeDirectory.resolve(name + ".emb");
+    }
+
+    private boolean isValidStoreName(String name) {
+        return name != null && name.matches("[A-Za-z0-9_-]{1,64}");
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.modelintegration.controller;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+import com.example.modelintegration.service.AsyncJob;
+import com.example.modelintegration.service.AsyncJobService;
+import com.example.modelintegration.service.TokenRateLimitAdvisor;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 异步任务接口：提交后返回 202 与任务 ID，通过轮询或 SSE 订阅获取进度和结果
+ * 支持的类型：creative-writing（请求体同 /api/chat/creative-writing）、
+ * temperature-test 与 parameter-comparison（请求体同 /api/tuning 下的对应接口）
+ */
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private final AsyncJobService jobService;
+    private final TokenRateLimitAdvisor rateLimitAdvisor;
+    private final long eventsTimeoutMs;
+
+    public JobController(AsyncJobService jobService,
+                         TokenRateLimitAdvisor rateLimitAdvisor,
+                         @Value("${app.jobs.events-timeout:10m}") Duration eventsTimeout) {
+        this.jobService = jobService;
+        this.rateLimitAdvisor = rateLimitAdvisor;
+        this.eventsTimeoutMs = eventsTimeout.toMillis();
+    }
+
+    /**
+     * 提交任务
+     */
+    @PostMapping("/{type}")
+    public ResponseEntity<Map<String, Object>> submit(@PathVariable String type,
+                                                      @RequestBody Map<String, String> request,
+                                                      HttpServletRequest httpRequest) {
+        AsyncJob job;
+        try {
+            job = jobService.submit(type, request, rateLimitAdvisor.clientId(httpRequest));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/jobs/" + job.id()))
+                .body(Map.of(
+                        "jobId", job.id(),
+                        "type", job.type(),
+                        "status", job.status(),
+                        "statusUrl", "/api/jobs/" + job.id(),
+                        "eventsUrl", "/api/jobs/" + job.id() + "/events",
+                        "timestamp", System.currentTimeMillis()
+                ));
+    }
+
+    /**
+     * 查询任务状态与结果
+     */
+    @GetMapping("/{id}")
+    public Map<String, Object> get(@PathVariable String id) {
+        return jobService.view(find(id));
+    }
+
+    /**
+     * 订阅任务事件（SSE）：先推送当前状态，之后每次状态变化推送 status，参数扫描每完成一个配置推送 result；任务结束后关闭
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable String id) {
+        find(id);
+        SseEmitter emitter = new SseEmitter(eventsTimeoutMs);
+
+        // 先订阅再取快照，避免两者之间结束的任务漏掉最后一条事件
+        Runnable unsubscribe = jobService.subscribe(id, (event, data) -> {
+            sendQuietly(emitter, event, data);
+            if ("status".equals(event) && ((AsyncJob.Status) data.get("status")).isTerminal()) {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+
+        AsyncJob snapshot = find(id);
+        sendQuietly(emitter, "status", jobService.view(snapshot));
+        if (snapshot.status().isTerminal()) {
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    /**
+     * 取消任务
+     */
+    @DeleteMapping("/{id}")
+    public Map<String, Object> cancel(@PathVariable String id) {
+        AsyncJob job = jobService.cancel(id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "任务不存在或已过期：" + id);
+        }
+        return jobService.view(job);
+    }
+
+    /**
+     * 任务队列统计
+     */
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        return jobService.getStats();
+    }
+
+    private AsyncJob find(String id) {
+        AsyncJob job = jobService.get(id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "任务不存在或已过期：" + id);
+        }
+        return job;
+    }
+
+    private void sendQuietly(SseEmitter emitter, String event, Map<String, Object> data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开，任务继续在后台执行
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.modelintegration.controller;
+
+import com.example.modelintegration.config.ModelOverloadedException;
+import com.example.modelintegration.service.PromptTooLargeException;
+import com.example.modelintegration.service.RateLimitExceededException;
+import com.example.modelintegration.service.TokenRateLimitAdvisor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * 过载拒绝统一返回 503、配额不足返回 429，均附带 Retry-After，调用方可据此快速退避；
+ * prompt 超出预算返回 413，重试无意义，需要调用方缩减输入
+ */
+@RestControllerAdvice
+public class ModelOverloadHandler {
+
+    @ExceptionHandler(ModelOverloadedException.class)
+    public ResponseEntity<Map<String, Object>> handleOverload(ModelOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of(
+                        "error", e.getMessage(),
+                        "reason", e.getReason(),
+                        "retryAfterSeconds", e.getRetryAfterSeconds(),
+                        "timestamp", System.currentTimeMillis()
+                ));
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<Map<String, Object>> handleRateLimit(RateLimitExceededException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .header(TokenRateLimitAdvisor.HEADER_LIMIT, String.valueOf(e.getLimit()))
+                .header(TokenRateLimitAdvisor.HEADER_REMAINING, String.valueOf(e.getRemaining()))
+                .body(Map.of(
+                        "error", e.getMessage(),
+                        "clientId", e.getClientId(),
+                        "retryAfterSeconds", e.getRetryAfterSeconds(),
+                        "timestamp", System.currentTimeMillis()
+                ));
+    }
+
+    @ExceptionHandler(PromptTooLargeException.class)
+    public ResponseEntity<Map<String, Object>> handlePromptTooLarge(PromptTooLargeException e) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body(Map.of(
+                        "error", e.getMessage(),
+                        "route", e.getRoute(),
+                        "estimatedTokens", e.getEstimatedTokens(),
+                        "budget", e.getBudget(),
+                        "timestamp", System.currentTimeMillis()
+                ));
+    }
+}
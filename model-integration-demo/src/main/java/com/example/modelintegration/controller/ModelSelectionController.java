@@ -1,8 +1,15 @@
 package com.example.modelintegration.controller;
 
+import com.example.modelintegration.config.ChatClientFactory;
+import com.example.modelintegration.config.GuardedChatModel;
+import com.example.modelintegration.config.PooledHttpTransport;
+import com.example.modelintegration.config.RoutingChatModel;
 import com.example.modelintegration.service.ModelSelectionService;
+import com.example.modelintegration.service.TaskKeywordRouter;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -10,9 +17,16 @@ import java.util.Map;
 public class ModelSelectionController {
 
     private final ModelSelectionService modelService;
+    private final TaskKeywordRouter keywordRouter;
+    private final ChatClientFactory clientFactory;
+    private final PooledHttpTransport httpTransport;
 
-    public ModelSelectionController(ModelSelectionService modelService) {
+    public ModelSelectionController(ModelSelectionService modelService, TaskKeywordRouter keywordRouter,
+                                    ChatClientFactory clientFactory, PooledHttpTransport httpTransport) {
         this.modelService = modelService;
+        this.keywordRouter = keywordRouter;
+        this.clientFactory = clientFactory;
+        this.httpTransport = httpTransport;
     }
 
     /**
@@ -47,6 +61,60 @@ public class ModelSelectionController {
         return modelService.getAvailableModels();
     }
 
+    /**
+     * 重新加载任务关键词表
+     */
+    @PostMapping("/keywords/reload")
+    public Map<String, Object> reloadKeywords() {
+        return Map.of(
+                "keywords", keywordRouter.reload(),
+                "status", "reloaded",
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
+    /**
+     * 多供应商路由统计：EWMA 延迟、p95、错误率与对冲次数
+     */
+    @GetMapping("/providers")
+    public Map<String, Object> providers() {
+        ChatModel chatModel = clientFactory.getChatModel();
+        if (chatModel instanceof GuardedChatModel guardedChatModel) {
+            chatModel = guardedChatModel.getDelegate();
+        }
+        if (chatModel instanceof RoutingChatModel routingChatModel) {
+            return Map.of(
+                    "routing", true,
+                    "providers", routingChatModel.snapshot(),
+                    "transport", httpTransport.snapshot(),
+                    "timestamp", System.currentTimeMillis()
+            );
+        }
+        return Map.of(
+                "routing", false,
+                "provider", clientFactory.getProviderName(),
+                "transport", httpTransport.snapshot(),
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
+    /**
+     * 优先级调度统计：当前并发上限、在途数，以及各类别的排队深度、平均等待与 SLO 违约
+     */
+    @GetMapping("/scheduler")
+    public Map<String, Object> scheduler() {
+        if (!(clientFactory.getChatModel() instanceof GuardedChatModel guardedChatModel)) {
+            return Map.of(
+                    "enabled", false,
+                    "timestamp", System.currentTimeMillis()
+            );
+        }
+        Map<String, Object> snapshot = new LinkedHashMap<>(guardedChatModel.getScheduler().snapshot());
+        snapshot.put("enabled", true);
+        snapshot.put("timestamp", System.currentTimeMillis());
+        return snapshot;
+    }
+
     /**
      * 健康检查
      */
@@ -1,24 +1,45 @@
 package com.example.modelintegration.controller;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
+import com.example.modelintegration.service.ParameterTuner;
 import com.example.modelintegration.service.ParameterTuningService;
+import com.example.modelintegration.service.TuningRunStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/tuning")
 public class ParameterTuningController {
 
     private final ParameterTuningService tuningService;
+    private final ParameterTuner tuner;
+    private final TuningRunStore runStore;
+    private final long streamTimeoutMs;
 
-    public ParameterTuningController(ParameterTuningService tuningService) {
+    public ParameterTuningController(ParameterTuningService tuningService,
+                                     ParameterTuner tuner,
+                                     TuningRunStore runStore,
+                                     @Value("${app.tuning.sweep-deadline:60s}") Duration sweepDeadline) {
         this.tuningService = tuningService;
+        this.tuner = tuner;
+        this.runStore = runStore;
+        // 给最后一条结果和 complete 事件留出余量
+        this.streamTimeoutMs = sweepDeadline.toMillis() + 5_000;
     }
 
     /**
@@ -75,6 +96,24 @@ public class ParameterTuningController {
         );
     }
 
+    /**
+     * 测试不同 Temperature 的效果 - SSE 流式返回，每个配置完成即推送一条 result 事件
+     */
+    @PostMapping(value = "/temperature-test/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter testTemperatureStream(@RequestBody Map<String, String> request) {
+        String prompt = request.get("prompt");
+        return streamSweep(prompt, onResult -> tuningService.testTemperatureEffects(prompt, onResult).size());
+    }
+
+    /**
+     * 对比不同参数组合 - SSE 流式返回，每个配置完成即推送一条 result 事件
+     */
+    @PostMapping(value = "/parameter-comparison/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter compareParametersStream(@RequestBody Map<String, String> request) {
+        String prompt = request.get("prompt");
+        return streamSweep(prompt, onResult -> tuningService.compareParameterCombinations(prompt, onResult).size());
+    }
+
     /**
      * 获取参数调优建议
      */
@@ -83,6 +122,46 @@ public class ParameterTuningController {
         return tuningService.getParameterRecommendations(useCase);
     }
 
+    /**
+     * 自动调参：对指定用例执行网格 / 随机扫描，结果持久化并返回当前 Pareto 前沿
+     */
+    @PostMapping("/tune/{useCase}")
+    public Map<String, Object> tune(@PathVariable String useCase, @RequestBody TuneRequest request) {
+        if (request.prompts() == null || request.prompts().isEmpty()) {
+            return Map.of(
+                "error", "Prompts cannot be empty",
+                "status", "failed"
+            );
+        }
+
+        ParameterTuner.SearchSpace defaults = tuner.defaultSpace(useCase);
+        ParameterTuner.SearchSpace space = new ParameterTuner.SearchSpace(
+            request.temperatures() != null ? request.temperatures() : defaults.temperatures(),
+            request.topPs() != null ? request.topPs() : defaults.topPs(),
+            request.maxTokens() != null ? request.maxTokens() : defaults.maxTokens()
+        );
+
+        try {
+            return tuner.tune(useCase, request.prompts(), space, request.strategy(),
+                request.samples() != null ? request.samples() : 5);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取用例已测得的 延迟-质量 Pareto 前沿
+     */
+    @GetMapping("/pareto/{useCase}")
+    public Map<String, Object> getParetoFront(@PathVariable String useCase) {
+        return Map.of(
+            "useCase", useCase,
+            "paretoFront", runStore.paretoFront(useCase),
+            "totalTrials", runStore.load(useCase).size(),
+            "timestamp", System.currentTimeMillis()
+        );
+    }
+
     /**
      * 获取所有支持的用例类型
      */
@@ -115,4 +194,48 @@ public class ParameterTuningController {
             "timestamp", System.currentTimeMillis()
         );
     }
-} 
\ No newline at end of file
+
+    public record TuneRequest(List<String> prompts, String strategy, Integer samples,
+                              List<Double> temperatures, List<Double> topPs, List<Integer> maxTokens) {}
+
+    private SseEmitter streamSweep(String prompt, Function<BiConsumer<String, Map<String, Object>>, Integer> sweep) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+
+        if (prompt == null || prompt.trim().isEmpty()) {
+            sendQuietly(emitter, "error", Map.of("error", "Prompt cannot be empty", "status", "failed"));
+            emitter.complete();
+            return emitter;
+        }
+
+        Thread.ofVirtual().name("tuning-sweep-stream").start(() -> {
+            long startTime = System.currentTimeMillis();
+            try {
+                int total = sweep.apply((key, result) -> sendQuietly(emitter, "result", Map.of(
+                        "configuration", key,
+                        "result", result
+                )));
+                sendQuietly(emitter, "done", Map.of(
+                        "prompt", prompt,
+                        "totalTests", total,
+                        "durationMs", System.currentTimeMillis() - startTime,
+                        "timestamp", System.currentTimeMillis()
+                ));
+                emitter.complete();
+            } catch (RuntimeException e) {
+                // 扫描本身失败（而非单个配置失败）时立即结束流，不让客户端等到超时
+                sendQuietly(emitter, "error", Map.of("error", String.valueOf(e.getMessage()), "status", "failed"));
+                emitter.completeWithError(e);
+            }
+        });
+
+        return emitter;
+    }
+
+    private void sendQuietly(SseEmitter emitter, String event, Map<String, Object> data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开，剩余结果直接丢弃
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.modelintegration.service;
+
+import java.util.Map;
+
+/**
+ * 异步任务记录，以 JSON 形式持久化在 {@link JobStore} 中
+ */
+public record AsyncJob(
+        String id,
+        String type,
+        String clientId,
+        Map<String, String> request,
+        Status status,
+        int attempts,
+        Map<String, Object> result,
+        String error,
+        long createdAt,
+        Long startedAt,
+        Long finishedAt) {
+
+    public enum Status {
+        PENDING, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isTerminal() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    public AsyncJob started() {
+        return new AsyncJob(id, type, clientId, request, Status.RUNNING, attempts + 1, null, null,
+                createdAt, System.currentTimeMillis(), null);
+    }
+
+    /**
+     * 重新排队（重启时未完成的任务、或被过载拒绝后稍后重试）
+     */
+    public AsyncJob requeued() {
+        return new AsyncJob(id, type, clientId, request, Status.PENDING, attempts, null, null,
+                createdAt, null, null);
+    }
+
+    public AsyncJob finished(Status status, Map<String, Object> result, String error) {
+        return new AsyncJob(id, type, clientId, request, status, attempts, result, error,
+                createdAt, startedAt, System.currentTimeMillis());
+    }
+}
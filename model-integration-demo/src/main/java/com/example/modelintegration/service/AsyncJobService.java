@@ -0,0 +1,331 @@
+package com.example.modelintegration.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+
+import com.example.modelintegration.config.CallPriority;
+import com.example.modelintegration.config.ChatClientFactory;
+import com.example.modelintegration.config.ModelOverloadedException;
+import com.example.modelintegration.config.SystemPrompts;
+import com.example.modelintegration.service.AsyncJob.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * 异步任务
+ * 创意写作与参数扫描耗时可达数十秒，提交后立即返回任务 ID，由后台虚拟线程执行，同时运行的任务数受 max-concurrency 限制。
+ * 每次状态变化都落盘；启动时把上次未完成（排队中或运行中）的任务重新排队，超过 max-attempts 的标记为失败。
+ * 结果通过轮询或订阅事件获取，不再占用请求线程和客户端连接。
+ */
+@Service
+public class AsyncJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncJobService.class);
+
+    public static final Set<String> TYPES = Set.of("creative-writing", "temperature-test", "parameter-comparison");
+
+    private final JobStore store;
+    private final ChatClientFactory clientFactory;
+    private final ResponseCacheAdvisor responseCache;
+    private final ParameterTuningService tuningService;
+    private final MeterRegistry meterRegistry;
+    private final int maxPending;
+    private final int maxAttempts;
+    private final Duration maxRetryWait;
+    private final Semaphore workers;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("async-job-", 0).factory());
+    private final Map<String, Future<?>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Set<BiConsumer<String, Map<String, Object>>>> listeners = new ConcurrentHashMap<>();
+
+    public AsyncJobService(JobStore store,
+                           ChatClientFactory clientFactory,
+                           ResponseCacheAdvisor responseCache,
+                           ParameterTuningService tuningService,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.jobs.max-concurrency:4}") int maxConcurrency,
+                           @Value("${app.jobs.max-pending:100}") int maxPending,
+                           @Value("${app.jobs.max-attempts:3}") int maxAttempts,
+                           @Value("${app.jobs.max-retry-wait:30s}") Duration maxRetryWait) {
+        this.store = store;
+        this.clientFactory = clientFactory;
+        this.responseCache = responseCache;
+        this.tuningService = tuningService;
+        this.meterRegistry = meterRegistry;
+        this.maxPending = maxPending;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.maxRetryWait = maxRetryWait;
+        this.workers = new Semaphore(Math.max(1, maxConcurrency), true);
+
+        Gauge.builder("ai.jobs.pending", store, s -> s.count(Status.PENDING))
+                .description("Async jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("ai.jobs.running", store, s -> s.count(Status.RUNNING))
+                .description("Async jobs currently running")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 启动时恢复：清除过期记录，未完成的任务按提交顺序重新排队
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        List<AsyncJob> jobs = store.loadAll();
+        store.purgeExpired();
+        int requeued = 0;
+        for (AsyncJob job : jobs) {
+            if (job.status().isTerminal()) {
+                continue;
+            }
+            if (job.attempts() >= maxAttempts) {
+                store.save(job.finished(Status.FAILED, null, "重启后重试次数已用尽（" + job.attempts() + " 次）"));
+                continue;
+            }
+            store.save(job.requeued());
+            dispatch(job.id());
+            requeued++;
+        }
+        if (requeued > 0) {
+            log.info("重新排队 {} 个未完成的异步任务", requeued);
+        }
+    }
+
+    /**
+     * 提交任务；排队中的任务过多时以 503 拒绝
+     */
+    public AsyncJob submit(String type, Map<String, String> request, String clientId) {
+        if (!TYPES.contains(type)) {
+            throw new IllegalArgumentException("不支持的任务类型：" + type + "，可选 " + TYPES);
+        }
+        String required = "creative-writing".equals(type) ? "topic" : "prompt";
+        if (request.get(required) == null || request.get(required).isBlank()) {
+            throw new IllegalArgumentException("缺少 " + required);
+        }
+        if (store.count(Status.PENDING) >= maxPending) {
+            throw new ModelOverloadedException("async_queue_full", 5);
+        }
+
+        Map<String, String> parameters = new LinkedHashMap<>(request);
+        parameters.values().removeIf(Objects::isNull);
+        AsyncJob job = new AsyncJob(UUID.randomUUID().toString(), type, clientId, Map.copyOf(parameters),
+                Status.PENDING, 0, null, null, System.currentTimeMillis(), null, null);
+        store.save(job);
+        dispatch(job.id());
+        return job;
+    }
+
+    public AsyncJob get(String id) {
+        return store.find(id).orElse(null);
+    }
+
+    /**
+     * 取消排队中或运行中的任务（运行中的会被中断）；已结束的任务保持原状态
+     */
+    public AsyncJob cancel(String id) {
+        AsyncJob job = store.update(id, current -> current.status().isTerminal()
+                ? current
+                : current.finished(Status.CANCELLED, null, "已取消")).orElse(null);
+        if (job != null && job.status() == Status.CANCELLED) {
+            Future<?> future = inFlight.remove(id);
+            if (future != null) {
+                future.cancel(true);
+            }
+            publish(job);
+        }
+        return job;
+    }
+
+    /**
+     * 订阅任务事件：status（状态变化，携带完整视图）与 result（参数扫描中单个配置完成）
+     *
+     * @return 取消订阅
+     */
+    public Runnable subscribe(String id, BiConsumer<String, Map<String, Object>> listener) {
+        listeners.computeIfAbsent(id, key -> new CopyOnWriteArraySet<>()).add(listener);
+        return () -> listeners.computeIfPresent(id, (key, set) -> {
+            set.remove(listener);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    public Map<String, Object> view(AsyncJob job) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("jobId", job.id());
+        view.put("type", job.type());
+        view.put("status", job.status());
+        view.put("attempts", job.attempts());
+        view.put("createdAt", job.createdAt());
+        view.put("startedAt", job.startedAt());
+        view.put("finishedAt", job.finishedAt());
+        view.put("result", job.result());
+        view.put("error", job.error());
+        view.put("timestamp", System.currentTimeMillis());
+        return view;
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "pending", store.count(Status.PENDING),
+                "running", store.count(Status.RUNNING),
+                "succeeded", store.count(Status.SUCCEEDED),
+                "failed", store.count(Status.FAILED),
+                "cancelled", store.count(Status.CANCELLED),
+                "availableWorkers", workers.availablePermits(),
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
+    private void dispatch(String id) {
+        inFlight.put(id, executor.submit(() -> runWhenPermitted(id)));
+    }
+
+    private void runWhenPermitted(String id) {
+        try {
+            workers.acquire();
+        } catch (InterruptedException e) {
+            inFlight.remove(id);
+            return;
+        }
+        try {
+            AsyncJob job = store.update(id, current -> current.status() == Status.PENDING ? current.started() : null)
+                    .filter(current -> current.status() == Status.RUNNING)
+                    .orElse(null);
+            if (job == null) {
+                return;
+            }
+            publish(job);
+            // 任务在请求之外执行：显式绑定提交者，模型调用照常计入其 token 配额
+            CallPriority.BATCH.run(() -> RequestScope.runAs(job.clientId(), () -> execute(job)));
+        } finally {
+            workers.release();
+            inFlight.remove(id);
+        }
+    }
+
+    /**
+     * 执行任务；被过载保护或调用方 token 配额拒绝时按 Retry-After 等待后在同一个工作线程内重试
+     */
+    private void execute(AsyncJob job) {
+        long startTime = System.currentTimeMillis();
+        Status outcome;
+        Map<String, Object> result = null;
+        String error = null;
+        try {
+            result = runWithRetry(job);
+            outcome = Status.SUCCEEDED;
+        } catch (InterruptedException e) {
+            // 被取消：状态已由 cancel 写入
+            return;
+        } catch (RuntimeException e) {
+            outcome = Status.FAILED;
+            error = String.valueOf(e.getMessage());
+            log.warn("异步任务 {}（{}）失败：{}", job.id(), job.type(), error);
+        }
+        Status finalStatus = outcome;
+        Map<String, Object> finalResult = result;
+        String finalError = error;
+        // 期间被取消时状态已不是 RUNNING，结果丢弃
+        store.update(job.id(), current -> current.status() == Status.RUNNING
+                        ? current.finished(finalStatus, finalResult, finalError) : null)
+                .filter(current -> current.status() == finalStatus)
+                .ifPresent(finished -> {
+                    Counter.builder("ai.jobs.completed")
+                            .tag("type", job.type())
+                            .tag("status", finalStatus.name().toLowerCase())
+                            .register(meterRegistry)
+                            .increment();
+                    log.debug("异步任务 {}（{}）{}，耗时 {} ms", job.id(), job.type(), finalStatus,
+                            System.currentTimeMillis() - startTime);
+                    publish(finished);
+                });
+    }
+
+    private Map<String, Object> runWithRetry(AsyncJob job) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return run(job);
+            } catch (ModelOverloadedException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                backOff(e.getRetryAfterSeconds());
+            } catch (RateLimitExceededException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                backOff(e.getRetryAfterSeconds());
+            }
+        }
+    }
+
+    private void backOff(long retryAfterSeconds) throws InterruptedException {
+        Thread.sleep(Math.min(Duration.ofSeconds(Math.max(1, retryAfterSeconds)).toMillis(), maxRetryWait.toMillis()));
+    }
+
+    private Map<String, Object> run(AsyncJob job) {
+        Map<String, String> request = job.request();
+        BiConsumer<String, Map<String, Object>> onResult = (key, result) -> publish(job.id(), "result", Map.of(
+                "configuration", key,
+                "result", result
+        ));
+        return switch (job.type()) {
+            case "creative-writing" -> creativeWriting(request.get("topic"), request.getOrDefault("style", "随意"));
+            case "temperature-test" -> Map.of(
+                    "prompt", request.get("prompt"),
+                    "results", tuningService.testTemperatureEffects(request.get("prompt"), onResult));
+            case "parameter-comparison" -> Map.of(
+                    "prompt", request.get("prompt"),
+                    "configurations", tuningService.compareParameterCombinations(request.get("prompt"), onResult));
+            default -> throw new IllegalArgumentException("不支持的任务类型：" + job.type());
+        };
+    }
+
+    private Map<String, Object> creativeWriting(String topic, String style) {
+        ChatClientResponse clientResponse = clientFactory.getCreativeChatClient().prompt()
+                .advisors(a -> a.advisors(responseCache).param(ResponseCacheAdvisor.ROUTE, "creative-writing"))
+                .user(SystemPrompts.creativeWriting(topic, style))
+                .call()
+                .chatClientResponse();
+        ChatResponse response = clientResponse.chatResponse();
+
+        return Map.of(
+                "content", response.getResult().getOutput().getText(),
+                "topic", topic,
+                "style", style,
+                "model", response.getMetadata().getModel(),
+                "usage", response.getMetadata().getUsage()
+        );
+    }
+
+    private void publish(AsyncJob job) {
+        publish(job.id(), "status", view(job));
+    }
+
+    private void publish(String id, String event, Map<String, Object> data) {
+        Set<BiConsumer<String, Map<String, Object>>> subscribers = listeners.get(id);
+        if (subscribers != null) {
+            subscribers.forEach(listener -> listener.accept(event, data));
+        }
+    }
+}
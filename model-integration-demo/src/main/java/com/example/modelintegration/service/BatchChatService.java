@@ -0,0 +1,253 @@
+package com.example.modelintegration.service;
+
+import com.example.modelintegration.config.CallPriority;
+import com.example.modelintegration.config.ChatClientFactory;
+import com.example.modelintegration.config.ModelOverloadedException;
+import com.example.modelintegration.config.SystemPrompts;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量对话
+ * 一次请求提交多条消息，在虚拟线程上并发执行（并发数与 token 预算均有上限），每条完成即输出一行结果。
+ * 单条失败只影响该条；被限流或过载拒绝时按 Retry-After 等待后重试，吞吐由供应商配额决定而不是客户端往返。
+ * 调用仍经过 basic 路由的缓存、prompt 预算与按调用方的限流。
+ */
+@Service
+public class BatchChatService {
+
+    private static final String ROUTE = "basic";
+    private static final Duration RESERVE_RETRY_INTERVAL = Duration.ofMillis(50);
+
+    private final ChatClientFactory clientFactory;
+    private final ResponseCacheAdvisor responseCache;
+    private final TokenEstimator tokenEstimator;
+    private final int maxItems;
+    private final int maxConcurrency;
+    private final long maxTokens;
+    private final int maxAttempts;
+    private final Duration maxRetryWait;
+    private final int completionReserve;
+    private final Scheduler scheduler =
+            Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "batch-chat");
+
+    public BatchChatService(ChatClientFactory clientFactory,
+                            ResponseCacheAdvisor responseCache,
+                            TokenEstimator tokenEstimator,
+                            @Value("${app.batch.max-items:1000}") int maxItems,
+                            @Value("${app.batch.max-concurrency:8}") int maxConcurrency,
+                            @Value("${app.batch.max-tokens:200000}") long maxTokens,
+                            @Value("${app.batch.max-attempts:3}") int maxAttempts,
+                            @Value("${app.batch.max-retry-wait:30s}") Duration maxRetryWait,
+                            @Value("${app.rate-limit.completion-reserve:500}") int completionReserve) {
+        this.clientFactory = clientFactory;
+        this.responseCache = responseCache;
+        this.tokenEstimator = tokenEstimator;
+        this.maxItems = maxItems;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxTokens = maxTokens;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.maxRetryWait = maxRetryWait;
+        this.completionReserve = completionReserve;
+    }
+
+    /**
+     * 一条待处理的消息；id 由调用方提供，用于对应结果（缺省时用序号）
+     */
+    public record BatchItem(String id, String message) {
+    }
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    /**
+     * 按完成顺序输出 result / error，最后一行是 summary
+     *
+     * @param parallelism 并发数，不超过 app.batch.max-concurrency
+     * @param tokenBudget 本批 token 上限，不超过 app.batch.max-tokens；预留不足时后续条目直接报 budget_exhausted
+     */
+    public Flux<Map<String, Object>> run(List<BatchItem> items, Integer parallelism, Long tokenBudget) {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        int concurrency = parallelism == null ? maxConcurrency : Math.max(1, Math.min(parallelism, maxConcurrency));
+        long budget = tokenBudget == null ? maxTokens : Math.max(0, Math.min(tokenBudget, maxTokens));
+
+        return Flux.defer(() -> {
+            long startTime = System.currentTimeMillis();
+            TokenBudget tokens = new TokenBudget(budget);
+            AtomicInteger succeeded = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            int systemTokens = tokenEstimator.count(SystemPrompts.PRIMARY);
+
+            Flux<Map<String, Object>> results = Flux.range(0, items.size())
+                    .flatMap(index -> {
+                        BatchItem item = items.get(index);
+                        if (item.message() == null || item.message().isBlank()) {
+                            return Mono.just(error(index, item, "invalid", "缺少 message 或该行不是合法 JSON"));
+                        }
+                        // 预留：估算的输入 token + 输出预留；完成后按实际用量结算
+                        long reserved = tokenEstimator.estimate(ROUTE, systemTokens + tokenEstimator.count(item.message()))
+                                + (long) completionReserve;
+                        return launch(requestAttributes, index, item, reserved, tokens);
+                    }, concurrency)
+                    .doOnNext(result -> ("result".equals(result.get("type")) ? succeeded : failed).incrementAndGet());
+
+            Mono<Map<String, Object>> summary = Mono.fromSupplier(() -> {
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("type", "summary");
+                line.put("items", items.size());
+                line.put("succeeded", succeeded.get());
+                line.put("failed", failed.get());
+                line.put("parallelism", concurrency);
+                line.put("tokenBudget", budget);
+                line.put("tokensUsed", tokens.used.get());
+                line.put("duration", System.currentTimeMillis() - startTime);
+                line.put("timestamp", System.currentTimeMillis());
+                return line;
+            });
+
+            return results.concatWith(summary);
+        });
+    }
+
+    /**
+     * 预留成功则执行；余额不足但有在途预留时稍后再试（在途调用结算后可能退回），确实用尽才报 budget_exhausted
+     */
+    private Mono<Map<String, Object>> launch(RequestAttributes requestAttributes, int index, BatchItem item,
+                                             long reserved, TokenBudget tokens) {
+        return Mono.defer(() -> switch (tokens.tryReserve(reserved)) {
+            case EXHAUSTED -> Mono.just(error(index, item, "budget_exhausted", "本批 token 预算已用尽"));
+            case WAIT -> Mono.delay(RESERVE_RETRY_INTERVAL)
+                    .then(launch(requestAttributes, index, item, reserved, tokens));
+            case RESERVED -> Mono.fromCallable(RequestScope.propagate(requestAttributes,
+                            CallPriority.BATCH.wrap(() -> callWithRetry(index, item))))
+                    .subscribeOn(scheduler)
+                    .doOnNext(result -> tokens.settle(reserved, ((Number) result.get("tokens")).longValue()))
+                    .onErrorResume(e -> {
+                        tokens.settle(reserved, 0);
+                        return Mono.just(error(index, item, reason(e), String.valueOf(e.getMessage())));
+                    });
+        });
+    }
+
+    /**
+     * 单条调用；被限流（429）或过载（503）拒绝时等待建议的时间再试，其余错误直接失败
+     */
+    private Map<String, Object> callWithRetry(int index, BatchItem item) throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                ChatClientResponse clientResponse = clientFactory.getPrimaryChatClient().prompt()
+                        .advisors(a -> a.advisors(responseCache).param(ResponseCacheAdvisor.ROUTE, ROUTE))
+                        .user(item.message())
+                        .call()
+                        .chatClientResponse();
+                return result(index, item, clientResponse, attempt, System.currentTimeMillis() - startTime);
+            } catch (RateLimitExceededException | ModelOverloadedException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                long retryAfter = e instanceof RateLimitExceededException limited
+                        ? limited.getRetryAfterSeconds() : ((ModelOverloadedException) e).getRetryAfterSeconds();
+                Thread.sleep(Math.min(Duration.ofSeconds(Math.max(1, retryAfter)).toMillis(), maxRetryWait.toMillis()));
+            }
+        }
+    }
+
+    private static Map<String, Object> result(int index, BatchItem item, ChatClientResponse clientResponse,
+                                              int attempts, long durationMs) {
+        ChatResponse response = clientResponse.chatResponse();
+        Object cache = clientResponse.context().get(ResponseCacheAdvisor.RESULT);
+        Usage usage = response.getMetadata().getUsage();
+        boolean cached = "exact".equals(cache) || "semantic".equals(cache);
+        // 命中缓存不消耗配额，不计入本批预算
+        long tokens = cached || usage == null || usage.getTotalTokens() == null ? 0 : usage.getTotalTokens();
+
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", "result");
+        line.put("index", index);
+        line.put("id", item.id() != null ? item.id() : String.valueOf(index));
+        line.put("response", response.getResult().getOutput().getText());
+        line.put("model", response.getMetadata().getModel());
+        line.put("usage", usage);
+        line.put("cache", cache);
+        line.put("tokens", tokens);
+        line.put("attempts", attempts);
+        line.put("durationMs", durationMs);
+        return line;
+    }
+
+    private static Map<String, Object> error(int index, BatchItem item, String reason, String message) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", "error");
+        line.put("index", index);
+        line.put("id", item.id() != null ? item.id() : String.valueOf(index));
+        line.put("reason", reason);
+        line.put("error", message);
+        return line;
+    }
+
+    private static String reason(Throwable e) {
+        if (e instanceof RateLimitExceededException) {
+            return "rate_limited";
+        }
+        if (e instanceof ModelOverloadedException) {
+            return "overloaded";
+        }
+        if (e instanceof PromptTooLargeException) {
+            return "prompt_too_large";
+        }
+        return "failed";
+    }
+
+    /**
+     * 单批的 token 预算：已结算用量 + 在途预留不超过上限
+     */
+    private static final class TokenBudget {
+
+        enum Outcome {
+            RESERVED, WAIT, EXHAUSTED
+        }
+
+        private final long limit;
+        private final AtomicLong used = new AtomicLong();
+        private long inFlight;
+
+        TokenBudget(long limit) {
+            this.limit = limit;
+        }
+
+        synchronized Outcome tryReserve(long tokens) {
+            if (used.get() + tokens > limit) {
+                return Outcome.EXHAUSTED;
+            }
+            if (used.get() + inFlight + tokens > limit) {
+                return Outcome.WAIT;
+            }
+            inFlight += tokens;
+            return Outcome.RESERVED;
+        }
+
+        synchronized void settle(long reserved, long actual) {
+            inFlight -= reserved;
+            used.addAndGet(actual);
+        }
+    }
+}
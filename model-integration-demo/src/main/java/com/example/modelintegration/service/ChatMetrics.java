@@ -1,51 +1,149 @@
 package com.example.modelintegration.service;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
-import org.springframework.ai.chat.client.ChatClient;
+import io.micrometer.core.instrument.search.Search;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
 
+/**
+ * 聊天指标
+ * 作为 ChatClientFactory 的默认 advisor 自动记录每次真实的模型调用（缓存命中与合并请求不计入），
+ * 按 route / model / provider 打标签，延迟、首 token 时间、token 数与输出速率均发布百分位直方图。
+ */
 @Component
-public class ChatMetrics {
+public class ChatMetrics implements CallAdvisor, StreamAdvisor {
+
+    /**
+     * 响应元数据中的供应商标识，由 {@link com.example.modelintegration.config.RoutingChatModel} 写入
+     */
+    public static final String PROVIDER_METADATA_KEY = "provider";
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.95, 0.99};
 
     private final MeterRegistry meterRegistry;
+    private final String defaultProvider;
     private final Counter requestCounter;
-    private final Timer responseTimer;
     private final Counter errorCounter;
 
-    public ChatMetrics(MeterRegistry meterRegistry) {
+    public ChatMetrics(MeterRegistry meterRegistry,
+                       @Value("${info.model.provider:unknown}") String defaultProvider) {
         this.meterRegistry = meterRegistry;
+        this.defaultProvider = defaultProvider;
 
         this.requestCounter = Counter.builder("ai.chat.requests")
                 .description("Total chat requests")
                 .register(meterRegistry);
 
-        this.responseTimer = Timer.builder("ai.chat.response.time")
-                .description("Chat response time")
-                .register(meterRegistry);
-
         this.errorCounter = Counter.builder("ai.chat.errors")
                 .description("Chat request errors")
                 .register(meterRegistry);
     }
 
-    /**
-     * 记录聊天请求的执行时间和结果
-     */
-    public String timedChat(ChatClient client, String message) {
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        String route = currentRoute();
+        String requestedModel = requestedModel(request);
         requestCounter.increment();
 
+        long start = System.nanoTime();
         try {
-            return responseTimer.recordCallable(() ->
-                    client.prompt().user(message).call().content()
-            );
-        } catch (Exception e) {
+            ChatClientResponse response = chain.nextCall(request);
+            long elapsed = System.nanoTime() - start;
+            ChatResponse chatResponse = response.chatResponse();
+            Tags tags = tags(route, chatResponse, requestedModel);
+            latencyTimer(tags.and("outcome", "success")).record(elapsed, TimeUnit.NANOSECONDS);
+            recordUsage(tags, chatResponse, elapsed);
+            return response;
+        } catch (RuntimeException e) {
             errorCounter.increment();
-            throw new RuntimeException("Chat request failed", e);
+            latencyTimer(baseTags(route, requestedModel, defaultProvider).and("outcome", "error"))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
         }
     }
 
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        String route = currentRoute();
+        String requestedModel = requestedModel(request);
+
+        return Flux.defer(() -> {
+            requestCounter.increment();
+            long start = System.nanoTime();
+            AtomicBoolean first = new AtomicBoolean(true);
+            AtomicLong firstTokenAt = new AtomicLong();
+            AtomicReference<ChatResponse> last = new AtomicReference<>();
+            AtomicReference<ChatResponse> withUsage = new AtomicReference<>();
+
+            return chain.nextStream(request)
+                    .doOnNext(response -> {
+                        ChatResponse chatResponse = response.chatResponse();
+                        if (first.compareAndSet(true, false)) {
+                            firstTokenAt.set(System.nanoTime());
+                        }
+                        if (chatResponse != null) {
+                            last.set(chatResponse);
+                            if (completionTokens(chatResponse) > 0) {
+                                withUsage.set(chatResponse);
+                            }
+                        }
+                    })
+                    .doFinally(signal -> {
+                        long elapsed = System.nanoTime() - start;
+                        if (signal == SignalType.ON_ERROR) {
+                            errorCounter.increment();
+                            latencyTimer(baseTags(route, requestedModel, defaultProvider).and("outcome", "error"))
+                                    .record(elapsed, TimeUnit.NANOSECONDS);
+                            return;
+                        }
+                        // 客户端断开时流被取消：按已收到的分片与 usage 记录，单独标为 cancelled
+                        String outcome = signal == SignalType.CANCEL ? "cancelled" : "success";
+                        ChatResponse summary = withUsage.get() != null ? withUsage.get() : last.get();
+                        Tags tags = tags(route, summary, requestedModel);
+                        latencyTimer(tags.and("outcome", outcome)).record(elapsed, TimeUnit.NANOSECONDS);
+                        if (firstTokenAt.get() > 0) {
+                            Timer.builder("ai.chat.time.to.first.token")
+                                    .description("Time until the first streamed chunk arrives")
+                                    .tags(tags)
+                                    .publishPercentiles(PERCENTILES)
+                                    .publishPercentileHistogram()
+                                    .register(meterRegistry)
+                                    .record(firstTokenAt.get() - start, TimeUnit.NANOSECONDS);
+                        }
+                        recordUsage(tags, summary, elapsed);
+                    });
+        });
+    }
+
     /**
      * 手动记录请求
      */
@@ -61,21 +159,130 @@ public class ChatMetrics {
     }
 
     /**
-     * 获取当前指标统计
+     * 当前指标汇总：全局计数与按 route / model / provider 的延迟分位数
      */
-    public io.micrometer.core.instrument.Metrics getMetrics() {
-        return new io.micrometer.core.instrument.Metrics() {
-            public double getRequestCount() {
-                return requestCounter.count();
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> routes = new LinkedHashMap<>();
+        Search.in(meterRegistry).name("ai.chat.latency").timers().forEach(timer -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", timer.count());
+            stats.put("meanMs", timer.mean(TimeUnit.MILLISECONDS));
+            stats.put("maxMs", timer.max(TimeUnit.MILLISECONDS));
+            for (var percentile : timer.takeSnapshot().percentileValues()) {
+                stats.put("p" + Math.round(percentile.percentile() * 100) + "Ms",
+                        percentile.value(TimeUnit.MILLISECONDS));
             }
+            routes.put(timer.getId().getTag("route") + "|" + timer.getId().getTag("model") + "|"
+                    + timer.getId().getTag("provider") + "|" + timer.getId().getTag("outcome"), stats);
+        });
+        return Map.of(
+                "requestCount", requestCounter.count(),
+                "errorCount", errorCounter.count(),
+                "latency", routes
+        );
+    }
 
-            public double getErrorCount() {
-                return errorCounter.count();
+    @Override
+    public String getName() {
+        return "ChatMetrics";
+    }
+
+    @Override
+    public int getOrder() {
+        // 紧挨模型调用，只统计真正发往供应商的请求
+        return Ordered.LOWEST_PRECEDENCE - 1000;
+    }
+
+    private void recordUsage(Tags tags, ChatResponse response, long elapsedNanos) {
+        if (response == null || response.getMetadata() == null) {
+            return;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null) {
+            return;
+        }
+        if (usage.getPromptTokens() != null) {
+            tokenSummary(tags.and("type", "prompt")).record(usage.getPromptTokens());
+        }
+        int completion = completionTokens(response);
+        if (completion > 0) {
+            tokenSummary(tags.and("type", "completion")).record(completion);
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            if (seconds > 0) {
+                DistributionSummary.builder("ai.chat.tokens.per.second")
+                        .description("Completion tokens generated per second")
+                        .tags(tags)
+                        .publishPercentiles(PERCENTILES)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(completion / seconds);
             }
+        }
+    }
+
+    private Timer latencyTimer(Tags tags) {
+        return Timer.builder("ai.chat.latency")
+                .description("End-to-end model call latency")
+                .tags(tags)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(10))
+                .maximumExpectedValue(Duration.ofMinutes(2))
+                .register(meterRegistry);
+    }
 
-            public double getAverageResponseTime() {
-                return responseTimer.mean(java.util.concurrent.TimeUnit.MILLISECONDS);
+    private DistributionSummary tokenSummary(Tags tags) {
+        return DistributionSummary.builder("ai.chat.tokens")
+                .description("Tokens per model call")
+                .baseUnit("tokens")
+                .tags(tags)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Tags tags(String route, ChatResponse response, String requestedModel) {
+        String model = requestedModel;
+        String provider = defaultProvider;
+        if (response != null && response.getMetadata() != null) {
+            if (response.getMetadata().getModel() != null && !response.getMetadata().getModel().isEmpty()) {
+                model = response.getMetadata().getModel();
+            }
+            Object tagged = response.getMetadata().get(PROVIDER_METADATA_KEY);
+            if (tagged != null) {
+                provider = tagged.toString();
             }
-        };
+        }
+        return baseTags(route, model, provider);
+    }
+
+    private static Tags baseTags(String route, String model, String provider) {
+        return Tags.of("route", route, "model", model, "provider", provider);
+    }
+
+    private static int completionTokens(ChatResponse response) {
+        if (response.getMetadata() == null || response.getMetadata().getUsage() == null) {
+            return 0;
+        }
+        Integer completion = response.getMetadata().getUsage().getCompletionTokens();
+        return completion != null ? completion : 0;
+    }
+
+    private static String requestedModel(ChatClientRequest request) {
+        ChatOptions options = request.prompt().getOptions();
+        return options != null && options.getModel() != null ? options.getModel() : "default";
+    }
+
+    /**
+     * 路由取当前 HTTP 请求匹配的路径模板（低基数）；非 HTTP 请求内的调用记为 internal
+     */
+    private static String currentRoute() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servlet) {
+            HttpServletRequest request = servlet.getRequest();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            return pattern != null ? pattern.toString() : request.getRequestURI();
+        }
+        return "internal";
     }
-} 
\ No newline at end of file
+}
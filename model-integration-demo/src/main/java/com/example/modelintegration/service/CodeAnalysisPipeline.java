@@ -0,0 +1,256 @@
+package com.example.modelintegration.service;
+
+import com.example.modelintegration.config.ChatClientFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 大段代码的 map-reduce 分析
+ * map：按类/方法边界切块，并发（最多 maxConcurrency 个在途调用）逐块分析，每完成一块立即输出；
+ * reduce：汇总各块结论并回答问题，汇总内容超出预算时先分组归并再合并。
+ * 每次调用都经过 code-analysis 路由的响应缓存，重复提交时未改动的分块直接命中。
+ */
+@Service
+public class CodeAnalysisPipeline {
+
+    private static final String ROUTE = "code-analysis";
+
+    private final ChatClientFactory clientFactory;
+    private final ResponseCacheAdvisor responseCache;
+    private final int chunkChars;
+    private final int maxConcurrency;
+    private final int reduceChars;
+    private final Scheduler scheduler =
+            Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "code-analysis");
+
+    public CodeAnalysisPipeline(ChatClientFactory clientFactory,
+                                ResponseCacheAdvisor responseCache,
+                                @Value("${app.code-analysis.chunk-chars:6000}") int chunkChars,
+                                @Value("${app.code-analysis.max-concurrency:4}") int maxConcurrency,
+                                @Value("${app.code-analysis.reduce-chars:24000}") int reduceChars) {
+        this.clientFactory = clientFactory;
+        this.responseCache = responseCache;
+        this.chunkChars = Math.max(500, chunkChars);
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.reduceChars = Math.max(this.chunkChars, reduceChars);
+    }
+
+    public List<CodeChunker.Chunk> split(String code) {
+        return CodeChunker.split(code, chunkChars);
+    }
+
+    /**
+     * 事件流：plan（分块计划）→ 每块一条 chunk（按完成顺序）→ result（合并后的结论）
+     * 单块失败只记录在该块的事件里，其余分块照常汇总
+     */
+    public Flux<Map<String, Object>> analyze(String code, String question) {
+        // 限流按调用方计费，依赖当前请求；分块在其他线程上执行，需要把请求带过去
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        return Flux.defer(() -> {
+            long startTime = System.currentTimeMillis();
+            List<CodeChunker.Chunk> chunks = split(code);
+            ConcurrentLinkedQueue<Finding> findings = new ConcurrentLinkedQueue<>();
+            UsageTotal usage = new UsageTotal();
+            AtomicReference<String> model = new AtomicReference<>();
+
+            Map<String, Object> plan = new LinkedHashMap<>();
+            plan.put("type", "plan");
+            plan.put("chunks", chunks.size());
+            plan.put("lines", chunks.isEmpty() ? 0 : chunks.getLast().endLine());
+            plan.put("codeLength", code.length());
+            plan.put("maxConcurrency", maxConcurrency);
+
+            Flux<Map<String, Object>> mapped = Flux.fromIterable(chunks)
+                    .flatMap(chunk -> call(requestAttributes, mapPrompt(chunk, question))
+                            .map(response -> {
+                                String analysis = response.getResult().getOutput().getText();
+                                findings.add(new Finding(chunk, analysis));
+                                usage.add(response);
+                                model.compareAndSet(null, response.getMetadata().getModel());
+                                return chunkEvent(chunk, "analysis", analysis);
+                            })
+                            .onErrorResume(e -> Mono.just(chunkEvent(chunk, "error", String.valueOf(e.getMessage())))),
+                            maxConcurrency);
+
+            Flux<Map<String, Object>> reduced = Flux.defer(() -> {
+                List<Finding> ordered = new ArrayList<>(findings);
+                ordered.sort(Comparator.comparingInt(finding -> finding.chunk().index()));
+                if (ordered.isEmpty()) {
+                    return Flux.error(new IllegalStateException("所有分块分析均失败"));
+                }
+                // 只有一块时 map 结论就是答案
+                Mono<String> merged = chunks.size() == 1
+                        ? Mono.just(ordered.getFirst().analysis())
+                        : reduce(requestAttributes, ordered, question, usage);
+                return merged
+                        .map(analysis -> {
+                            Map<String, Object> result = new LinkedHashMap<>();
+                            result.put("type", "result");
+                            result.put("analysis", analysis);
+                            result.put("model", model.get());
+                            result.put("usage", usage.toUsage());
+                            result.put("chunks", chunks.size());
+                            result.put("failedChunks", chunks.size() - ordered.size());
+                            result.put("codeLength", code.length());
+                            result.put("duration", System.currentTimeMillis() - startTime);
+                            result.put("timestamp", System.currentTimeMillis());
+                            return result;
+                        })
+                        .flux();
+            });
+
+            return Flux.just(plan).concatWith(mapped).concatWith(reduced);
+        });
+    }
+
+    /**
+     * 汇总：结论总长在预算内直接合并；否则按预算分组并发归并成中间结论，再递归合并
+     */
+    private Mono<String> reduce(RequestAttributes requestAttributes, List<Finding> findings, String question,
+                                UsageTotal usage) {
+        List<List<Finding>> groups = new ArrayList<>();
+        List<Finding> current = new ArrayList<>();
+        int size = 0;
+        for (Finding finding : findings) {
+            int findingSize = finding.analysis().length();
+            // 每组至少两条，保证每轮归并都在收敛
+            if (current.size() >= 2 && size + findingSize > reduceChars) {
+                groups.add(current);
+                current = new ArrayList<>();
+                size = 0;
+            }
+            current.add(finding);
+            size += findingSize;
+        }
+        groups.add(current);
+
+        if (groups.size() == 1) {
+            return call(requestAttributes, reducePrompt(findings, question))
+                    .doOnNext(usage::add)
+                    .map(response -> response.getResult().getOutput().getText());
+        }
+        return Flux.fromIterable(groups)
+                .flatMapSequential(group -> call(requestAttributes, reducePrompt(group, null))
+                        .doOnNext(usage::add)
+                        .map(response -> Finding.merged(group, response.getResult().getOutput().getText())),
+                        maxConcurrency)
+                .collectList()
+                .flatMap(merged -> reduce(requestAttributes, merged, question, usage));
+    }
+
+    private Mono<ChatResponse> call(RequestAttributes requestAttributes, String prompt) {
+        ChatClient client = clientFactory.getCodeChatClient();
+        return Mono.fromCallable(RequestScope.propagate(requestAttributes, () -> client.prompt()
+                        .advisors(a -> a.advisors(responseCache).param(ResponseCacheAdvisor.ROUTE, ROUTE))
+                        .user(prompt)
+                        .call()
+                        .chatResponse()))
+                .subscribeOn(scheduler);
+    }
+
+    private static Map<String, Object> chunkEvent(CodeChunker.Chunk chunk, String key, String value) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("type", "chunk");
+        event.put("index", chunk.index());
+        event.put("startLine", chunk.startLine());
+        event.put("endLine", chunk.endLine());
+        event.put("enclosing", chunk.enclosing());
+        event.put(key, value);
+        return event;
+    }
+
+    private static String mapPrompt(CodeChunker.Chunk chunk, String question) {
+        String context = chunk.enclosing() == null ? "" : "所在类型：" + chunk.enclosing() + "\n";
+        return String.format("""
+                以下是一个大文件中第 %d-%d 行的代码片段（其余部分会另行分析）：
+                %s
+                ```
+                %s
+                ```
+
+                整体问题：%s
+
+                只分析这个片段：列出与问题相关的发现（问题、风险、改进建议），每条注明行号，
+                不要复述代码，没有相关发现时直接说明。
+                """, chunk.startLine(), chunk.endLine(), context, chunk.text(), question);
+    }
+
+    private static String reducePrompt(List<Finding> findings, String question) {
+        StringBuilder sections = new StringBuilder();
+        for (Finding finding : findings) {
+            sections.append("### 第 ").append(finding.startLine()).append('-').append(finding.endLine()).append(" 行\n")
+                    .append(finding.analysis()).append("\n\n");
+        }
+        if (question == null) {
+            return """
+                    以下是同一文件相邻片段的分析结论，请合并成一份：去掉重复，保留行号，按严重程度排序。
+
+                    """ + sections;
+        }
+        return String.format("""
+                以下是按片段分别得出的代码分析结论（按行号排列）：
+
+                %s
+                问题：%s
+
+                请合并这些结论：去掉重复项，关联跨片段的问题，按严重程度排序并保留行号，
+                最后给出针对问题的整体回答和建议。
+                """, sections, question);
+    }
+
+    /**
+     * 一段结论及其覆盖的行范围；中间归并结果沿用组内第一块作为排序依据
+     */
+    private record Finding(CodeChunker.Chunk chunk, int startLine, int endLine, String analysis) {
+
+        Finding(CodeChunker.Chunk chunk, String analysis) {
+            this(chunk, chunk.startLine(), chunk.endLine(), analysis);
+        }
+
+        static Finding merged(List<Finding> group, String analysis) {
+            return new Finding(group.getFirst().chunk(), group.getFirst().startLine(), group.getLast().endLine(),
+                    analysis);
+        }
+    }
+
+    /**
+     * 所有 map/reduce 调用的 token 合计
+     */
+    private static final class UsageTotal {
+
+        private final AtomicInteger promptTokens = new AtomicInteger();
+        private final AtomicInteger completionTokens = new AtomicInteger();
+
+        void add(ChatResponse response) {
+            Usage usage = response.getMetadata().getUsage();
+            if (usage != null) {
+                promptTokens.addAndGet(usage.getPromptTokens() == null ? 0 : usage.getPromptTokens());
+                completionTokens.addAndGet(usage.getCompletionTokens() == null ? 0 : usage.getCompletionTokens());
+            }
+        }
+
+        Usage toUsage() {
+            return new DefaultUsage(promptTokens.get(), completionTokens.get());
+        }
+    }
+}
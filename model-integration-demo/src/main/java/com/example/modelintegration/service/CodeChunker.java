@@ -0,0 +1,221 @@
+package com.example.modelintegration.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 按语法边界切分代码
+ * 逐行扫描并跟踪花括号深度（跳过字符串、字符和注释中的括号），深度回到 0 或 1 的行尾视为
+ * 类或成员的结束，相邻的完整单元按字符预算装箱成块；单个单元超出预算时才按行硬切。
+ * 没有花括号的代码（如 Python、SQL）以顶格代码前的空行为边界。
+ */
+public final class CodeChunker {
+
+    private static final Pattern TYPE_DECLARATION = Pattern.compile(
+            "^\\s*(?:(?:public|protected|private|abstract|final|static|sealed|non-sealed|export|default|data|open)\\s+)*"
+                    + "(?:class|interface|enum|record|object|trait|struct|impl)\\b.*");
+
+    private CodeChunker() {
+    }
+
+    /**
+     * 一个分块：行号从 1 开始（含首尾），enclosing 是块所在的类型声明行（顶层代码为 null）
+     */
+    public record Chunk(int index, int startLine, int endLine, String enclosing, String text) {
+    }
+
+    public static List<Chunk> split(String code, int maxChars) {
+        String[] lines = code.split("\\R", -1);
+        List<Unit> units = units(lines);
+
+        List<Chunk> chunks = new ArrayList<>();
+        int start = -1;
+        int end = -1;
+        int size = 0;
+        for (Unit unit : units) {
+            int unitSize = charCount(lines, unit.start, unit.end);
+            if (start >= 0 && size + unitSize > maxChars) {
+                addChunk(chunks, lines, units, start, end);
+                start = -1;
+                size = 0;
+            }
+            if (unitSize > maxChars) {
+                splitOversized(chunks, lines, units, unit, maxChars);
+                continue;
+            }
+            if (start < 0) {
+                start = unit.start;
+            }
+            end = unit.end;
+            size += unitSize;
+        }
+        if (start >= 0) {
+            addChunk(chunks, lines, units, start, end);
+        }
+        return chunks;
+    }
+
+    /**
+     * 切出完整单元：[start, end] 行区间，以及单元开始时所在的类型声明
+     */
+    private static List<Unit> units(String[] lines) {
+        boolean braced = false;
+        for (String line : lines) {
+            if (line.indexOf('{') >= 0) {
+                braced = true;
+                break;
+            }
+        }
+
+        List<Unit> units = new ArrayList<>();
+        List<String> typeStack = new ArrayList<>();
+        Scanner scanner = new Scanner();
+        int unitStart = 0;
+        String unitEnclosing = null;
+        for (int i = 0; i < lines.length; i++) {
+            int depthBefore = scanner.depth;
+            boolean declaration = !scanner.inComment() && TYPE_DECLARATION.matcher(lines[i]).matches();
+            if (declaration) {
+                // 声明行记在它打开的那一层，括号闭合后弹出
+                while (typeStack.size() > depthBefore) {
+                    typeStack.removeLast();
+                }
+                typeStack.add(lines[i].strip());
+            }
+            scanner.scan(lines[i]);
+            // 左括号在下一行的声明先保留
+            int keep = declaration && scanner.depth == depthBefore && lines[i].indexOf('}') < 0
+                    ? depthBefore + 1 : scanner.depth;
+            while (typeStack.size() > keep) {
+                typeStack.removeLast();
+            }
+
+            boolean boundary;
+            if (braced) {
+                String trimmed = lines[i].strip();
+                boundary = scanner.depth <= 1 && !scanner.inComment()
+                        && (trimmed.endsWith("}") || trimmed.endsWith(";"));
+            } else {
+                boundary = lines[i].isBlank() && i + 1 < lines.length
+                        && !lines[i + 1].isEmpty() && !Character.isWhitespace(lines[i + 1].charAt(0));
+            }
+            if (boundary || i == lines.length - 1) {
+                units.add(new Unit(unitStart, i, unitEnclosing));
+                unitStart = i + 1;
+                unitEnclosing = scanner.depth >= 1 && !typeStack.isEmpty()
+                        ? typeStack.get(Math.min(scanner.depth, typeStack.size()) - 1) : null;
+            }
+        }
+        return units;
+    }
+
+    private static void splitOversized(List<Chunk> chunks, String[] lines, List<Unit> units, Unit unit, int maxChars) {
+        int start = unit.start;
+        int size = 0;
+        for (int i = unit.start; i <= unit.end; i++) {
+            int lineSize = lines[i].length() + 1;
+            if (i > start && size + lineSize > maxChars) {
+                addChunk(chunks, lines, units, start, i - 1);
+                start = i;
+                size = 0;
+            }
+            size += lineSize;
+        }
+        addChunk(chunks, lines, units, start, unit.end);
+    }
+
+    private static void addChunk(List<Chunk> chunks, String[] lines, List<Unit> units, int start, int end) {
+        String enclosing = null;
+        for (Unit unit : units) {
+            if (unit.start <= start && start <= unit.end) {
+                enclosing = unit.enclosing;
+                break;
+            }
+        }
+        String text = String.join("\n", Arrays.asList(lines).subList(start, end + 1));
+        if (!text.isBlank()) {
+            chunks.add(new Chunk(chunks.size(), start + 1, end + 1, enclosing, text));
+        }
+    }
+
+    private static int charCount(String[] lines, int start, int end) {
+        int count = 0;
+        for (int i = start; i <= end; i++) {
+            count += lines[i].length() + 1;
+        }
+        return count;
+    }
+
+    private record Unit(int start, int end, String enclosing) {
+    }
+
+    /**
+     * 跨行保持状态的括号计数器：块注释与文本块可以跨行，行注释、字符串和字符字面量到行尾结束
+     */
+    private static final class Scanner {
+
+        private int depth;
+        private boolean blockComment;
+        private boolean textBlock;
+
+        boolean inComment() {
+            return blockComment || textBlock;
+        }
+
+        void scan(String line) {
+            int i = 0;
+            while (i < line.length()) {
+                char c = line.charAt(i);
+                if (blockComment) {
+                    if (line.startsWith("*/", i)) {
+                        blockComment = false;
+                        i += 2;
+                    } else {
+                        i++;
+                    }
+                } else if (textBlock) {
+                    if (line.startsWith("\"\"\"", i)) {
+                        textBlock = false;
+                        i += 3;
+                    } else {
+                        i += c == '\\' ? 2 : 1;
+                    }
+                } else if (line.startsWith("//", i) || c == '#' && line.substring(0, i).isBlank()) {
+                    return;
+                } else if (line.startsWith("/*", i)) {
+                    blockComment = true;
+                    i += 2;
+                } else if (line.startsWith("\"\"\"", i)) {
+                    textBlock = true;
+                    i += 3;
+                } else if (c == '"' || c == '\'' || c == '`') {
+                    i = skipLiteral(line, i, c);
+                } else {
+                    if (c == '{') {
+                        depth++;
+                    } else if (c == '}' && depth > 0) {
+                        depth--;
+                    }
+                    i++;
+                }
+            }
+        }
+
+        private static int skipLiteral(String line, int start, char quote) {
+            int i = start + 1;
+            while (i < line.length()) {
+                char c = line.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                } else if (c == quote) {
+                    return i + 1;
+                } else {
+                    i++;
+                }
+            }
+            return i;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.modelintegration.service;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * 默认的启发式质量评分
+ * 按用例期望的回答长度区间打分，并对截断、空回答和重复内容扣分
+ */
+@Component
+public class HeuristicQualityScorer implements QualityScorer {
+
+    private static final Map<String, int[]> EXPECTED_LENGTH = Map.of(
+            "qa", new int[]{30, 400},
+            "chat", new int[]{20, 600},
+            "code", new int[]{80, 2000},
+            "creative", new int[]{200, 3000}
+    );
+
+    @Override
+    public double score(String useCase, String prompt, String response) {
+        if (response == null || response.isBlank()) {
+            return 0.0;
+        }
+
+        String text = response.strip();
+        int[] range = EXPECTED_LENGTH.getOrDefault(useCase.toLowerCase(), EXPECTED_LENGTH.get("chat"));
+        int length = text.length();
+
+        double lengthScore;
+        if (length < range[0]) {
+            lengthScore = (double) length / range[0];
+        } else if (length > range[1]) {
+            lengthScore = Math.max(0.3, (double) range[1] / length);
+        } else {
+            lengthScore = 1.0;
+        }
+
+        // 以句末标点结尾视为完整回答，否则很可能被 maxTokens 截断
+        char last = text.charAt(length - 1);
+        double completeness = "。！？.!?）)」\"`".indexOf(last) >= 0 ? 1.0 : 0.7;
+
+        double diversity = distinctLineRatio(text);
+
+        return Math.round(lengthScore * completeness * diversity * 1000) / 1000.0;
+    }
+
+    private double distinctLineRatio(String text) {
+        String[] lines = text.split("\n+");
+        if (lines.length <= 1) {
+            return 1.0;
+        }
+        long distinct = Arrays.stream(lines).map(String::strip).distinct().count();
+        return (double) distinct / lines.length;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.modelintegration.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 异步任务的本地持久化存储
+ * 每个任务一个 JSON 文件（先写临时文件再原子替换），内存中保留全部记录；
+ * 已结束的任务在 ttl 之后清除，未结束的任务不过期，重启后由 {@link AsyncJobService} 重新排队。
+ */
+@Component
+public class JobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(JobStore.class);
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final Duration ttl;
+    private final Map<String, AsyncJob> jobs = new ConcurrentHashMap<>();
+    // 状态迁移与落盘在同一把锁内完成，保证 读-改-写 的原子性；用 ReentrantLock 避免钉住虚拟线程
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public JobStore(ObjectMapper objectMapper,
+                    @Value("${app.jobs.store.directory:./jobs/}") String directory,
+                    @Value("${app.jobs.ttl:24h}") Duration ttl) {
+        this.objectMapper = objectMapper;
+        this.directory = Paths.get(directory);
+        this.ttl = ttl;
+    }
+
+    /**
+     * 读取目录中的全部任务记录；无法解析的文件跳过并记录日志
+     */
+    public List<AsyncJob> loadAll() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+            for (Path file : files) {
+                try {
+                    AsyncJob job = objectMapper.readValue(file.toFile(), AsyncJob.class);
+                    jobs.put(job.id(), job);
+                } catch (IOException e) {
+                    log.warn("跳过无法解析的任务文件 {}：{}", file.getFileName(), e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取任务目录失败：" + directory, e);
+        }
+        return jobs.values().stream()
+                .sorted(Comparator.comparingLong(AsyncJob::createdAt))
+                .toList();
+    }
+
+    public Optional<AsyncJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public void save(AsyncJob job) {
+        writeLock.lock();
+        try {
+            write(job);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 原子地更新一条记录；函数返回 null 或原对象表示不修改
+     *
+     * @return 更新后的记录，记录不存在时为空
+     */
+    public Optional<AsyncJob> update(String id, UnaryOperator<AsyncJob> change) {
+        writeLock.lock();
+        try {
+            AsyncJob current = jobs.get(id);
+            if (current == null) {
+                return Optional.empty();
+            }
+            AsyncJob updated = change.apply(current);
+            if (updated == null || updated == current) {
+                return Optional.of(current);
+            }
+            write(updated);
+            return Optional.of(updated);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public long count(AsyncJob.Status status) {
+        return jobs.values().stream().filter(job -> job.status() == status).count();
+    }
+
+    /**
+     * 清除结束超过 ttl 的任务
+     */
+    @Scheduled(fixedDelayString = "${app.jobs.purge-interval:10m}")
+    public int purgeExpired() {
+        long cutoff = System.currentTimeMillis() - ttl.toMillis();
+        List<String> expired = new ArrayList<>();
+        jobs.values().forEach(job -> {
+            if (job.status().isTerminal() && job.finishedAt() != null && job.finishedAt() < cutoff) {
+                expired.add(job.id());
+            }
+        });
+        writeLock.lock();
+        try {
+            for (String id : expired) {
+                jobs.remove(id);
+                Files.deleteIfExists(fileFor(id));
+            }
+        } catch (IOException e) {
+            log.warn("清除过期任务失败：{}", e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+        if (!expired.isEmpty()) {
+            log.debug("已清除 {} 个过期任务", expired.size());
+        }
+        return expired.size();
+    }
+
+    private void write(AsyncJob job) {
+        try {
+            Files.createDirectories(directory);
+            Path file = fileFor(job.id());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), job);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            jobs.put(job.id(), job);
+        } catch (IOException e) {
+            throw new UncheckedIOException("保存任务失败：" + job.id(), e);
+        }
+    }
+
+    private Path fileFor(String id) {
+        if (!id.matches("[a-zA-Z0-9-]{1,64}")) {
+            throw new IllegalArgumentException("无效的任务 ID：" + id);
+        }
+        return directory.resolve(id + ".json");
+    }
+}
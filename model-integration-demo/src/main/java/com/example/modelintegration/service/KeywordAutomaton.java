@@ -0,0 +1,175 @@
+package com.example.modelintegration.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * 多模式关键词匹配自动机（Aho–Corasick）
+ * 构建时把 trie 与失败指针展开为稠密的 DFA 转移表，匹配时每个字符只需两次数组访问；
+ * 大小写折叠也在字符分类表中完成，输入无需先 toLowerCase。构建后不可变，可被多线程共享。
+ */
+public final class KeywordAutomaton {
+
+    private final String[] categories;
+    // 字符 -> 字母表下标，0 表示不出现在任何关键词中的字符
+    private final char[] charClass;
+    private final int alphabetSize;
+    // 稠密转移表：delta[node * alphabetSize + charClass]
+    private final int[] delta;
+    // 每个节点（含失败链上的后缀）命中的类别下标，可重复
+    private final int[][] outputs;
+
+    private KeywordAutomaton(String[] categories, char[] charClass, int alphabetSize, int[] delta, int[][] outputs) {
+        this.categories = categories;
+        this.charClass = charClass;
+        this.alphabetSize = alphabetSize;
+        this.delta = delta;
+        this.outputs = outputs;
+    }
+
+    /**
+     * 根据 类别 -> 关键词 表构建自动机；类别的声明顺序即得分相同时的优先级
+     */
+    public static KeywordAutomaton build(LinkedHashMap<String, List<String>> keywordsByCategory) {
+        String[] categories = keywordsByCategory.keySet().toArray(String[]::new);
+
+        // 1. 建立字母表（按小写字符去重）
+        Map<Character, Integer> alphabet = new HashMap<>();
+        for (List<String> keywords : keywordsByCategory.values()) {
+            for (String keyword : keywords) {
+                for (char ch : normalize(keyword).toCharArray()) {
+                    alphabet.putIfAbsent(ch, alphabet.size() + 1);
+                }
+            }
+        }
+        int alphabetSize = alphabet.size() + 1;
+        char[] charClass = new char[Character.MAX_VALUE + 1];
+        for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+            Integer index = alphabet.get(Character.toLowerCase((char) ch));
+            if (index != null) {
+                charClass[ch] = (char) index.intValue();
+            }
+        }
+
+        // 2. 构建 trie
+        List<int[]> goTo = new ArrayList<>();
+        List<List<Integer>> terminal = new ArrayList<>();
+        goTo.add(newRow(alphabetSize));
+        terminal.add(new ArrayList<>());
+        for (int c = 0; c < categories.length; c++) {
+            for (String keyword : keywordsByCategory.get(categories[c])) {
+                String normalized = normalize(keyword);
+                if (normalized.isEmpty()) {
+                    continue;
+                }
+                int node = 0;
+                for (char ch : normalized.toCharArray()) {
+                    int symbol = charClass[ch];
+                    if (goTo.get(node)[symbol] < 0) {
+                        goTo.get(node)[symbol] = goTo.size();
+                        goTo.add(newRow(alphabetSize));
+                        terminal.add(new ArrayList<>());
+                    }
+                    node = goTo.get(node)[symbol];
+                }
+                terminal.get(node).add(c);
+            }
+        }
+
+        // 3. 广度优先计算失败指针，同时补全转移表并沿失败链合并输出
+        int size = goTo.size();
+        int[] delta = new int[size * alphabetSize];
+        int[] fail = new int[size];
+        List<List<Integer>> merged = new ArrayList<>(terminal);
+        Queue<Integer> queue = new ArrayDeque<>();
+
+        for (int symbol = 0; symbol < alphabetSize; symbol++) {
+            int child = goTo.get(0)[symbol];
+            if (child > 0) {
+                delta[symbol] = child;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                int child = goTo.get(node)[symbol];
+                if (child > 0) {
+                    fail[child] = delta[fail[node] * alphabetSize + symbol];
+                    List<Integer> out = new ArrayList<>(terminal.get(child));
+                    out.addAll(merged.get(fail[child]));
+                    merged.set(child, out);
+                    delta[node * alphabetSize + symbol] = child;
+                    queue.add(child);
+                } else {
+                    delta[node * alphabetSize + symbol] = delta[fail[node] * alphabetSize + symbol];
+                }
+            }
+        }
+
+        int[][] outputs = new int[size][];
+        for (int node = 0; node < size; node++) {
+            outputs[node] = merged.get(node).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        return new KeywordAutomaton(categories, charClass, alphabetSize, delta, outputs);
+    }
+
+    /**
+     * 单次遍历输入，返回各类别的命中次数（下标与 {@link #categories()} 对应）
+     */
+    public int[] score(CharSequence input) {
+        int[] scores = new int[categories.length];
+        int node = 0;
+        for (int i = 0, n = input.length(); i < n; i++) {
+            node = delta[node * alphabetSize + charClass[input.charAt(i)]];
+            int[] hits = outputs[node];
+            for (int category : hits) {
+                scores[category]++;
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * 返回得分最高的类别；没有任何命中时返回 fallback，得分相同时取声明靠前的类别
+     */
+    public String best(CharSequence input, String fallback) {
+        int[] scores = score(input);
+        int bestIndex = -1;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > 0 && (bestIndex < 0 || scores[i] > scores[bestIndex])) {
+                bestIndex = i;
+            }
+        }
+        return bestIndex < 0 ? fallback : categories[bestIndex];
+    }
+
+    public List<String> categories() {
+        return List.of(categories);
+    }
+
+    private static String normalize(String keyword) {
+        if (keyword == null) {
+            return "";
+        }
+        // 逐字符折叠，与匹配时的字符分类表保持一致
+        char[] chars = keyword.strip().toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static int[] newRow(int alphabetSize) {
+        int[] row = new int[alphabetSize];
+        Arrays.fill(row, -1);
+        return row;
+    }
+}
@@ -2,44 +2,51 @@ package com.example.modelintegration.service;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import com.example.modelintegration.config.ChatClientFactory;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.util.function.SingletonSupplier;
 
 @Service
 public class ModelSelectionService {
 
-    private final Map<String, ChatClient> chatClients;
+    private final Map<String, Supplier<ChatClient>> chatClients;
     private final Map<String, String> modelDescriptions;
-
-    public ModelSelectionService(ChatClientFactory clientFactory) {
-        // 创建不同配置的客户端
+    private final TaskKeywordRouter keywordRouter;
+    private final SemanticTaskRouter semanticRouter;
+
+    public ModelSelectionService(ChatClientFactory clientFactory,
+                                 TaskKeywordRouter keywordRouter,
+                                 SemanticTaskRouter semanticRouter) {
+        this.keywordRouter = keywordRouter;
+        this.semanticRouter = semanticRouter;
+        // 创建不同配置的客户端（首次被选中时才构建）
         this.chatClients = new HashMap<>();
         this.modelDescriptions = new HashMap<>();
 
         // 基础模型
-        this.chatClients.put("default", clientFactory.getPrimaryChatClient());
+        this.chatClients.put("default", clientFactory::getPrimaryChatClient);
         this.modelDescriptions.put("default", "通用助手，适合日常问答");
 
         // 代码分析模型
-        this.chatClients.put("technical", clientFactory.getCodeChatClient());
+        this.chatClients.put("technical", clientFactory::getCodeChatClient);
         this.modelDescriptions.put("technical", "技术专家，专注代码分析和技术解答");
 
         // 创意写作模型
-        this.chatClients.put("creative", clientFactory.getCreativeChatClient());
+        this.chatClients.put("creative", clientFactory::getCreativeChatClient);
         this.modelDescriptions.put("creative", "创意作家，擅长文学创作和内容创意");
 
         // 业务咨询模型
-        this.chatClients.put("business", ChatClient.builder(clientFactory.getChatModel())
-                .defaultSystem("""
-                        你是一个资深的商业顾问，擅长商业分析、市场策略和企业管理。
-                        请用专业且易懂的语言回答商业相关问题。
-                        """)
-                .build());
+        this.chatClients.put("business", SingletonSupplier.of(() -> clientFactory.createChatClient("""
+                你是一个资深的商业顾问，擅长商业分析、市场策略和企业管理。
+                请用专业且易懂的语言回答商业相关问题。
+                """)));
         this.modelDescriptions.put("business", "商业顾问，专注商业分析和策略规划");
     }
 
@@ -59,7 +66,10 @@ public class ModelSelectionService {
      * 智能任务路由 - 根据输入内容自动选择最合适的模型
      */
     public Map<String, Object> smartTaskRouting(String input) {
-        String taskType = detectTaskType(input);
+        // 优先语义路由，置信度不足或嵌入不可用时回退到关键词路由
+        Optional<SemanticTaskRouter.Route> semanticRoute = semanticRouter.route(input);
+        String taskType = semanticRoute.map(SemanticTaskRouter.Route::taskType)
+                .orElseGet(() -> detectTaskType(input));
         ChatClient selectedClient = selectModelForTask(taskType);
 
         long startTime = System.currentTimeMillis();
@@ -72,6 +82,8 @@ public class ModelSelectionService {
         return Map.of(
                 "input", input,
                 "detectedTaskType", taskType,
+                "routingMethod", semanticRoute.isPresent() ? "semantic" : "keyword",
+                "confidence", semanticRoute.map(SemanticTaskRouter.Route::confidence).orElse(0.0),
                 "selectedModel", getModelNameForTask(taskType),
                 "response", response,
                 "duration", duration,
@@ -102,38 +114,18 @@ public class ModelSelectionService {
 
     private ChatClient selectModelForTask(String taskType) {
         return switch (taskType.toLowerCase()) {
-            case "creative", "writing", "story" -> chatClients.get("creative");
-            case "technical", "code", "programming" -> chatClients.get("technical");
-            case "business", "strategy", "analysis" -> chatClients.get("business");
-            default -> chatClients.get("default");
+            case "creative", "writing", "story" -> chatClients.get("creative").get();
+            case "technical", "code", "programming" -> chatClients.get("technical").get();
+            case "business", "strategy", "analysis" -> chatClients.get("business").get();
+            default -> chatClients.get("default").get();
         };
     }
 
+    /**
+     * 关键词路由：单次扫描统计各类别命中次数，关键词表见 task-keywords.properties
+     */
     private String detectTaskType(String input) {
-        String lowerInput = input.toLowerCase();
-
-        // 代码相关关键词
-        if (lowerInput.contains("代码") || lowerInput.contains("程序") ||
-                lowerInput.contains("函数") || lowerInput.contains("bug") ||
-                lowerInput.contains("编程") || lowerInput.contains("算法")) {
-            return "technical";
-        }
-
-        // 创意写作相关关键词
-        if (lowerInput.contains("写作") || lowerInput.contains("故事") ||
-                lowerInput.contains("诗歌") || lowerInput.contains("创意") ||
-                lowerInput.contains("小说") || lowerInput.contains("文章")) {
-            return "creative";
-        }
-
-        // 商业相关关键词
-        if (lowerInput.contains("商业") || lowerInput.contains("市场") ||
-                lowerInput.contains("策略") || lowerInput.contains("管理") ||
-                lowerInput.contains("营销") || lowerInput.contains("分析")) {
-            return "business";
-        }
-
-        return "default";
+        return keywordRouter.detect(input);
     }
 
     private String getModelNameForTask(String taskType) {
@@ -0,0 +1,206 @@
+package com.example.modelintegration.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+import com.example.modelintegration.config.ChatClientFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * 自动调参引擎
+ * 按用例对 temperature / topP / maxTokens 做网格或随机扫描，记录延迟、输出 token 数和质量分，
+ * 结果持久化到 {@link TuningRunStore}，推荐配置取自实测的 Pareto 前沿
+ */
+@Service
+public class ParameterTuner {
+
+    public static final String GRID = "grid";
+    public static final String RANDOM = "random";
+
+    private static final Map<String, SearchSpace> DEFAULT_SPACES = Map.of(
+            "qa", new SearchSpace(List.of(0.0, 0.3, 0.7), List.of(0.1, 0.5, 0.9), List.of(200, 400)),
+            "chat", new SearchSpace(List.of(0.3, 0.7, 1.0), List.of(0.5, 0.9, 1.0), List.of(300, 600)),
+            "code", new SearchSpace(List.of(0.0, 0.2, 0.5), List.of(0.1, 0.5, 0.9), List.of(400, 800)),
+            "creative", new SearchSpace(List.of(0.7, 1.0, 1.3), List.of(0.8, 0.9, 1.0), List.of(600, 1000))
+    );
+
+    private final ChatModel chatModel;
+    private final ParameterTuningService tuningService;
+    private final TuningRunStore store;
+    private final QualityScorer qualityScorer;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+    private final Duration callTimeout;
+    private final int maxTrials;
+
+    public ParameterTuner(ChatClientFactory factory,
+                          ParameterTuningService tuningService,
+                          TuningRunStore store,
+                          QualityScorer qualityScorer,
+                          @Value("${app.tuning.tune.max-concurrency:8}") int maxConcurrency,
+                          @Value("${app.tuning.call-timeout:30s}") Duration callTimeout,
+                          @Value("${app.tuning.max-trials:72}") int maxTrials) {
+        this.chatModel = factory.getChatModel();
+        this.tuningService = tuningService;
+        this.store = store;
+        this.qualityScorer = qualityScorer;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.permits = new Semaphore(this.maxConcurrency);
+        this.callTimeout = callTimeout;
+        this.maxTrials = maxTrials;
+    }
+
+    /**
+     * 执行一次调参运行并持久化结果
+     *
+     * @param space    搜索空间，为 null 时使用用例的默认空间
+     * @param strategy grid 或 random
+     * @param samples  random 策略下抽取的参数组合数
+     */
+    public Map<String, Object> tune(String useCase, List<String> prompts, SearchSpace space,
+                                    String strategy, int samples) {
+        if (prompts == null || prompts.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个评测 prompt");
+        }
+        // 用例名在结果落盘时才用到，先校验，避免跑完整个网格的模型调用后才因名称无效失败
+        store.normalize(useCase);
+        SearchSpace resolved = space != null ? space : defaultSpace(useCase);
+        long configurations = RANDOM.equalsIgnoreCase(strategy)
+                ? Math.min(Math.max(1, samples), resolved.size())
+                : resolved.size();
+        if (configurations * prompts.size() > maxTrials) {
+            throw new IllegalArgumentException("参数组合数 × prompt 数为 " + configurations * prompts.size()
+                    + "，超过单次调参上限 " + maxTrials);
+        }
+        List<SearchSpace.Point> points = RANDOM.equalsIgnoreCase(strategy)
+                ? resolved.sample(samples, new Random())
+                : resolved.grid();
+
+        String runId = UUID.randomUUID().toString();
+        Map<String, ParameterTuningService.SweepTask<TuningTrial>> tasks = new LinkedHashMap<>();
+        for (SearchSpace.Point point : points) {
+            for (int i = 0; i < prompts.size(); i++) {
+                String prompt = prompts.get(i);
+                tasks.put(point + "#" + i, new ParameterTuningService.SweepTask<>(
+                        () -> runTrial(runId, useCase, prompt, point),
+                        reason -> failedTrial(runId, useCase, point)));
+            }
+        }
+
+        // 调参的试验数远多于普通扫描：按试验数分批估算截止时间，每批最多跑满一次调用超时
+        long waves = (tasks.size() + maxConcurrency - 1) / maxConcurrency;
+        Duration budget = callTimeout.multipliedBy(waves);
+
+        long startTime = System.currentTimeMillis();
+        List<TuningTrial> trials = new ArrayList<>(tuningService.runSweep(tasks, (key, trial) -> {
+        }, budget, permits).values());
+        long duration = System.currentTimeMillis() - startTime;
+
+        store.append(useCase, trials);
+
+        return Map.of(
+                "runId", runId,
+                "useCase", useCase,
+                "strategy", RANDOM.equalsIgnoreCase(strategy) ? RANDOM : GRID,
+                "configurations", points.size(),
+                "trials", trials.size(),
+                "failed", trials.stream().filter(trial -> !trial.succeeded()).count(),
+                "paretoFront", store.paretoFront(useCase),
+                "durationMs", duration,
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
+    public SearchSpace defaultSpace(String useCase) {
+        return DEFAULT_SPACES.getOrDefault(useCase.toLowerCase(), DEFAULT_SPACES.get("chat"));
+    }
+
+    private TuningTrial runTrial(String runId, String useCase, String prompt, SearchSpace.Point point) {
+        try {
+            ChatClient client = ChatClient.builder(chatModel)
+                    .defaultOptions(ChatOptions.builder()
+                            .temperature(point.temperature())
+                            .topP(point.topP())
+                            .maxTokens(point.maxTokens())
+                            .build())
+                    .build();
+
+            long startTime = System.currentTimeMillis();
+            ChatResponse response = client.prompt()
+                    .user(prompt)
+                    .call()
+                    .chatResponse();
+            long latency = System.currentTimeMillis() - startTime;
+
+            String text = response.getResult().getOutput().getText();
+            Usage usage = response.getMetadata().getUsage();
+            int outputTokens = usage != null && usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0;
+
+            return new TuningTrial(runId, useCase, point.temperature(), point.topP(), point.maxTokens(),
+                    latency, outputTokens, qualityScorer.score(useCase, prompt, text), "success",
+                    System.currentTimeMillis());
+        } catch (Exception e) {
+            return failedTrial(runId, useCase, point);
+        }
+    }
+
+    private TuningTrial failedTrial(String runId, String useCase, SearchSpace.Point point) {
+        return new TuningTrial(runId, useCase, point.temperature(), point.topP(), point.maxTokens(),
+                0, 0, 0, "failed", System.currentTimeMillis());
+    }
+
+    /**
+     * 参数搜索空间
+     */
+    public record SearchSpace(List<Double> temperatures, List<Double> topPs, List<Integer> maxTokens) {
+
+        /**
+         * 网格中的组合数
+         */
+        public long size() {
+            return (long) temperatures.size() * topPs.size() * maxTokens.size();
+        }
+
+        public List<Point> grid() {
+            List<Point> points = new ArrayList<>();
+            for (double temperature : temperatures) {
+                for (double topP : topPs) {
+                    for (int tokens : maxTokens) {
+                        points.add(new Point(temperature, topP, tokens));
+                    }
+                }
+            }
+            return points;
+        }
+
+        /**
+         * 从网格中无放回随机抽取 samples 个组合
+         */
+        public List<Point> sample(int samples, Random random) {
+            List<Point> points = grid();
+            Collections.shuffle(points, random);
+            return points.subList(0, Math.min(Math.max(1, samples), points.size()));
+        }
+
+        public record Point(double temperature, double topP, int maxTokens) {
+
+            @Override
+            public String toString() {
+                return temperature + "/" + topP + "/" + maxTokens;
+            }
+        }
+    }
+}
@@ -1,82 +1,256 @@
 package com.example.modelintegration.service;
 
+import com.example.modelintegration.config.CallPriority;
 import com.example.modelintegration.config.ChatClientFactory;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 public class ParameterTuningService {
 
     private final ChatModel chatModel;
+    private final TuningRunStore runStore;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final Duration callTimeout;
+    private final Duration sweepDeadline;
 
-    public ParameterTuningService(ChatClientFactory factory) {
+    public ParameterTuningService(ChatClientFactory factory,
+                                  TuningRunStore runStore,
+                                  @Value("${app.tuning.max-concurrency:5}") int maxConcurrency,
+                                  @Value("${app.tuning.call-timeout:30s}") Duration callTimeout,
+                                  @Value("${app.tuning.sweep-deadline:60s}") Duration sweepDeadline) {
         this.chatModel = factory.getChatModel();
+        this.runStore = runStore;
+        this.permits = new Semaphore(Math.max(1, maxConcurrency));
+        this.callTimeout = callTimeout;
+        this.sweepDeadline = sweepDeadline;
     }
 
     /**
      * 测试不同 Temperature 值的效果
      */
     public List<Map<String, Object>> testTemperatureEffects(String prompt) {
+        return testTemperatureEffects(prompt, (key, result) -> {
+        });
+    }
+
+    /**
+     * 测试不同 Temperature 值的效果，每完成一个配置就回调一次
+     */
+    public List<Map<String, Object>> testTemperatureEffects(String prompt,
+                                                            BiConsumer<String, Map<String, Object>> onResult) {
         double[] temperatures = {0.0, 0.3, 0.7, 1.0, 1.5};
-        List<Map<String, Object>> results = new ArrayList<>();
+        Map<String, SweepTask<Map<String, Object>>> tasks = new LinkedHashMap<>();
 
         for (double temperature : temperatures) {
-            try {
-                ChatClient client = ChatClient.builder(chatModel)
-                        .defaultOptions(ChatOptions.builder()
-                                .temperature(temperature)
-                                .maxTokens(200)
-                                .build())
-                        .build();
-
-                long startTime = System.currentTimeMillis();
-                String response = client.prompt()
-                        .user(prompt)
-                        .call()
-                        .content();
-                long duration = System.currentTimeMillis() - startTime;
-
-                results.add(Map.of(
-                        "temperature", temperature,
-                        "response", response,
-                        "responseLength", response.length(),
-                        "durationMs", duration
-                ));
-            } catch (Exception e) {
-                results.add(Map.of(
-                        "temperature", temperature,
-                        "error", e.getMessage(),
-                        "status", "failed"
-                ));
-            }
+            tasks.put(String.valueOf(temperature), new SweepTask<>(
+                    () -> runTemperature(prompt, temperature),
+                    reason -> Map.of(
+                            "temperature", temperature,
+                            "error", reason,
+                            "status", "failed"
+                    )));
         }
 
-        return results;
+        return new ArrayList<>(runSweep(tasks, onResult).values());
+    }
+
+    private Map<String, Object> runTemperature(String prompt, double temperature) {
+        try {
+            ChatClient client = ChatClient.builder(chatModel)
+                    .defaultOptions(ChatOptions.builder()
+                            .temperature(temperature)
+                            .maxTokens(200)
+                            .build())
+                    .build();
+
+            long startTime = System.currentTimeMillis();
+            String response = client.prompt()
+                    .user(prompt)
+                    .call()
+                    .content();
+            long duration = System.currentTimeMillis() - startTime;
+
+            return Map.of(
+                    "temperature", temperature,
+                    "response", response,
+                    "responseLength", response.length(),
+                    "durationMs", duration
+            );
+        } catch (Exception e) {
+            return Map.of(
+                    "temperature", temperature,
+                    "error", String.valueOf(e.getMessage()),
+                    "status", "failed"
+            );
+        }
     }
 
     /**
      * 对比不同参数组合的效果
      */
     public Map<String, Object> compareParameterCombinations(String prompt) {
-        Map<String, Object> results = new HashMap<>();
+        return compareParameterCombinations(prompt, (key, result) -> {
+        });
+    }
+
+    /**
+     * 对比不同参数组合的效果，每完成一个配置就回调一次
+     */
+    public Map<String, Object> compareParameterCombinations(String prompt,
+                                                            BiConsumer<String, Map<String, Object>> onResult) {
+        Map<String, SweepTask<Map<String, Object>>> tasks = new LinkedHashMap<>();
 
         // 保守配置：适合需要准确性的场景
-        results.put("conservative", testConfiguration(prompt, 0.0f, 0.1f, 200, "保守配置"));
+        tasks.put("conservative", configurationTask(prompt, 0.0f, 0.1f, 200, "保守配置"));
 
         // 平衡配置：适合一般对话场景
-        results.put("balanced", testConfiguration(prompt, 0.7f, 0.9f, 500, "平衡配置"));
+        tasks.put("balanced", configurationTask(prompt, 0.7f, 0.9f, 500, "平衡配置"));
 
         // 创造性配置：适合内容创作场景
-        results.put("creative", testConfiguration(prompt, 1.2f, 0.95f, 800, "创造性配置"));
+        tasks.put("creative", configurationTask(prompt, 1.2f, 0.95f, 800, "创造性配置"));
+
+        return new HashMap<>(runSweep(tasks, onResult));
+    }
+
+    private SweepTask<Map<String, Object>> configurationTask(String prompt, double temperature, double topP,
+                                        int maxTokens, String description) {
+        return new SweepTask<>(
+                () -> testConfiguration(prompt, temperature, topP, maxTokens, description),
+                reason -> Map.of(
+                        "description", description,
+                        "parameters", Map.of(
+                                "temperature", temperature,
+                                "topP", topP,
+                                "maxTokens", maxTokens
+                        ),
+                        "error", reason,
+                        "status", "failed"
+                ));
+    }
+
+    /**
+     * 在虚拟线程上并发执行一组调用
+     * 并发数受 max-concurrency 限制，单次调用受 call-timeout 限制，整体受 sweep-deadline 限制；
+     * 结果按完成顺序回调，返回时按任务声明顺序排列
+     */
+    <T> Map<String, T> runSweep(Map<String, SweepTask<T>> tasks, BiConsumer<String, T> onResult) {
+        return runSweep(tasks, onResult, sweepDeadline, permits);
+    }
+
+    /**
+     * 同上，但使用调用方自己的整体截止时间与并发配额
+     */
+    <T> Map<String, T> runSweep(Map<String, SweepTask<T>> tasks, BiConsumer<String, T> onResult,
+                                Duration budget, Semaphore permits) {
+        long deadline = System.nanoTime() + budget.toNanos();
+        CompletionService<Map.Entry<String, T>> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Map.Entry<String, T>>> futures = new ArrayList<>();
+
+        tasks.forEach((key, task) -> futures.add(completion.submit(
+                () -> Map.entry(key, runBounded(task, deadline, permits)))));
+
+        Map<String, T> completed = new HashMap<>();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                long remaining = deadline - System.nanoTime();
+                Future<Map.Entry<String, T>> done = completion.poll(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    break;
+                }
+                Map.Entry<String, T> entry = done.get();
+                completed.put(entry.getKey(), entry.getValue());
+                onResult.accept(entry.getKey(), entry.getValue());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("参数扫描执行失败", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+
+        Map<String, T> ordered = new LinkedHashMap<>();
+        tasks.forEach((key, task) -> {
+            T result = completed.get(key);
+            if (result == null) {
+                result = task.failure().apply("超过整体截止时间 " + budget.toMillis() + "ms");
+                onResult.accept(key, result);
+            }
+            ordered.put(key, result);
+        });
+        return ordered;
+    }
+
+    private <T> T runBounded(SweepTask<T> task, long deadline, Semaphore permits)
+            throws InterruptedException {
+        long waitNanos = deadline - System.nanoTime();
+        if (!permits.tryAcquire(Math.max(0, waitNanos), TimeUnit.NANOSECONDS)) {
+            return task.failure().apply("等待并发配额超时");
+        }
+        // 名额由实际执行调用的任务在结束时归还：超时取消后调用可能仍在进行，提前归还会突破并发上限。
+        // claimed 决定由谁归还——任务开始执行时认领；取消时任务尚未开始则由这里认领并归还
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<T> call;
+        try {
+            // 扫描属于后台流量，与交互请求竞争名额时按 BATCH 排队；由异步任务发起时仍计入提交者的 token 配额
+            call = executor.submit(CallPriority.BATCH.wrap(RequestScope.inheritClient(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return null;
+                }
+                try {
+                    return task.call().get();
+                } finally {
+                    permits.release();
+                }
+            })));
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        try {
+            long timeoutNanos = Math.min(callTimeout.toNanos(), deadline - System.nanoTime());
+            return call.get(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return task.failure().apply("单次调用超时");
+        } catch (ExecutionException e) {
+            return task.failure().apply(String.valueOf(e.getCause().getMessage()));
+        } finally {
+            call.cancel(true);
+            if (claimed.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
 
-        return results;
+    /**
+     * 一次扫描调用：正常执行逻辑与超时/失败时的结果构造
+     */
+    record SweepTask<T>(Supplier<T> call, Function<String, T> failure) {
     }
 
     /**
@@ -120,7 +294,7 @@ public class ParameterTuningService {
                             "topP", topP,
                             "maxTokens", maxTokens
                     ),
-                    "error", e.getMessage(),
+                    "error", String.valueOf(e.getMessage()),
                     "status", "failed"
             );
         }
@@ -128,8 +302,20 @@ public class ParameterTuningService {
 
     /**
      * 参数建议服务
+     * 已有实测调参结果时取 Pareto 前沿上的最优配置，否则返回经验默认值
      */
     public Map<String, Object> getParameterRecommendations(String useCase) {
+        Map<String, Object> measured = useCase.matches("[A-Za-z0-9_-]{1,64}") ? runStore.bestOnFront(useCase) : null;
+        if (measured != null) {
+            return Map.of(
+                    "useCase", useCase,
+                    "recommendation", measured,
+                    "paretoFront", runStore.paretoFront(useCase),
+                    "source", "measured",
+                    "timestamp", System.currentTimeMillis()
+            );
+        }
+
         Map<String, Map<String, Object>> recommendations = new HashMap<>();
 
         recommendations.put("qa", Map.of(
@@ -173,6 +359,7 @@ public class ParameterTuningService {
                 "useCase", useCase,
                 "recommendation", recommendation,
                 "allOptions", recommendations.keySet(),
+                "source", "default",
                 "timestamp", System.currentTimeMillis()
         );
     }
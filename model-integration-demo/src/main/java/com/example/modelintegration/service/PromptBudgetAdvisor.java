@@ -0,0 +1,218 @@
+package com.example.modelintegration.service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+/**
+ * 调用前的 prompt 预算检查
+ * 用 {@link TokenEstimator} 在本地估算 prompt 大小，超出路由预算时按策略处理，不必等供应商往返后才失败：
+ * truncate 截断最后一条用户消息的中段；compact 先压缩空白，仍超出再截断；reject 抛出 {@link PromptTooLargeException}（413）。
+ * 路由沿用 {@link ResponseCacheAdvisor#ROUTE} 参数，预算通过 app.prompt-budget.routes.&lt;route&gt;.max-prompt-tokens / action 配置。
+ * 调用结束后用实际 usage 校准估算器。
+ */
+@Component
+public class PromptBudgetAdvisor implements CallAdvisor, StreamAdvisor {
+
+    /** 处理结果写入响应上下文：估算 token 数、采取的动作与裁掉的 token 数 */
+    public static final String RESULT = "prompt_budget";
+
+    private static final Pattern TRAILING_WHITESPACE = Pattern.compile("[ \\t]+(?=\\R|$)");
+    private static final Pattern BLANK_LINES = Pattern.compile("(\\R[ \\t]*){3,}");
+    private static final Pattern INNER_WHITESPACE = Pattern.compile("(?<=\\S)[ \\t]{2,}");
+
+    public enum Action {
+        TRUNCATE, COMPACT, REJECT
+    }
+
+    private final TokenEstimator estimator;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int defaultMaxPromptTokens;
+    private final Action defaultAction;
+
+    public PromptBudgetAdvisor(TokenEstimator estimator,
+                               Environment environment,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.prompt-budget.enabled:true}") boolean enabled,
+                               @Value("${app.prompt-budget.max-prompt-tokens:24000}") int defaultMaxPromptTokens,
+                               @Value("${app.prompt-budget.action:truncate}") String defaultAction) {
+        this.estimator = estimator;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.defaultMaxPromptTokens = defaultMaxPromptTokens;
+        this.defaultAction = Action.valueOf(defaultAction.toUpperCase(Locale.ROOT));
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        if (!enabled) {
+            return chain.nextCall(request);
+        }
+        String route = route(request);
+        Fitted fitted = fit(route, request.prompt());
+        ChatClientResponse response = chain.nextCall(request.mutate().prompt(fitted.prompt()).build());
+
+        Object cache = response.context().get(ResponseCacheAdvisor.RESULT);
+        // 命中缓存的响应带的是旧 usage，不用于校准
+        if (!"exact".equals(cache) && !"semantic".equals(cache)) {
+            calibrate(route, fitted.rawTokens(), response.chatResponse());
+        }
+        return response.mutate().context(RESULT, fitted.summary()).build();
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        if (!enabled) {
+            return chain.nextStream(request);
+        }
+        String route = route(request);
+        Fitted fitted = fit(route, request.prompt());
+        AtomicReference<ChatResponse> last = new AtomicReference<>();
+        return chain.nextStream(request.mutate().prompt(fitted.prompt()).build())
+                .doOnNext(response -> {
+                    if (response.chatResponse() != null) {
+                        last.set(response.chatResponse());
+                    }
+                })
+                .doOnComplete(() -> calibrate(route, fitted.rawTokens(), last.get()));
+    }
+
+    @Override
+    public String getName() {
+        return "PromptBudgetAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        // 最先执行：超限请求直接拒绝；截断后的大小再交给缓存与限流
+        return Ordered.HIGHEST_PRECEDENCE + 50;
+    }
+
+    /**
+     * 路由的预算；未单独配置时用默认值
+     */
+    public int maxPromptTokens(String route) {
+        return environment.getProperty("app.prompt-budget.routes." + route + ".max-prompt-tokens", Integer.class,
+                defaultMaxPromptTokens);
+    }
+
+    private Action action(String route) {
+        String action = environment.getProperty("app.prompt-budget.routes." + route + ".action");
+        return action != null ? Action.valueOf(action.toUpperCase(Locale.ROOT)) : defaultAction;
+    }
+
+    private Fitted fit(String route, Prompt prompt) {
+        int rawTokens = estimator.count(prompt);
+        int estimated = estimator.estimate(route, rawTokens);
+        int budget = maxPromptTokens(route);
+        if (estimated <= budget) {
+            return new Fitted(prompt, rawTokens, summary(estimated, budget, "none", 0));
+        }
+
+        Action action = action(route);
+        UserMessage userMessage = prompt.getUserMessage();
+        String text = userMessage.getText();
+        if (action == Action.REJECT || text == null || text.isEmpty()) {
+            counter(route, "reject").increment();
+            throw new PromptTooLargeException(route, estimated, budget);
+        }
+
+        // 预算按校准后的 token 计，换算回 BPE 计数；其余消息（系统提示、历史）保持不变
+        double factor = estimated / (double) rawTokens;
+        int otherTokens = rawTokens - estimator.count(text);
+        int textBudget = (int) Math.floor(budget / factor) - otherTokens;
+        if (textBudget <= 0) {
+            counter(route, "reject").increment();
+            throw new PromptTooLargeException(route, estimated, budget);
+        }
+
+        String fittedText = text;
+        String applied = "truncate";
+        if (action == Action.COMPACT) {
+            fittedText = compact(text);
+            applied = "compact";
+        }
+        if (estimator.count(fittedText) > textBudget) {
+            fittedText = estimator.truncate(fittedText, textBudget);
+            applied = action == Action.COMPACT ? "compact+truncate" : "truncate";
+        }
+
+        String finalText = fittedText;
+        Prompt fittedPrompt = prompt.augmentUserMessage(message -> message.mutate().text(finalText).build());
+        int fittedRaw = estimator.count(fittedPrompt);
+        int trimmed = estimated - estimator.estimate(route, fittedRaw);
+        counter(route, applied).increment();
+        Counter.builder("ai.prompt.budget.tokens.trimmed")
+                .description("Estimated prompt tokens removed before the call")
+                .tag("route", route)
+                .register(meterRegistry)
+                .increment(trimmed);
+        return new Fitted(fittedPrompt, fittedRaw, summary(estimated, budget, applied, trimmed));
+    }
+
+    /**
+     * 只压缩空白：去掉行尾空白、合并连续空行、合并行内的连续空格；保留行首缩进
+     */
+    static String compact(String text) {
+        String compacted = TRAILING_WHITESPACE.matcher(text).replaceAll("");
+        compacted = BLANK_LINES.matcher(compacted).replaceAll("\n\n");
+        return INNER_WHITESPACE.matcher(compacted).replaceAll(" ");
+    }
+
+    private void calibrate(String route, int rawTokens, ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage != null && usage.getPromptTokens() != null) {
+            estimator.record(route, rawTokens, usage.getPromptTokens());
+        }
+    }
+
+    private Counter counter(String route, String action) {
+        return Counter.builder("ai.prompt.budget.actions")
+                .description("Prompts over budget, by the action taken")
+                .tag("route", route)
+                .tag("action", action)
+                .register(meterRegistry);
+    }
+
+    private static Map<String, Object> summary(int estimated, int budget, String action, int trimmed) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("estimatedTokens", estimated);
+        summary.put("budget", budget);
+        summary.put("action", action);
+        summary.put("trimmedTokens", trimmed);
+        return summary;
+    }
+
+    private static String route(ChatClientRequest request) {
+        return String.valueOf(request.context().getOrDefault(ResponseCacheAdvisor.ROUTE, "default"));
+    }
+
+    private record Fitted(Prompt prompt, int rawTokens, Map<String, Object> summary) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.modelintegration.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+
+/**
+ * Prompt 指纹工具
+ * 响应缓存与请求合并共用：把系统提示词、模型参数与用户输入规范化后做摘要，判断两次请求是否等价
+ */
+final class PromptFingerprint {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private PromptFingerprint() {
+    }
+
+    /**
+     * 作用域摘要：系统提示词 + 模型参数
+     */
+    static String scope(Prompt prompt) {
+        String system = prompt.getInstructions().stream()
+                .filter(message -> message.getMessageType() == MessageType.SYSTEM)
+                .map(message -> normalize(message.getText()))
+                .collect(Collectors.joining("\n"));
+        ChatOptions options = prompt.getOptions();
+        String optionsKey = options == null ? "" : String.join("|",
+                Objects.toString(options.getModel(), ""),
+                Objects.toString(options.getTemperature(), ""),
+                Objects.toString(options.getTopP(), ""),
+                Objects.toString(options.getTopK(), ""),
+                Objects.toString(options.getMaxTokens(), ""),
+                Objects.toString(options.getFrequencyPenalty(), ""),
+                Objects.toString(options.getPresencePenalty(), ""),
+                Objects.toString(options.getStopSequences(), ""));
+        return digest(system + '\u0000' + optionsKey);
+    }
+
+    /**
+     * 拼接全部用户消息并规范化空白
+     */
+    static String userText(Prompt prompt) {
+        return normalize(prompt.getInstructions().stream()
+                .filter(message -> message.getMessageType() == MessageType.USER)
+                .map(message -> message.getText())
+                .collect(Collectors.joining("\n")));
+    }
+
+    /**
+     * 完整摘要：作用域 + 用户输入
+     */
+    static String of(Prompt prompt) {
+        return digest(scope(prompt) + '\u0000' + userText(prompt));
+    }
+
+    /**
+     * temperature 未设置或不超过上限时视为确定性请求，相同输入可以共享结果
+     */
+    static boolean deterministic(ChatOptions options, double maxTemperature) {
+        return options == null || options.getTemperature() == null || options.getTemperature() <= maxTemperature;
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : WHITESPACE.matcher(text.strip()).replaceAll(" ");
+    }
+
+    static String digest(String value) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.modelintegration.service;
+
+/**
+ * prompt 超出路由的 token 预算
+ */
+public class PromptTooLargeException extends RuntimeException {
+
+    private final String route;
+    private final int estimatedTokens;
+    private final int budget;
+
+    public PromptTooLargeException(String route, int estimatedTokens, int budget) {
+        super("请求约 " + estimatedTokens + " 个 token，超出 " + route + " 的预算 " + budget);
+        this.route = route;
+        this.estimatedTokens = estimatedTokens;
+        this.budget = budget;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public int getEstimatedTokens() {
+        return estimatedTokens;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+}
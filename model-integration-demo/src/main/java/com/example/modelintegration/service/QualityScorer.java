@@ -0,0 +1,10 @@
+package com.example.modelintegration.service;
+
+/**
+ * 回答质量评分接口
+ * 返回 [0, 1] 区间的分数，分数越高越好；可通过声明 @Primary Bean 替换默认实现
+ */
+public interface QualityScorer {
+
+    double score(String useCase, String prompt, String response);
+}
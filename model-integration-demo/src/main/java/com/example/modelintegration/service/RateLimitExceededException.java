@@ -0,0 +1,36 @@
+package com.example.modelintegration.service;
+
+/**
+ * 调用方的 token 配额不足
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final String clientId;
+    private final long limit;
+    private final long remaining;
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String clientId, long limit, long remaining, long retryAfterSeconds) {
+        super("调用方 " + clientId + " 的 token 配额已用尽，请 " + retryAfterSeconds + " 秒后重试");
+        this.clientId = clientId;
+        this.limit = limit;
+        this.remaining = remaining;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public long getRemaining() {
+        return remaining;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.modelintegration.service;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * 把 HTTP 请求绑定到工作线程
+ * 限流与指标 advisor 通过 RequestContextHolder 识别调用方；任务分发到其他线程执行时，需要在线程上重新绑定请求，
+ * 否则这些调用会被当作后台调用而绕过按调用方的限流。
+ * 脱离请求执行的异步任务没有可绑定的请求，改为用 {@link #runAs} 显式绑定提交时记录的调用方标识。
+ */
+final class RequestScope {
+
+    private static final ThreadLocal<String> CLIENT_ID = new ThreadLocal<>();
+
+    private RequestScope() {
+    }
+
+    /**
+     * 当前线程显式绑定的调用方标识，未绑定时为 null
+     */
+    static String clientId() {
+        return CLIENT_ID.get();
+    }
+
+    /**
+     * 以指定调用方身份执行，结束后恢复原值；clientId 为 null 时直接执行
+     */
+    static void runAs(String clientId, Runnable task) {
+        String previous = CLIENT_ID.get();
+        if (clientId == null) {
+            task.run();
+            return;
+        }
+        CLIENT_ID.set(clientId);
+        try {
+            task.run();
+        } finally {
+            if (previous == null) {
+                CLIENT_ID.remove();
+            } else {
+                CLIENT_ID.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 把当前线程显式绑定的调用方带到执行 task 的线程上
+     */
+    static <T> Callable<T> inheritClient(Callable<T> task) {
+        String clientId = CLIENT_ID.get();
+        if (clientId == null) {
+            return task;
+        }
+        return () -> {
+            CLIENT_ID.set(clientId);
+            try {
+                return task.call();
+            } finally {
+                CLIENT_ID.remove();
+            }
+        };
+    }
+
+    static <T> Callable<T> propagate(RequestAttributes requestAttributes, Callable<T> task) {
+        return () -> {
+            if (requestAttributes == null) {
+                return task.call();
+            }
+            RequestContextHolder.setRequestAttributes(requestAttributes);
+            try {
+                return task.call();
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+        };
+    }
+}
@@ -0,0 +1,424 @@
+package com.example.modelintegration.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.example.modelintegration.config.EmbeddingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * 响应缓存 Advisor
+ * 精确层以 规范化用户输入 + 系统提示词 + 模型参数 的摘要为键；语义层在相同系统提示词与参数下，
+ * 返回与输入余弦相似度超过阈值的已缓存回答。命中时直接返回，不再调用模型。
+ * 策略按路由配置（app.response-cache.routes.&lt;route&gt;=off|exact|semantic），路由通过 {@link #ROUTE} 参数传入。
+ * 只缓存实际 temperature 不超过 app.response-cache.max-temperature 的请求，其余请求直接放行（bypass），不改写请求参数；
+ * 需要命中缓存的路由应在自己的客户端参数中显式设置确定性的 temperature。
+ * 语义层按作用域（路由 + 系统提示词 + 参数）分区，每个分区独立加锁、独立限制条数，只在同一分区内线性比较。
+ */
+@Component
+public class ResponseCacheAdvisor implements CallAdvisor {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponseCacheAdvisor.class);
+
+    /**
+     * advisor 参数：当前请求所属路由
+     */
+    public static final String ROUTE = "response_cache_route";
+
+    /**
+     * 响应上下文：缓存结果，取值 exact / semantic / miss / bypass
+     */
+    public static final String RESULT = "response_cache";
+
+    public enum Policy {
+        OFF, EXACT, SEMANTIC
+    }
+
+    private final Environment environment;
+    private final ObjectProvider<EmbeddingService> embeddingServiceProvider;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final double maxTemperature;
+    private final double semanticThreshold;
+    private final int semanticMaxEntries;
+    private final int semanticMaxScopes;
+
+    private final Map<String, CachedResponse> exactCache;
+    // 语义层分区：按作用域 LRU，最多 semanticMaxScopes 个分区，每个分区最多 semanticMaxEntries 条
+    private final Map<String, SemanticScope> semanticScopes;
+    private final Map<String, Policy> policies = new ConcurrentHashMap<>();
+    private final Map<String, RouteStats> stats = new ConcurrentHashMap<>();
+
+    public ResponseCacheAdvisor(Environment environment,
+                                ObjectProvider<EmbeddingService> embeddingServiceProvider,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.response-cache.enabled:true}") boolean enabled,
+                                @Value("${app.response-cache.ttl:1h}") Duration ttl,
+                                @Value("${app.response-cache.max-entries:10000}") int maxEntries,
+                                @Value("${app.response-cache.max-temperature:0.0}") double maxTemperature,
+                                @Value("${app.response-cache.semantic-threshold:0.95}") double semanticThreshold,
+                                @Value("${app.response-cache.semantic-max-entries:1000}") int semanticMaxEntries,
+                                @Value("${app.response-cache.semantic-max-scopes:64}") int semanticMaxScopes) {
+        this.environment = environment;
+        this.embeddingServiceProvider = embeddingServiceProvider;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+        this.maxTemperature = maxTemperature;
+        this.semanticThreshold = semanticThreshold;
+        this.semanticMaxEntries = semanticMaxEntries;
+        this.semanticMaxScopes = semanticMaxScopes;
+        this.exactCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > ResponseCacheAdvisor.this.maxEntries;
+            }
+        };
+        this.semanticScopes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SemanticScope> eldest) {
+                return size() > ResponseCacheAdvisor.this.semanticMaxScopes;
+            }
+        };
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        String route = String.valueOf(request.context().getOrDefault(ROUTE, "default"));
+        Policy policy = policyFor(route);
+        RouteStats routeStats = statsFor(route);
+        Prompt prompt = request.prompt();
+        if (policy == Policy.OFF || !PromptFingerprint.deterministic(prompt.getOptions(), maxTemperature)) {
+            routeStats.bypass.increment();
+            return withResult(chain.nextCall(request), "bypass");
+        }
+
+        String scope = PromptFingerprint.digest(route + '\u0000' + PromptFingerprint.scope(prompt));
+        String userText = PromptFingerprint.userText(prompt);
+        String exactKey = PromptFingerprint.digest(scope + '\u0000' + userText);
+        long now = System.currentTimeMillis();
+
+        CachedResponse exact = lookupExact(exactKey, now);
+        if (exact != null) {
+            routeStats.hit(exact, "exact");
+            return new ChatClientResponse(exact.response(), withResult(request.context(), "exact"));
+        }
+
+        float[] vector = null;
+        if (policy == Policy.SEMANTIC) {
+            vector = embed(userText);
+            CachedResponse similar = vector != null ? lookupSemantic(scope, vector, now) : null;
+            if (similar != null) {
+                routeStats.hit(similar, "semantic");
+                return new ChatClientResponse(similar.response(), withResult(request.context(), "semantic"));
+            }
+        }
+
+        routeStats.misses.increment();
+        ChatClientResponse response = chain.nextCall(request);
+        ChatResponse chatResponse = response.chatResponse();
+        if (chatResponse != null && chatResponse.getResult() != null
+                && chatResponse.getResult().getOutput().getText() != null) {
+            CachedResponse cached = new CachedResponse(chatResponse, totalTokens(chatResponse), now + ttlMillis);
+            synchronized (exactCache) {
+                exactCache.put(exactKey, cached);
+            }
+            if (vector != null) {
+                storeSemantic(scope, vector, cached);
+            }
+        }
+        return withResult(response, "miss");
+    }
+
+    /**
+     * 各路由的缓存统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        stats.forEach((route, routeStats) -> result.put(route, Map.of(
+                "policy", policyFor(route).name().toLowerCase(Locale.ROOT),
+                "exactHits", routeStats.exactHits.sum(),
+                "semanticHits", routeStats.semanticHits.sum(),
+                "misses", routeStats.misses.sum(),
+                "bypassed", routeStats.bypass.sum(),
+                "hitRate", routeStats.hitRate(),
+                "savedTokens", routeStats.savedTokens.sum()
+        )));
+        synchronized (exactCache) {
+            result.put("exactEntries", exactCache.size());
+        }
+        int semanticEntries = 0;
+        for (SemanticScope semanticScope : semanticScopesSnapshot()) {
+            semanticEntries += semanticScope.size();
+        }
+        result.put("semanticEntries", semanticEntries);
+        return result;
+    }
+
+    /**
+     * 清空全部缓存
+     */
+    public void clear() {
+        synchronized (exactCache) {
+            exactCache.clear();
+        }
+        synchronized (semanticScopes) {
+            semanticScopes.clear();
+        }
+    }
+
+    public Policy policyFor(String route) {
+        return policies.computeIfAbsent(route, key -> {
+            if (!enabled) {
+                return Policy.OFF;
+            }
+            String value = environment.getProperty("app.response-cache.routes." + key, "off");
+            return Policy.valueOf(value.strip().toUpperCase(Locale.ROOT));
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "ResponseCacheAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        // 尽量靠前，命中时跳过后续所有 advisor 与模型调用
+        return Ordered.HIGHEST_PRECEDENCE + 100;
+    }
+
+    private CachedResponse lookupExact(String key, long now) {
+        synchronized (exactCache) {
+            CachedResponse cached = exactCache.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (cached.expiresAt() < now) {
+                exactCache.remove(key);
+                return null;
+            }
+            return cached;
+        }
+    }
+
+    private CachedResponse lookupSemantic(String scope, float[] vector, long now) {
+        SemanticScope semanticScope;
+        synchronized (semanticScopes) {
+            semanticScope = semanticScopes.get(scope);
+        }
+        return semanticScope != null ? semanticScope.lookup(vector, semanticThreshold, now) : null;
+    }
+
+    private void storeSemantic(String scope, float[] vector, CachedResponse cached) {
+        SemanticScope semanticScope;
+        synchronized (semanticScopes) {
+            semanticScope = semanticScopes.computeIfAbsent(scope, key -> new SemanticScope());
+        }
+        semanticScope.store(new SemanticEntry(vector, cached), semanticMaxEntries);
+    }
+
+    private Iterable<SemanticScope> semanticScopesSnapshot() {
+        synchronized (semanticScopes) {
+            return List.copyOf(semanticScopes.values());
+        }
+    }
+
+    private float[] embed(String text) {
+        EmbeddingService embeddingService = embeddingServiceProvider.getIfAvailable();
+        if (embeddingService == null) {
+            return null;
+        }
+        try {
+            float[] vector = embeddingService.embed(text);
+            double sum = 0.0;
+            for (float value : vector) {
+                sum += value * value;
+            }
+            float scale = sum == 0 ? 1.0f : (float) (1.0 / Math.sqrt(sum));
+            float[] normalized = new float[vector.length];
+            for (int i = 0; i < vector.length; i++) {
+                normalized[i] = vector[i] * scale;
+            }
+            return normalized;
+        } catch (RuntimeException e) {
+            log.warn("语义缓存嵌入失败，仅使用精确缓存：{}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static double dot(float[] a, float[] b) {
+        float s0 = 0, s1 = 0;
+        int i = 0;
+        for (int upper = a.length & ~1; i < upper; i += 2) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+        }
+        for (; i < a.length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return s0 + s1;
+    }
+
+    private static long totalTokens(ChatResponse response) {
+        Usage usage = response.getMetadata().getUsage();
+        return usage != null && usage.getTotalTokens() != null ? usage.getTotalTokens() : 0;
+    }
+
+    private static ChatClientResponse withResult(ChatClientResponse response, String result) {
+        return new ChatClientResponse(response.chatResponse(), withResult(response.context(), result));
+    }
+
+    private static Map<String, Object> withResult(Map<String, Object> context, String result) {
+        Map<String, Object> copy = new LinkedHashMap<>(context);
+        copy.put(RESULT, result);
+        return copy;
+    }
+
+    private RouteStats statsFor(String route) {
+        return stats.computeIfAbsent(route, key -> new RouteStats(key, meterRegistry));
+    }
+
+    private record CachedResponse(ChatResponse response, long tokens, long expiresAt) {
+    }
+
+    private record SemanticEntry(float[] vector, CachedResponse cached) {
+    }
+
+    /**
+     * 语义层的一个分区：最近写入的在前，超出条数上限时淘汰最旧的
+     */
+    private static final class SemanticScope {
+
+        private final Deque<SemanticEntry> entries = new ArrayDeque<>();
+        private final ReentrantLock lock = new ReentrantLock();
+
+        CachedResponse lookup(float[] vector, double threshold, long now) {
+            lock.lock();
+            try {
+                SemanticEntry best = null;
+                double bestScore = threshold;
+                Iterator<SemanticEntry> iterator = entries.iterator();
+                while (iterator.hasNext()) {
+                    SemanticEntry entry = iterator.next();
+                    if (entry.cached().expiresAt() < now) {
+                        iterator.remove();
+                        continue;
+                    }
+                    if (entry.vector().length != vector.length) {
+                        continue;
+                    }
+                    double score = dot(entry.vector(), vector);
+                    if (score >= bestScore) {
+                        best = entry;
+                        bestScore = score;
+                    }
+                }
+                return best != null ? best.cached() : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void store(SemanticEntry entry, int maxEntries) {
+            lock.lock();
+            try {
+                entries.addFirst(entry);
+                while (entries.size() > maxEntries) {
+                    entries.removeLast();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 单个路由的命中统计，同时注册为 Micrometer 指标
+     */
+    private static final class RouteStats {
+
+        private final LongAdder exactHits = new LongAdder();
+        private final LongAdder semanticHits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder bypass = new LongAdder();
+        private final LongAdder savedTokens = new LongAdder();
+        private final Counter savedTokensCounter;
+        private final MeterRegistry meterRegistry;
+        private final String route;
+
+        RouteStats(String route, MeterRegistry meterRegistry) {
+            this.route = route;
+            this.meterRegistry = meterRegistry;
+            this.savedTokensCounter = Counter.builder("ai.response.cache.saved.tokens")
+                    .description("Tokens not sent to the provider thanks to cache hits")
+                    .tag("route", route)
+                    .register(meterRegistry);
+            register("exact_hit", exactHits);
+            register("semantic_hit", semanticHits);
+            register("miss", misses);
+            register("bypass", bypass);
+            Gauge.builder("ai.response.cache.hit.ratio", this, RouteStats::hitRate)
+                    .description("Response cache hit ratio")
+                    .tag("route", route)
+                    .register(meterRegistry);
+        }
+
+        void hit(CachedResponse cached, String tier) {
+            ("exact".equals(tier) ? exactHits : semanticHits).increment();
+            savedTokens.add(cached.tokens());
+            savedTokensCounter.increment(cached.tokens());
+        }
+
+        double hitRate() {
+            long hits = exactHits.sum() + semanticHits.sum();
+            long lookups = hits + misses.sum();
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        private void register(String result, LongAdder adder) {
+            FunctionCounter.builder("ai.response.cache.requests", adder, LongAdder::sum)
+                    .description("Response cache lookups by result")
+                    .tags("route", route, "result", result)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.modelintegration.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.example.modelintegration.config.EmbeddingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+/**
+ * 基于嵌入质心的语义任务路由
+ * 启动后为每个类别的示例 prompt 计算归一化质心，路由时与输入向量做一对多点积；
+ * 没有 EmbeddingService、质心尚未就绪或置信度低于阈值时返回空，由调用方回退到关键词路由
+ */
+@Component
+public class SemanticTaskRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(SemanticTaskRouter.class);
+
+    private final ObjectProvider<EmbeddingService> embeddingServiceProvider;
+    private final ResourceLoader resourceLoader;
+    private final String examplesLocation;
+    private final boolean enabled;
+    private final double threshold;
+    private final int cacheSize;
+
+    private final Map<String, float[]> embeddingCache;
+    // 重建期间会远程调用嵌入接口
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Centroids centroids;
+
+    public SemanticTaskRouter(ObjectProvider<EmbeddingService> embeddingServiceProvider,
+                              ResourceLoader resourceLoader,
+                              @Value("${app.routing.semantic.examples-location:classpath:task-examples.properties}") String examplesLocation,
+                              @Value("${app.routing.semantic.enabled:true}") boolean enabled,
+                              @Value("${app.routing.semantic.threshold:0.75}") double threshold,
+                              @Value("${app.routing.semantic.cache-size:1000}") int cacheSize) {
+        this.embeddingServiceProvider = embeddingServiceProvider;
+        this.resourceLoader = resourceLoader;
+        this.examplesLocation = examplesLocation;
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.cacheSize = cacheSize;
+        this.embeddingCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > SemanticTaskRouter.this.cacheSize;
+            }
+        };
+    }
+
+    /**
+     * 应用就绪后在后台构建质心，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildCentroidsOnStartup() {
+        if (!enabled || embeddingServiceProvider.getIfAvailable() == null) {
+            log.info("语义路由未启用（enabled={} 或缺少 EmbeddingService），使用关键词路由", enabled);
+            return;
+        }
+        Thread.ofVirtual().name("semantic-router-init").start(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("语义路由质心构建失败，继续使用关键词路由：{}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 重新计算各类别质心
+     */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            EmbeddingService embeddingService = embeddingServiceProvider.getObject();
+            LinkedHashMap<String, List<String>> examples = loadExamples();
+
+            List<String> categories = new ArrayList<>(examples.keySet());
+            List<String> allExamples = examples.values().stream().flatMap(List::stream).toList();
+            List<float[]> vectors = embeddingService.embedAll(allExamples);
+
+            int dimensions = vectors.get(0).length;
+            float[] matrix = new float[categories.size() * dimensions];
+            int cursor = 0;
+            for (int c = 0; c < categories.size(); c++) {
+                int count = examples.get(categories.get(c)).size();
+                for (int i = 0; i < count; i++) {
+                    float[] vector = vectors.get(cursor++);
+                    float scale = inverseNorm(vector);
+                    for (int d = 0; d < dimensions; d++) {
+                        matrix[c * dimensions + d] += vector[d] * scale;
+                    }
+                }
+                normalizeRow(matrix, c * dimensions, dimensions);
+            }
+
+            centroids = new Centroids(categories.toArray(String[]::new), dimensions, matrix);
+            synchronized (embeddingCache) {
+                embeddingCache.clear();
+            }
+            log.info("语义路由质心已就绪：{} 个类别，{} 维", categories.size(), dimensions);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * 语义路由；置信度不足或不可用时返回空
+     */
+    public Optional<Route> route(String input) {
+        Centroids current = centroids;
+        if (current == null) {
+            return Optional.empty();
+        }
+        EmbeddingService embeddingService = embeddingServiceProvider.getIfAvailable();
+        if (embeddingService == null) {
+            return Optional.empty();
+        }
+
+        float[] query;
+        try {
+            query = cachedEmbedding(embeddingService, input);
+        } catch (RuntimeException e) {
+            log.warn("输入嵌入失败，回退到关键词路由：{}", e.getMessage());
+            return Optional.empty();
+        }
+        if (query.length != current.dimensions()) {
+            return Optional.empty();
+        }
+
+        long start = System.nanoTime();
+        float[] scores = current.score(query);
+        long scoringNanos = System.nanoTime() - start;
+
+        int best = 0;
+        for (int i = 1; i < scores.length; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (scores[best] < threshold) {
+            return Optional.empty();
+        }
+
+        Map<String, Double> allScores = new LinkedHashMap<>();
+        for (int i = 0; i < scores.length; i++) {
+            allScores.put(current.categories()[i], (double) scores[i]);
+        }
+        return Optional.of(new Route(current.categories()[best], scores[best], allScores, scoringNanos));
+    }
+
+    public boolean isReady() {
+        return centroids != null;
+    }
+
+    private float[] cachedEmbedding(EmbeddingService embeddingService, String input) {
+        synchronized (embeddingCache) {
+            float[] cached = embeddingCache.get(input);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        float[] vector = embeddingService.embed(input);
+        float scale = inverseNorm(vector);
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        synchronized (embeddingCache) {
+            embeddingCache.put(input, normalized);
+        }
+        return normalized;
+    }
+
+    private LinkedHashMap<String, List<String>> loadExamples() {
+        LinkedHashMap<String, List<String>> examples = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                resourceLoader.getResource(examplesLocation).getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                int separator = line.indexOf('=');
+                if (line.isEmpty() || line.startsWith("#") || separator <= 0) {
+                    continue;
+                }
+                List<String> prompts = Arrays.stream(line.substring(separator + 1).split("\\|"))
+                        .map(String::strip)
+                        .filter(prompt -> !prompt.isEmpty())
+                        .toList();
+                if (!prompts.isEmpty()) {
+                    examples.put(line.substring(0, separator).strip(), prompts);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法读取语义路由示例：" + examplesLocation, e);
+        }
+        if (examples.isEmpty()) {
+            throw new IllegalStateException("语义路由示例为空：" + examplesLocation);
+        }
+        return examples;
+    }
+
+    private static float inverseNorm(float[] vector) {
+        double sum = 0.0;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        return sum == 0 ? 1.0f : (float) (1.0 / Math.sqrt(sum));
+    }
+
+    private static void normalizeRow(float[] matrix, int offset, int length) {
+        double sum = 0.0;
+        for (int i = offset; i < offset + length; i++) {
+            sum += matrix[i] * matrix[i];
+        }
+        if (sum == 0) {
+            return;
+        }
+        float scale = (float) (1.0 / Math.sqrt(sum));
+        for (int i = offset; i < offset + length; i++) {
+            matrix[i] *= scale;
+        }
+    }
+
+    /**
+     * 语义路由结果
+     */
+    public record Route(String taskType, double confidence, Map<String, Double> scores, long scoringNanos) {
+    }
+
+    /**
+     * 按行连续存放的归一化质心矩阵（categories × dimensions）
+     */
+    private record Centroids(String[] categories, int dimensions, float[] matrix) {
+
+        /**
+         * 查询向量与所有质心的点积（均已归一化，即余弦相似度）
+         * 每行用 4 路独立累加器展开，打破浮点加法的依赖链，便于 JIT 流水化
+         */
+        float[] score(float[] query) {
+            float[] scores = new float[categories.length];
+            int upper = dimensions & ~3;
+            for (int c = 0; c < categories.length; c++) {
+                int base = c * dimensions;
+                float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                int d = 0;
+                for (; d < upper; d += 4) {
+                    s0 += matrix[base + d] * query[d];
+                    s1 += matrix[base + d + 1] * query[d + 1];
+                    s2 += matrix[base + d + 2] * query[d + 2];
+                    s3 += matrix[base + d + 3] * query[d + 3];
+                }
+                for (; d < dimensions; d++) {
+                    s0 += matrix[base + d] * query[d];
+                }
+                scores[c] = (s0 + s1) + (s2 + s3);
+            }
+            return scores;
+        }
+    }
+}
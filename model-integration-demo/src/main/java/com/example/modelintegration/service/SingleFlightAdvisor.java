@@ -0,0 +1,138 @@
+package com.example.modelintegration.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+/**
+ * 请求合并（single-flight）Advisor
+ * 确定性参数下，并发到达的等价请求只向模型发起一次调用，其余请求等待并共享同一结果；
+ * 流式请求通过 replay 扇出，后加入的订阅者也能收到完整的分片序列。调用结束后立即移除，不做缓存。
+ * 只有实际 temperature 不超过 app.single-flight.max-temperature 的请求参与合并，请求参数保持不变。
+ */
+@Component
+public class SingleFlightAdvisor implements CallAdvisor, StreamAdvisor {
+
+    /**
+     * 响应上下文：leader 表示实际发起了调用，shared 表示复用了在途调用
+     */
+    public static final String RESULT = "single_flight";
+
+    private final boolean enabled;
+    private final double maxTemperature;
+
+    private final Map<String, CompletableFuture<ChatClientResponse>> inFlightCalls = new ConcurrentHashMap<>();
+    private final Map<String, Flux<ChatClientResponse>> inFlightStreams = new ConcurrentHashMap<>();
+
+    private final Counter leaderCounter;
+    private final Counter sharedCounter;
+
+    public SingleFlightAdvisor(MeterRegistry meterRegistry,
+                               @Value("${app.single-flight.enabled:true}") boolean enabled,
+                               @Value("${app.single-flight.max-temperature:0.0}") double maxTemperature) {
+        this.enabled = enabled;
+        this.maxTemperature = maxTemperature;
+        this.leaderCounter = Counter.builder("ai.single.flight.requests")
+                .description("Requests that issued a provider call")
+                .tag("result", "leader")
+                .register(meterRegistry);
+        this.sharedCounter = Counter.builder("ai.single.flight.requests")
+                .description("Requests that joined an in-flight provider call")
+                .tag("result", "shared")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        if (!coalescable(request)) {
+            return chain.nextCall(request);
+        }
+
+        String key = PromptFingerprint.of(request.prompt());
+        CompletableFuture<ChatClientResponse> own = new CompletableFuture<>();
+        CompletableFuture<ChatClientResponse> existing = inFlightCalls.putIfAbsent(key, own);
+
+        if (existing != null) {
+            sharedCounter.increment();
+            try {
+                ChatClientResponse shared = existing.join();
+                return new ChatClientResponse(shared.chatResponse(), withResult(request.context(), "shared"));
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+            }
+        }
+
+        leaderCounter.increment();
+        try {
+            ChatClientResponse response = chain.nextCall(request);
+            own.complete(response);
+            return new ChatClientResponse(response.chatResponse(), withResult(response.context(), "leader"));
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightCalls.remove(key, own);
+        }
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        if (!coalescable(request)) {
+            return chain.nextStream(request);
+        }
+
+        String key = PromptFingerprint.of(request.prompt());
+        boolean[] leader = {false};
+        Flux<ChatClientResponse> shared = inFlightStreams.computeIfAbsent(key, k -> {
+            leader[0] = true;
+            // 上游结束（完成、出错或全部订阅者取消）后移除，之后到达的请求重新发起调用；
+            // 只移除自己：结束信号到达前同一键可能已登记了新的流
+            AtomicReference<Flux<ChatClientResponse>> self = new AtomicReference<>();
+            Flux<ChatClientResponse> flux = chain.nextStream(request)
+                    .doFinally(signal -> inFlightStreams.remove(k, self.get()))
+                    .replay()
+                    .refCount();
+            self.set(flux);
+            return flux;
+        });
+        (leader[0] ? leaderCounter : sharedCounter).increment();
+        return shared;
+    }
+
+    @Override
+    public String getName() {
+        return "SingleFlightAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        // 位于响应缓存之后：缓存命中的请求无需参与合并
+        return Ordered.HIGHEST_PRECEDENCE + 200;
+    }
+
+    private boolean coalescable(ChatClientRequest request) {
+        return enabled && PromptFingerprint.deterministic(request.prompt().getOptions(), maxTemperature);
+    }
+
+    private static Map<String, Object> withResult(Map<String, Object> context, String result) {
+        Map<String, Object> copy = new LinkedHashMap<>(context);
+        copy.put(RESULT, result);
+        return copy;
+    }
+}
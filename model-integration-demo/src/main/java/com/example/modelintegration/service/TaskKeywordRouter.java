@@ -0,0 +1,138 @@
+package com.example.modelintegration.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 基于关键词表的任务类型路由
+ * 关键词表从外部资源加载并编译为 {@link KeywordAutomaton}，文件变更后自动热加载
+ */
+@Component
+public class TaskKeywordRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskKeywordRouter.class);
+
+    public static final String DEFAULT_TASK_TYPE = "default";
+
+    private final ResourceLoader resourceLoader;
+    private final String location;
+
+    // 重新加载会读文件，不用 synchronized
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private volatile KeywordAutomaton automaton;
+    private volatile long lastModified;
+
+    public TaskKeywordRouter(ResourceLoader resourceLoader,
+                             @Value("${app.routing.keywords-location:classpath:task-keywords.properties}") String location) {
+        this.resourceLoader = resourceLoader;
+        this.location = location;
+        reload();
+    }
+
+    /**
+     * 检测任务类型，没有任何关键词命中时返回 default
+     */
+    public String detect(String input) {
+        return automaton.best(input, DEFAULT_TASK_TYPE);
+    }
+
+    /**
+     * 各类别的关键词命中次数
+     */
+    public Map<String, Integer> scores(String input) {
+        KeywordAutomaton current = automaton;
+        int[] scores = current.score(input);
+        List<String> categories = current.categories();
+
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < scores.length; i++) {
+            result.put(categories.get(i), scores[i]);
+        }
+        return result;
+    }
+
+    /**
+     * 重新加载关键词表；解析失败时保留旧的自动机
+     */
+    public Map<String, List<String>> reload() {
+        reloadLock.lock();
+        try {
+            Resource resource = resourceLoader.getResource(location);
+            LinkedHashMap<String, List<String>> table = parse(resource);
+            automaton = KeywordAutomaton.build(table);
+            lastModified = lastModified(resource);
+            log.info("已加载任务关键词表 {}：{} 个类别", location, table.size());
+            return table;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * 定期检查关键词文件是否被修改（classpath 内的资源不会变化，检查会直接跳过）
+     */
+    @Scheduled(fixedDelayString = "${app.routing.keywords-reload-interval:30s}")
+    public void reloadIfModified() {
+        Resource resource = resourceLoader.getResource(location);
+        long modified = lastModified(resource);
+        if (modified > 0 && modified != lastModified) {
+            try {
+                reload();
+            } catch (RuntimeException e) {
+                log.warn("关键词表热加载失败，继续使用旧版本：{}", e.getMessage());
+            }
+        }
+    }
+
+    private LinkedHashMap<String, List<String>> parse(Resource resource) {
+        LinkedHashMap<String, List<String>> table = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int separator = line.indexOf('=');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("关键词表格式错误：" + line);
+                }
+                String category = line.substring(0, separator).strip();
+                List<String> keywords = Arrays.stream(line.substring(separator + 1).split(","))
+                        .map(String::strip)
+                        .filter(keyword -> !keyword.isEmpty())
+                        .toList();
+                table.put(category, keywords);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法读取关键词表：" + location, e);
+        }
+        return table;
+    }
+
+    private long lastModified(Resource resource) {
+        try {
+            return resource.isFile() ? resource.lastModified() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.modelintegration.service;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 无锁令牌桶（单位：模型 token）
+ * 状态为不可变快照，所有操作通过 CAS 更新；预留可以让余额变为负数（欠账），之后由补充逐步偿还。
+ */
+final class TokenBucket {
+
+    private final long capacity;
+    private final double refillPerNano;
+    private final AtomicReference<State> state;
+
+    TokenBucket(long capacity, long tokensPerMinute) {
+        this.capacity = capacity;
+        this.refillPerNano = tokensPerMinute / 60_000_000_000.0;
+        this.state = new AtomicReference<>(new State(capacity, System.nanoTime()));
+    }
+
+    /**
+     * 预留 tokens 个令牌；余额不足 min(tokens, capacity) 时拒绝，返回 false
+     */
+    boolean tryReserve(long tokens) {
+        long required = Math.min(tokens, capacity);
+        while (true) {
+            State current = state.get();
+            State refilled = refill(current, System.nanoTime());
+            if (refilled.tokens() < required) {
+                // 把补充结果写回，避免下次重复计算；失败也无妨
+                state.compareAndSet(current, refilled);
+                return false;
+            }
+            if (state.compareAndSet(current, new State(refilled.tokens() - tokens, refilled.updatedAt()))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 按实际消耗对账：delta 为正表示补扣，为负表示退还
+     */
+    void adjust(long delta) {
+        while (true) {
+            State current = state.get();
+            State refilled = refill(current, System.nanoTime());
+            double tokens = Math.min(capacity, refilled.tokens() - delta);
+            if (state.compareAndSet(current, new State(tokens, refilled.updatedAt()))) {
+                return;
+            }
+        }
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    long available() {
+        return (long) Math.floor(refill(state.get(), System.nanoTime()).tokens());
+    }
+
+    /**
+     * 余额恢复到 tokens 所需的秒数（向上取整）
+     */
+    long secondsUntil(long tokens) {
+        double missing = Math.min(tokens, capacity) - refill(state.get(), System.nanoTime()).tokens();
+        if (missing <= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(missing / refillPerNano / 1_000_000_000.0);
+    }
+
+    private State refill(State current, long now) {
+        long elapsed = now - current.updatedAt();
+        if (elapsed <= 0 || current.tokens() >= capacity) {
+            return new State(current.tokens(), now);
+        }
+        return new State(Math.min(capacity, current.tokens() + elapsed * refillPerNano), now);
+    }
+
+    private record State(double tokens, long updatedAt) {
+    }
+}
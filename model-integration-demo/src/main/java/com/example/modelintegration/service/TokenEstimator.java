@@ -0,0 +1,177 @@
+package com.example.modelintegration.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地 token 估算
+ * 用 BPE 分词（cl100k_base，词表只加载一次并常驻内存）计数，不发网络请求。各供应商的分词器不完全相同，
+ * 因此按路由用实际 usage 校准：校准系数是「实际 / BPE 计数」的指数滑动平均，估算值 = BPE 计数 × 系数。
+ */
+@Component
+public class TokenEstimator {
+
+    /** 每条消息的角色与分隔符开销 */
+    private static final int MESSAGE_OVERHEAD = 4;
+    /** 回复起始标记 */
+    private static final int REPLY_PRIMING = 3;
+
+    private static final Encoding ENCODING = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+    private final MeterRegistry meterRegistry;
+    private final double alpha;
+    private final Map<String, Calibration> calibrations = new ConcurrentHashMap<>();
+
+    public TokenEstimator(MeterRegistry meterRegistry,
+                          @Value("${app.tokens.calibration-alpha:0.1}") double alpha) {
+        this.meterRegistry = meterRegistry;
+        this.alpha = alpha;
+    }
+
+    /**
+     * 文本的 BPE token 数（未校准）；特殊 token 按普通文本处理
+     */
+    public int count(String text) {
+        return text == null || text.isEmpty() ? 0 : ENCODING.countTokensOrdinary(text);
+    }
+
+    /**
+     * 整个 prompt 的 BPE token 数（未校准），含每条消息的格式开销
+     */
+    public int count(Prompt prompt) {
+        int tokens = REPLY_PRIMING;
+        for (Message message : prompt.getInstructions()) {
+            tokens += MESSAGE_OVERHEAD + count(message.getText());
+        }
+        return tokens;
+    }
+
+    /**
+     * 按路由校准后的估算值
+     */
+    public int estimate(String route, int rawTokens) {
+        return (int) Math.ceil(rawTokens * calibration(route).factor);
+    }
+
+    public int estimate(String route, Prompt prompt) {
+        return estimate(route, count(prompt));
+    }
+
+    /**
+     * 截断到 maxTokens 以内（BPE 计数）：保留开头约三分之二与结尾约三分之一，中间以标记替代
+     * 结尾往往是问题或代码的收尾，比中段更值得保留
+     */
+    public String truncate(String text, int maxTokens) {
+        int total = count(text);
+        if (total <= maxTokens) {
+            return text;
+        }
+        String marker = "\n…（中间约 %d 个 token 已省略）…\n";
+        int budget = Math.max(0, maxTokens - count(marker));
+        // 拼接处的 BPE 合并可能让总数多出几个，超出就按超出量收紧再切一次
+        while (true) {
+            String truncated = truncate(text, total, budget, marker);
+            int overflow = count(truncated) - maxTokens;
+            if (overflow <= 0 || budget == 0) {
+                return truncated;
+            }
+            budget = Math.max(0, budget - overflow);
+        }
+    }
+
+    private String truncate(String text, int total, int budget, String marker) {
+        EncodingResult head = ENCODING.encodeOrdinary(text, budget * 2 / 3);
+        String headText = text.substring(0, head.getLastProcessedCharacterIndex() + 1);
+
+        // 二分查找最长的、不超过剩余预算的结尾；单个 token 很少超过 32 个字符，以此限定搜索范围
+        int tailBudget = budget - head.getTokens().size();
+        int low = Math.max(headText.length(), text.length() - tailBudget * 32);
+        int high = text.length();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (count(text.substring(mid)) <= tailBudget) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        String tailText = text.substring(low);
+        int omitted = total - head.getTokens().size() - count(tailText);
+        return headText + marker.formatted(omitted) + tailText;
+    }
+
+    /**
+     * 用实际 prompt token 数更新路由的校准系数，并记录校准前估算的相对误差（%）
+     */
+    public void record(String route, int rawTokens, int actualTokens) {
+        if (rawTokens <= 0 || actualTokens <= 0) {
+            return;
+        }
+        Calibration calibration = calibration(route);
+        double estimated = rawTokens * calibration.factor;
+        calibration.error.record(Math.abs(estimated - actualTokens) * 100.0 / actualTokens);
+        calibration.update(actualTokens / (double) rawTokens, alpha);
+    }
+
+    /**
+     * 各路由的校准系数、样本数与平均误差
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("encoding", ENCODING.getName());
+        Map<String, Object> routes = new LinkedHashMap<>();
+        calibrations.forEach((route, calibration) -> routes.put(route, Map.of(
+                "factor", calibration.factor,
+                "samples", calibration.error.count(),
+                "meanErrorPercent", calibration.error.mean(),
+                "maxErrorPercent", calibration.error.max()
+        )));
+        stats.put("routes", routes);
+        return stats;
+    }
+
+    private Calibration calibration(String route) {
+        return calibrations.computeIfAbsent(route, key -> {
+            Calibration calibration = new Calibration(DistributionSummary.builder("ai.tokens.estimate.error")
+                    .description("Relative error of the local prompt token estimate against provider usage")
+                    .baseUnit("percent")
+                    .tag("route", key)
+                    .publishPercentiles(0.5, 0.95)
+                    .register(meterRegistry));
+            Gauge.builder("ai.tokens.estimate.correction", calibration, c -> c.factor)
+                    .description("Provider tokens per local BPE token")
+                    .tag("route", key)
+                    .register(meterRegistry);
+            return calibration;
+        });
+    }
+
+    private static final class Calibration {
+
+        private final DistributionSummary error;
+        private volatile double factor = 1.0;
+        private boolean seeded;
+
+        Calibration(DistributionSummary error) {
+            this.error = error;
+        }
+
+        synchronized void update(double ratio, double alpha) {
+            factor = seeded ? factor + alpha * (ratio - factor) : ratio;
+            seeded = true;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.modelintegration.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import reactor.core.publisher.Flux;
+
+/**
+ * 按调用方计量 token 的限流 Advisor
+ * 调用前按估算（{@link TokenEstimator} 的输入 token 数 + 输出上限）从调用方的令牌桶预留，调用后用 usage 中的实际 token 数对账，多退少补；
+ * 配额不足时抛出 {@link RateLimitExceededException}（映射为 429）。
+ * 调用方由请求头（默认 X-API-Key）识别：只接受 app.rate-limit.clients.&lt;名称&gt;.api-key 中配置的密钥，
+ * 缺省或未知的密钥按客户端地址计量，换一个请求头取值拿不到新的配额。异步任务在请求之外执行，
+ * 按 {@link RequestScope#runAs} 绑定的提交者计量；既无请求也无绑定调用方的调用（如启动预热）不限流。
+ * 按地址计量的桶放在容量为 max-buckets 的 LRU 中，已回满的桶与新建的桶等价，随时可以淘汰。
+ * 指标只以配置的调用方名称（其余为 other）打标签，不暴露密钥与地址。
+ */
+@Component
+public class TokenRateLimitAdvisor implements CallAdvisor, StreamAdvisor {
+
+    public static final String HEADER_LIMIT = "X-RateLimit-Limit";
+    public static final String HEADER_REMAINING = "X-RateLimit-Remaining";
+    public static final String HEADER_RESET = "X-RateLimit-Reset";
+
+    private static final String OTHER_CLIENTS = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final String clientHeader;
+    private final long defaultTokensPerMinute;
+    private final long defaultBurst;
+    private final int defaultCompletionReserve;
+    private final TokenEstimator tokenEstimator;
+
+    /** API 密钥 → 调用方名称 */
+    private final Map<String, String> apiKeys = new HashMap<>();
+    /** 已配置调用方的桶，构造后不再变化 */
+    private final Map<String, TokenBucket> clientBuckets = new HashMap<>();
+    /** 按地址计量的桶：访问顺序的 LinkedHashMap 读写都需要加锁 */
+    private final Map<String, TokenBucket> addressBuckets;
+    private final ReentrantLock addressLock = new ReentrantLock();
+
+    public TokenRateLimitAdvisor(Environment environment,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.rate-limit.enabled:true}") boolean enabled,
+                                 @Value("${app.rate-limit.client-header:X-API-Key}") String clientHeader,
+                                 @Value("${app.rate-limit.tokens-per-minute:20000}") long defaultTokensPerMinute,
+                                 @Value("${app.rate-limit.burst:40000}") long defaultBurst,
+                                 @Value("${app.rate-limit.completion-reserve:500}") int defaultCompletionReserve,
+                                 @Value("${app.rate-limit.client-names:}") String[] clientNames,
+                                 @Value("${app.rate-limit.max-buckets:10000}") int maxBuckets,
+                                 TokenEstimator tokenEstimator) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.clientHeader = clientHeader;
+        this.defaultTokensPerMinute = defaultTokensPerMinute;
+        this.defaultBurst = defaultBurst;
+        this.defaultCompletionReserve = defaultCompletionReserve;
+        this.tokenEstimator = tokenEstimator;
+        for (String name : clientNames) {
+            String apiKey = environment.getProperty("app.rate-limit.clients." + name + ".api-key");
+            if (apiKey == null || apiKey.isBlank()) {
+                continue;
+            }
+            apiKeys.put(apiKey.strip(), name);
+            clientBuckets.put(name, new TokenBucket(
+                    environment.getProperty("app.rate-limit.clients." + name + ".burst", Long.class, defaultBurst),
+                    environment.getProperty("app.rate-limit.clients." + name + ".tokens-per-minute", Long.class,
+                            defaultTokensPerMinute)));
+        }
+        this.addressBuckets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                // 已回满的桶可以丢弃；只剩一个时它就是刚插入的桶，不能淘汰
+                TokenBucket bucket = eldest.getValue();
+                return size() > maxBuckets || size() > 1 && bucket.available() >= bucket.capacity();
+            }
+        };
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        ServletRequestAttributes attributes = currentRequest();
+        String clientId = enabled ? currentClient(attributes) : null;
+        if (clientId == null) {
+            return chain.nextCall(request);
+        }
+
+        HttpServletResponse httpResponse = attributes != null ? attributes.getResponse() : null;
+        TokenBucket bucket = bucketFor(clientId);
+        long reserved = reserve(clientId, bucket, request, httpResponse);
+
+        ChatClientResponse response;
+        try {
+            response = chain.nextCall(request);
+        } catch (RuntimeException e) {
+            // 调用失败：退还全部预留
+            bucket.adjust(-reserved);
+            throw e;
+        }
+        reconcile(clientId, bucket, reserved, actualTokens(response.chatResponse()));
+        writeHeaders(httpResponse, bucket);
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        ServletRequestAttributes attributes = currentRequest();
+        String clientId = enabled ? currentClient(attributes) : null;
+        if (clientId == null) {
+            return chain.nextStream(request);
+        }
+
+        TokenBucket bucket = bucketFor(clientId);
+        long reserved = reserve(clientId, bucket, request, attributes != null ? attributes.getResponse() : null);
+
+        // 流式响应的 usage 通常只出现在最后一个分片；未收到 usage 时按预留扣费
+        AtomicReference<Long> actual = new AtomicReference<>();
+        return chain.nextStream(request)
+                .doOnNext(response -> {
+                    Long tokens = actualTokens(response.chatResponse());
+                    if (tokens != null && tokens > 0) {
+                        actual.set(tokens);
+                    }
+                })
+                .doOnError(error -> bucket.adjust(-reserved))
+                .doOnComplete(() -> reconcile(clientId, bucket, reserved, actual.get()))
+                .doOnCancel(() -> reconcile(clientId, bucket, reserved, actual.get()));
+    }
+
+    /**
+     * 调用方当前配额
+     */
+    public Map<String, Object> quota(String clientId) {
+        TokenBucket bucket = bucketFor(clientId);
+        return Map.of(
+                "clientId", clientId,
+                "limit", bucket.capacity(),
+                "remaining", bucket.available(),
+                "resetSeconds", bucket.secondsUntil(bucket.capacity())
+        );
+    }
+
+    /**
+     * 解析调用方标识：已配置密钥对应的调用方名称，否则为客户端地址
+     */
+    public String clientId(HttpServletRequest request) {
+        String header = request.getHeader(clientHeader);
+        String name = header != null ? apiKeys.get(header.strip()) : null;
+        return name != null ? name : "ip:" + request.getRemoteAddr();
+    }
+
+    /**
+     * 当前调用的计量对象：显式绑定的调用方优先，其次当前 HTTP 请求，都没有时为 null
+     */
+    private String currentClient(ServletRequestAttributes attributes) {
+        String bound = RequestScope.clientId();
+        if (bound != null) {
+            return bound;
+        }
+        return attributes != null ? clientId(attributes.getRequest()) : null;
+    }
+
+    @Override
+    public String getName() {
+        return "TokenRateLimitAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        // 位于响应缓存之后（命中缓存不计费）、请求合并之前（每个调用方各自计费）
+        return Ordered.HIGHEST_PRECEDENCE + 150;
+    }
+
+    private long reserve(String clientId, TokenBucket bucket, ChatClientRequest request, HttpServletResponse response) {
+        String route = String.valueOf(request.context().getOrDefault(ResponseCacheAdvisor.ROUTE, "default"));
+        long estimate = estimate(route, request.prompt());
+        if (!bucket.tryReserve(estimate)) {
+            counter("ai.rate.limit.rejections", clientId).increment();
+            writeHeaders(response, bucket);
+            throw new RateLimitExceededException(clientId, bucket.capacity(), Math.max(0, bucket.available()),
+                    Math.max(1, bucket.secondsUntil(estimate)));
+        }
+        return estimate;
+    }
+
+    private void reconcile(String clientId, TokenBucket bucket, long reserved, Long actual) {
+        long charged = actual != null ? actual : reserved;
+        bucket.adjust(charged - reserved);
+        counter("ai.rate.limit.tokens.charged", clientId).increment(charged);
+    }
+
+    /**
+     * 预估 token：按路由校准后的输入 token 数 + 输出上限（未设置 maxTokens 时用默认预留）
+     */
+    private long estimate(String route, Prompt prompt) {
+        ChatOptions options = prompt.getOptions();
+        int completion = options != null && options.getMaxTokens() != null
+                ? options.getMaxTokens() : defaultCompletionReserve;
+        return tokenEstimator.estimate(route, prompt) + (long) completion;
+    }
+
+    private static Long actualTokens(ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return null;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null || usage.getTotalTokens() == null || usage.getTotalTokens() == 0) {
+            return null;
+        }
+        return usage.getTotalTokens().longValue();
+    }
+
+    private void writeHeaders(HttpServletResponse response, TokenBucket bucket) {
+        if (response == null || response.isCommitted()) {
+            return;
+        }
+        response.setHeader(HEADER_LIMIT, String.valueOf(bucket.capacity()));
+        response.setHeader(HEADER_REMAINING, String.valueOf(Math.max(0, bucket.available())));
+        response.setHeader(HEADER_RESET, String.valueOf(bucket.secondsUntil(bucket.capacity())));
+    }
+
+    /**
+     * 调用方的桶：已配置的调用方可通过 app.rate-limit.clients.&lt;名称&gt;.tokens-per-minute / burst 单独配置，
+     * 按地址计量的调用方使用默认值
+     */
+    private TokenBucket bucketFor(String clientId) {
+        TokenBucket bucket = clientBuckets.get(clientId);
+        if (bucket != null) {
+            return bucket;
+        }
+        addressLock.lock();
+        try {
+            return addressBuckets.computeIfAbsent(clientId, id -> new TokenBucket(defaultBurst, defaultTokensPerMinute));
+        } finally {
+            addressLock.unlock();
+        }
+    }
+
+    private Counter counter(String name, String clientId) {
+        return Counter.builder(name)
+                .tag("client", clientBuckets.containsKey(clientId) ? clientId : OTHER_CLIENTS)
+                .register(meterRegistry);
+    }
+
+    private static ServletRequestAttributes currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servlet ? servlet : null;
+    }
+}
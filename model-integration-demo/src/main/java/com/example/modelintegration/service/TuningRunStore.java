@@ -0,0 +1,150 @@
+package com.example.modelintegration.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 调参结果的本地持久化存储
+ * 每个用例一个 JSON 文件，保存历次试验；按参数组合聚合后计算 延迟-质量 的 Pareto 前沿
+ */
+@Component
+public class TuningRunStore {
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final Map<String, List<TuningTrial>> cache = new ConcurrentHashMap<>();
+    // 持锁期间写文件：虚拟线程在 synchronized 中阻塞会钉住载体线程
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public TuningRunStore(ObjectMapper objectMapper,
+                          @Value("${app.tuning.store.directory:./tuning-runs/}") String directory) {
+        this.objectMapper = objectMapper;
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * 追加一次运行的全部试验并落盘
+     */
+    public void append(String useCase, List<TuningTrial> trials) {
+        String key = normalize(useCase);
+        writeLock.lock();
+        try {
+            List<TuningTrial> all = new ArrayList<>(load(key));
+            all.addAll(trials);
+
+            Files.createDirectories(directory);
+            Path file = fileFor(key);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), all);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            cache.put(key, List.copyOf(all));
+        } catch (IOException e) {
+            throw new UncheckedIOException("保存调参结果失败：" + key, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public List<TuningTrial> load(String useCase) {
+        return cache.computeIfAbsent(normalize(useCase), key -> {
+            Path file = fileFor(key);
+            if (!Files.exists(file)) {
+                return List.of();
+            }
+            try {
+                return List.copyOf(objectMapper.readValue(file.toFile(), new TypeReference<List<TuningTrial>>() {
+                }));
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取调参结果失败：" + key, e);
+            }
+        });
+    }
+
+    /**
+     * 按参数组合聚合成功的试验，返回非支配解集合（延迟越低越好，质量越高越好），按延迟升序
+     */
+    public List<Map<String, Object>> paretoFront(String useCase) {
+        List<Map<String, Object>> aggregated = aggregate(load(useCase));
+
+        List<Map<String, Object>> front = new ArrayList<>();
+        for (Map<String, Object> candidate : aggregated) {
+            boolean dominated = aggregated.stream().anyMatch(other -> other != candidate && dominates(other, candidate));
+            if (!dominated) {
+                front.add(candidate);
+            }
+        }
+        front.sort(Comparator.comparingDouble(m -> (double) m.get("avgLatencyMs")));
+        return front;
+    }
+
+    /**
+     * 从 Pareto 前沿中选出推荐配置：质量最高者，质量相同时取延迟更低者
+     */
+    public Map<String, Object> bestOnFront(String useCase) {
+        return paretoFront(useCase).stream()
+                .max(Comparator.<Map<String, Object>>comparingDouble(m -> (double) m.get("avgQuality"))
+                        .thenComparing(m -> -(double) m.get("avgLatencyMs")))
+                .orElse(null);
+    }
+
+    private List<Map<String, Object>> aggregate(List<TuningTrial> trials) {
+        Map<String, List<TuningTrial>> byConfig = trials.stream()
+                .filter(TuningTrial::succeeded)
+                .collect(Collectors.groupingBy(TuningTrial::configKey, LinkedHashMap::new, Collectors.toList()));
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        byConfig.forEach((key, group) -> {
+            TuningTrial first = group.get(0);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("temperature", first.temperature());
+            entry.put("topP", first.topP());
+            entry.put("maxTokens", first.maxTokens());
+            entry.put("samples", group.size());
+            entry.put("avgLatencyMs", group.stream().mapToLong(TuningTrial::latencyMs).average().orElse(0));
+            entry.put("avgOutputTokens", group.stream().mapToInt(TuningTrial::outputTokens).average().orElse(0));
+            entry.put("avgQuality", group.stream().mapToDouble(TuningTrial::quality).average().orElse(0));
+            result.add(entry);
+        });
+        return result;
+    }
+
+    private boolean dominates(Map<String, Object> a, Map<String, Object> b) {
+        double latencyA = (double) a.get("avgLatencyMs");
+        double latencyB = (double) b.get("avgLatencyMs");
+        double qualityA = (double) a.get("avgQuality");
+        double qualityB = (double) b.get("avgQuality");
+        return latencyA <= latencyB && qualityA >= qualityB && (latencyA < latencyB || qualityA > qualityB);
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(key + ".json");
+    }
+
+    /**
+     * 校验并规范化用例名称（同时用作文件名），无效时抛出 IllegalArgumentException
+     */
+    public String normalize(String useCase) {
+        String key = useCase == null ? "" : useCase.toLowerCase();
+        if (!key.matches("[a-z0-9_-]{1,64}")) {
+            throw new IllegalArgumentException("无效的用例名称：" + useCase);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.modelintegration.service;
+
+/**
+ * 单次调参试验的测量结果
+ */
+public record TuningTrial(
+        String runId,
+        String useCase,
+        double temperature,
+        double topP,
+        int maxTokens,
+        long latencyMs,
+        int outputTokens,
+        double quality,
+        String status,
+        long timestamp) {
+
+    public boolean succeeded() {
+        return "success".equals(status);
+    }
+
+    /**
+     * 参数组合的唯一标识，用于跨多次运行聚合
+     */
+    public String configKey() {
+        return temperature + "/" + topP + "/" + maxTokens;
+    }
+}
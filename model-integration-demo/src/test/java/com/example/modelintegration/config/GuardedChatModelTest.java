@@ -0,0 +1,133 @@
+package com.example.modelintegration.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.modelintegration.service.TokenEstimator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.NonTransientAiException;
+import reactor.core.publisher.Flux;
+
+class GuardedChatModelTest {
+
+    private static final String LONG_TEXT = "the quick brown fox jumps over the lazy dog ".repeat(30);
+
+    @Test
+    void completedLongGenerationIsNotCountedAsSlow() {
+        CircuitBreaker breaker = breaker();
+        PriorityCallScheduler scheduler = scheduler();
+        ChatModel model = stub(LONG_TEXT, 150);
+        // 先预热一次，避免首次加载 Reactor 的耗时被算进首个分片的等待
+        model.stream(new Prompt("预热")).blockLast();
+        GuardedChatModel guarded = guarded(model, scheduler, breaker);
+
+        for (int i = 0; i < 4; i++) {
+            guarded.call(new Prompt("写一篇长文"));
+            guarded.stream(new Prompt("写一篇长文")).blockLast();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(10, scheduler.getLimit());
+    }
+
+    @Test
+    void shortButSlowCallsOpenTheCircuit() {
+        CircuitBreaker breaker = breaker();
+        PriorityCallScheduler scheduler = scheduler();
+        GuardedChatModel guarded = guarded(stub("好", 150), scheduler, breaker);
+
+        for (int i = 0; i < 4; i++) {
+            guarded.call(new Prompt("你好"));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(6, scheduler.getLimit());
+    }
+
+    @Test
+    void localRejectionsAndClientErrorsAreIgnored() {
+        CircuitBreaker breaker = breaker();
+        PriorityCallScheduler scheduler = scheduler();
+        List<RuntimeException> errors = List.of(
+                new ModelOverloadedException("connection_pool", 1),
+                new NonTransientAiException("400 BAD_REQUEST - invalid max_tokens"),
+                new IllegalStateException("调用被取消", new InterruptedException()),
+                new NonTransientAiException("401 UNAUTHORIZED - invalid api key"));
+        for (RuntimeException error : errors) {
+            GuardedChatModel guarded = guarded(failing(error), scheduler, breaker);
+            assertThrows(RuntimeException.class, () -> guarded.call(new Prompt("你好")));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(10, scheduler.getLimit());
+
+        // 限流（429）与 5xx 说明供应商过载，照常计为失败
+        GuardedChatModel throttled = guarded(failing(new NonTransientAiException("429 TOO_MANY_REQUESTS - slow down")),
+                scheduler, breaker);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RuntimeException.class, () -> throttled.call(new Prompt("你好")));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private static ChatModel failing(RuntimeException error) {
+        return prompt -> {
+            throw error;
+        };
+    }
+
+    private static GuardedChatModel guarded(ChatModel model, PriorityCallScheduler scheduler, CircuitBreaker breaker) {
+        return new GuardedChatModel(model, scheduler, breaker, Duration.ofMillis(50).toNanos(),
+                Duration.ofMillis(1).toNanos(), new TokenEstimator(new SimpleMeterRegistry(), 0.1));
+    }
+
+    private static CircuitBreaker breaker() {
+        return new CircuitBreaker(4, 4, 0.5, Duration.ofSeconds(30).toNanos(), 1);
+    }
+
+    private static PriorityCallScheduler scheduler() {
+        Map<CallPriority, PriorityCallScheduler.Policy> policies = new EnumMap<>(CallPriority.class);
+        for (CallPriority priority : CallPriority.values()) {
+            policies.put(priority, new PriorityCallScheduler.Policy(1, Duration.ofSeconds(1), Duration.ofSeconds(1), 10));
+        }
+        return new PriorityCallScheduler(new AdaptiveConcurrencyLimiter(10, 1, 20, 0.9), 0, policies);
+    }
+
+    /**
+     * 同步调用耗时 delayMs 后返回 text；流式调用立即发出首个分片，delayMs 后发出其余内容
+     */
+    private static ChatModel stub(String text, long delayMs) {
+        return new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return response(text);
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                return Flux.concat(Flux.just(response(text.substring(0, 1))),
+                        Flux.just(response(text.substring(1))).delayElements(Duration.ofMillis(delayMs)));
+            }
+        };
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+}
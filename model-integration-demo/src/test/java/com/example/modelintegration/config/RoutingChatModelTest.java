@@ -0,0 +1,178 @@
+package com.example.modelintegration.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.deepseek.DeepSeekChatOptions;
+import reactor.core.publisher.Flux;
+
+class RoutingChatModelTest {
+
+    @Test
+    void routesToFasterProviderOnceStatsAreKnown() {
+        AtomicInteger slowCalls = new AtomicInteger();
+        AtomicInteger fastCalls = new AtomicInteger();
+        Map<String, ChatModel> models = new LinkedHashMap<>();
+        models.put("slow", stub("slow", 40, slowCalls));
+        models.put("fast", stub("fast", 5, fastCalls));
+        RoutingChatModel routing = new RoutingChatModel(models, false, Duration.ofSeconds(5), 0.5, 0.0);
+
+        // 冷启动：两个供应商各取得一个样本
+        routing.call(new Prompt("warm-up"));
+        routing.call(new Prompt("warm-up"));
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("fast", text(routing.call(new Prompt("hello"))));
+        }
+        assertEquals(1, slowCalls.get());
+        assertEquals("fast", routing.rank().get(0).name);
+    }
+
+    @Test
+    void hedgesToSecondProviderWhenPrimaryIsSlow() {
+        Map<String, ChatModel> models = new LinkedHashMap<>();
+        models.put("degraded", stub("degraded", 2_000, new AtomicInteger()));
+        models.put("healthy", stub("healthy", 10, new AtomicInteger()));
+        RoutingChatModel routing = new RoutingChatModel(models, true, Duration.ofMillis(50), 0.5, 0.0);
+
+        long start = System.nanoTime();
+        ChatResponse response = routing.call(new Prompt("hello"));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("healthy", text(response));
+        assertTrue(elapsedMs < 1_000, "对冲请求应在慢供应商返回前完成，实际耗时 " + elapsedMs + "ms");
+        assertEquals(1L, routing.snapshot().get("hedgedRequests"));
+    }
+
+    @Test
+    void failsOverAndPenalizesErroringProvider() {
+        Map<String, ChatModel> models = new LinkedHashMap<>();
+        models.put("broken", prompt -> {
+            throw new IllegalStateException("provider down");
+        });
+        models.put("backup", stub("backup", 5, new AtomicInteger()));
+        RoutingChatModel routing = new RoutingChatModel(models, false, Duration.ofSeconds(5), 0.5, 0.0);
+
+        assertEquals("backup", text(routing.call(new Prompt("hello"))));
+        assertEquals("backup", text(routing.call(new Prompt("hello"))));
+        assertEquals("backup", routing.rank().get(0).name);
+    }
+
+    @Test
+    void streamFailsOverBeforeFirstChunk() {
+        Map<String, ChatModel> models = new LinkedHashMap<>();
+        models.put("broken", new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                throw new IllegalStateException("provider down");
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                return Flux.error(new IllegalStateException("provider down"));
+            }
+        });
+        models.put("backup", new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                return response("backup");
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                return Flux.just(response("a"), response("b"));
+            }
+        });
+        RoutingChatModel routing = new RoutingChatModel(models, false, Duration.ofSeconds(5), 0.5, 0.0);
+
+        List<String> chunks = routing.stream(new Prompt("hello")).map(RoutingChatModelTest::text).collectList().block();
+        assertEquals(List.of("a", "b"), chunks);
+    }
+
+    @Test
+    void failoverSendsOnlyPortableOptionsToSecondProvider() {
+        List<ChatOptions> received = new CopyOnWriteArrayList<>();
+        Map<String, ChatModel> models = new LinkedHashMap<>();
+        models.put("deepseek", new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                throw new IllegalStateException("provider down");
+            }
+
+            @Override
+            public ChatOptions getDefaultOptions() {
+                return DeepSeekChatOptions.builder().model("deepseek-chat").temperature(0.7).build();
+            }
+        });
+        models.put("openai", new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                received.add(prompt.getOptions());
+                return response("openai");
+            }
+
+            @Override
+            public ChatOptions getDefaultOptions() {
+                return ChatOptions.builder().model("gpt-4o-mini").temperature(0.7).build();
+            }
+        });
+        RoutingChatModel routing = new RoutingChatModel(models, false, Duration.ofSeconds(5), 0.5, 0.0);
+        ChatClient client = ChatClient.builder(routing).build();
+
+        String content = client.prompt()
+                .user("hello")
+                .options(ChatOptions.builder().temperature(0.2).maxTokens(100).build())
+                .call()
+                .content();
+
+        assertEquals("openai", content);
+        assertEquals(1, received.size());
+        // 第一个供应商的模型名不能带给第二个供应商，由它使用自己的默认模型
+        assertNull(received.get(0).getModel());
+        assertFalse(received.get(0) instanceof DeepSeekChatOptions);
+        assertEquals(0.2, received.get(0).getTemperature());
+        assertEquals(100, received.get(0).getMaxTokens());
+
+        client.prompt().user("hello").call().content();
+        assertNull(received.get(1).getModel());
+        assertNull(received.get(1).getTemperature());
+    }
+
+    private static ChatModel stub(String text, long latencyMs, AtomicInteger calls) {
+        return prompt -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("cancelled", e);
+            }
+            return response(text);
+        };
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+
+    private static String text(ChatResponse response) {
+        return response.getResult().getOutput().getText();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.modelintegration.config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 请求线程模型容量对比：200 个平台线程的固定线程池（Tomcat 默认 max-threads）vs. 每请求一个虚拟线程
+ * 前端服务同步调用一个固定延迟的模拟 LLM 上游，统计峰值在途请求数与整批请求的完成时间。
+ * 运行方式：mvn test-compile 后直接执行 main 方法，可选参数：并发请求数、上游延迟毫秒数
+ */
+public class VirtualThreadCapacityBenchmark {
+
+    private static final int PLATFORM_POOL_SIZE = 200;
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long upstreamDelayMillis = args.length > 1 ? Long.parseLong(args[1]) : 500;
+
+        HttpServer upstream = startUpstream(upstreamDelayMillis);
+        try {
+            URI upstreamUri = URI.create("http://127.0.0.1:" + upstream.getAddress().getPort() + "/chat");
+            System.out.printf("并发请求 %d，上游延迟 %d ms%n", requests, upstreamDelayMillis);
+            // 先各跑一轮小批量预热
+            run("warmup", Executors.newFixedThreadPool(PLATFORM_POOL_SIZE), upstreamUri, 50, false);
+            run("warmup", Executors.newVirtualThreadPerTaskExecutor(), upstreamUri, 50, false);
+
+            run("platform-" + PLATFORM_POOL_SIZE, Executors.newFixedThreadPool(PLATFORM_POOL_SIZE),
+                    upstreamUri, requests, true);
+            run("virtual", Executors.newVirtualThreadPerTaskExecutor(), upstreamUri, requests, true);
+        } finally {
+            upstream.stop(0);
+        }
+    }
+
+    private static void run(String name, ExecutorService requestExecutor, URI upstreamUri,
+                            int requests, boolean report) throws Exception {
+        AtomicInteger inflight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        HttpClient upstreamClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        HttpServer front = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), requests * 2);
+        front.setExecutor(requestExecutor);
+        front.createContext("/api/chat", exchange -> {
+            peak.accumulateAndGet(inflight.incrementAndGet(), Math::max);
+            try {
+                // 请求线程阻塞等待上游响应，与控制器中同步调用 ChatClient 一致
+                String body = upstreamClient.send(HttpRequest.newBuilder(upstreamUri).build(),
+                        HttpResponse.BodyHandlers.ofString()).body();
+                respond(exchange, body);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.sendResponseHeaders(500, -1);
+            } finally {
+                inflight.decrementAndGet();
+                exchange.close();
+            }
+        });
+        front.start();
+
+        URI frontUri = URI.create("http://127.0.0.1:" + front.getAddress().getPort() + "/api/chat");
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            long start = System.nanoTime();
+            List<Future<Long>> latencies = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                latencies.add(callers.submit(() -> {
+                    long begin = System.nanoTime();
+                    client.send(HttpRequest.newBuilder(frontUri).timeout(Duration.ofMinutes(2)).build(),
+                            HttpResponse.BodyHandlers.discarding());
+                    return System.nanoTime() - begin;
+                }));
+            }
+            long[] sorted = new long[requests];
+            for (int i = 0; i < requests; i++) {
+                sorted[i] = latencies.get(i).get();
+            }
+            long wallNanos = System.nanoTime() - start;
+            Arrays.sort(sorted);
+            if (report) {
+                System.out.printf("%-14s wall %6d ms  peak in-flight %5d  p50 %6d ms  p99 %6d ms  throughput %7.1f req/s%n",
+                        name, wallNanos / 1_000_000, peak.get(),
+                        sorted[requests / 2] / 1_000_000, sorted[(int) (requests * 0.99) - 1] / 1_000_000,
+                        requests / (wallNanos / 1_000_000_000.0));
+            }
+        } finally {
+            front.stop(0);
+            requestExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 模拟 LLM 上游：固定延迟后返回一段文本；自身运行在虚拟线程上，不成为瓶颈
+     */
+    private static HttpServer startUpstream(long delayMillis) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/chat", exchange -> {
+            try {
+                Thread.sleep(delayMillis);
+                respond(exchange, "{\"content\":\"simulated completion\"}");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
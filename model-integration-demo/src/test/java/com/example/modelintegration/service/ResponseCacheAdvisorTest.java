@@ -0,0 +1,115 @@
+package com.example.modelintegration.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.example.modelintegration.config.EmbeddingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.deepseek.DeepSeekChatOptions;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+class ResponseCacheAdvisorTest {
+
+    @Test
+    void cachesOnlyDeterministicRequestsWithShippedProperties() throws IOException {
+        StandardEnvironment environment = shippedEnvironment();
+        List<Double> temperatures = new CopyOnWriteArrayList<>();
+        // 与 deepseek 配置一致的默认参数：ChatClient 会把它们带进每个请求
+        ChatModel model = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                temperatures.add(prompt.getOptions().getTemperature());
+                return new ChatResponse(List.of(new Generation(new AssistantMessage("answer " + temperatures.size()))));
+            }
+
+            @Override
+            public ChatOptions getDefaultOptions() {
+                return DeepSeekChatOptions.builder()
+                        .model(environment.getProperty("spring.ai.deepseek.chat.options.model"))
+                        .temperature(environment.getProperty("spring.ai.deepseek.chat.options.temperature", Double.class))
+                        .build();
+            }
+        };
+        ResponseCacheAdvisor advisor = advisor(environment);
+        ChatClient client = ChatClient.builder(model).defaultSystem("你是一个有用的 AI 助手。").build();
+
+        // 供应商默认的 temperature（0.7）不改写，不缓存
+        ask(client, advisor, "basic", null, "什么是虚拟线程？");
+        ChatClientResponse sampled = ask(client, advisor, "basic", null, "什么是虚拟线程？");
+        assertEquals("bypass", sampled.context().get(ResponseCacheAdvisor.RESULT));
+        assertEquals(List.of(0.7, 0.7), temperatures);
+
+        // 显式使用确定性参数的请求才命中缓存
+        for (String route : List.of("basic", "code-analysis")) {
+            ChatClientResponse first = ask(client, advisor, route, 0.0, "什么是虚拟线程？");
+            ChatClientResponse second = ask(client, advisor, route, 0.0, "什么是虚拟线程？ ");
+
+            assertEquals("miss", first.context().get(ResponseCacheAdvisor.RESULT));
+            assertEquals("exact", second.context().get(ResponseCacheAdvisor.RESULT));
+            assertEquals(first.chatResponse().getResult().getOutput().getText(),
+                    second.chatResponse().getResult().getOutput().getText());
+        }
+        assertEquals(List.of(0.7, 0.7, 0.0, 0.0), temperatures);
+
+        // 关闭缓存的路由即使参数确定也直接调用模型
+        ChatClientResponse creative = ask(client, advisor, "creative-writing", 0.0, "写一首诗");
+        assertEquals("bypass", creative.context().get(ResponseCacheAdvisor.RESULT));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> basic = (Map<String, Object>) advisor.getStats().get("basic");
+        assertEquals(1L, basic.get("exactHits"));
+    }
+
+    private static ChatClientResponse ask(ChatClient client, ResponseCacheAdvisor advisor, String route,
+                                          Double temperature, String message) {
+        ChatClient.ChatClientRequestSpec spec = client.prompt();
+        if (temperature != null) {
+            spec = spec.options(DeepSeekChatOptions.builder().temperature(temperature).build());
+        }
+        return spec
+                .user(message)
+                .advisors(a -> a.advisors(advisor).param(ResponseCacheAdvisor.ROUTE, route))
+                .call()
+                .chatClientResponse();
+    }
+
+    private static StandardEnvironment shippedEnvironment() throws IOException {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.setConversionService(new ApplicationConversionService());
+        environment.getPropertySources().addFirst(new ResourcePropertySource(new ClassPathResource("application.properties")));
+        environment.getPropertySources().addFirst(new ResourcePropertySource(
+                new ClassPathResource("application-deepseek.properties")));
+        return environment;
+    }
+
+    private static ResponseCacheAdvisor advisor(StandardEnvironment environment) {
+        return new ResponseCacheAdvisor(environment,
+                new DefaultListableBeanFactory().getBeanProvider(EmbeddingService.class),
+                new SimpleMeterRegistry(),
+                environment.getProperty("app.response-cache.enabled", Boolean.class),
+                environment.getProperty("app.response-cache.ttl", Duration.class),
+                environment.getProperty("app.response-cache.max-entries", Integer.class),
+                environment.getProperty("app.response-cache.max-temperature", Double.class),
+                environment.getProperty("app.response-cache.semantic-threshold", Double.class),
+                environment.getProperty("app.response-cache.semantic-max-entries", Integer.class),
+                environment.getProperty("app.response-cache.semantic-max-scopes", Integer.class));
+    }
+}
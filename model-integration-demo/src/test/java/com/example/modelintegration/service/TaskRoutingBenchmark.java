@@ -0,0 +1,108 @@
+package com.example.modelintegration.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 任务类型检测基准：原有的 toLowerCase + String.contains 链 vs. Aho–Corasick 自动机
+ * 运行方式：mvn test-compile 后直接执行 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskRoutingBenchmark {
+
+    @Param({"64", "4096", "65536"})
+    public int inputLength;
+
+    /**
+     * ascii：纯英文代码；mixed：带中文注释的代码，且没有关键词命中（两种实现的最坏情况）
+     */
+    @Param({"ascii", "mixed"})
+    public String inputKind;
+
+    private String input;
+    private KeywordAutomaton automaton;
+
+    @Setup
+    public void setup() {
+        LinkedHashMap<String, List<String>> table = new LinkedHashMap<>();
+        table.put("technical", List.of("代码", "程序", "函数", "bug", "编程", "算法"));
+        table.put("creative", List.of("写作", "故事", "诗歌", "创意", "小说", "文章"));
+        table.put("business", List.of("商业", "市场", "策略", "管理", "营销", "分析"));
+        automaton = KeywordAutomaton.build(table);
+
+        // 模拟粘贴进来的代码：没有任何关键词命中时，旧实现需要对整段输入做 18 次完整扫描
+        String line = "ascii".equals(inputKind)
+                ? "    public Map<String, Object> handle(Request request) { return service.process(request); }\n"
+                : "    // 处理请求并返回结果，调用下游服务\n    public Map<String, Object> handle(Request request) { return service.process(request); }\n";
+        StringBuilder sb = new StringBuilder(inputLength);
+        while (sb.length() < inputLength) {
+            sb.append(line);
+        }
+        sb.setLength(inputLength);
+        input = sb.toString();
+    }
+
+    @Benchmark
+    public String containsChain() {
+        return legacyDetectTaskType(input);
+    }
+
+    @Benchmark
+    public String ahoCorasick() {
+        return automaton.best(input, "default");
+    }
+
+    /**
+     * 原 ModelSelectionService.detectTaskType 的实现，作为对照组
+     */
+    private static String legacyDetectTaskType(String input) {
+        String lowerInput = input.toLowerCase();
+
+        if (lowerInput.contains("代码") || lowerInput.contains("程序") ||
+                lowerInput.contains("函数") || lowerInput.contains("bug") ||
+                lowerInput.contains("编程") || lowerInput.contains("算法")) {
+            return "technical";
+        }
+
+        if (lowerInput.contains("写作") || lowerInput.contains("故事") ||
+                lowerInput.contains("诗歌") || lowerInput.contains("创意") ||
+                lowerInput.contains("小说") || lowerInput.contains("文章")) {
+            return "creative";
+        }
+
+        if (lowerInput.contains("商业") || lowerInput.contains("市场") ||
+                lowerInput.contains("策略") || lowerInput.contains("管理") ||
+                lowerInput.contains("营销") || lowerInput.contains("分析")) {
+            return "business";
+        }
+
+        return "default";
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TaskRoutingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
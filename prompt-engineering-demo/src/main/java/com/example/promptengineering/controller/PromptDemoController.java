@@ -9,6 +9,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/prompt")
 public class PromptDemoController {
@@ -22,6 +24,23 @@ public class PromptDemoController {
         this.customerServicePromptService = customerServicePromptService;
     }
 
+    @GetMapping("/health")
+    public Map<String, Object> health() {
+        return Map.of(
+                "status", "UP",
+                "service", "Prompt Engineering Demo",
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
+    @GetMapping("/tokens/stats")
+    public Map<String, Object> tokenStats() {
+        return Map.of(
+                "estimator", customerServicePromptService.getTokenStats(),
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+
     @GetMapping("/weather")
     public String getWeatherInfo(@RequestParam String city, @RequestParam String date) {
         return weatherPromptService.getWeatherInfo(city, date);
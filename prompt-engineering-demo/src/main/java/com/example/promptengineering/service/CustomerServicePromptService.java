@@ -3,19 +3,54 @@ package com.example.promptengineering.service;
 import java.util.Map;
 
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 @Service
 public class CustomerServicePromptService {
 
+    /** 单条用户消息的角色标记与回复起始标记 */
+    private static final int MESSAGE_OVERHEAD = 7;
+
     private final ChatClient chatClient;
+    private final TokenEstimator tokenEstimator;
+    private final int maxMessageTokens;
+    private final int maxHistoryTokens;
+    private final boolean rejectOversizedMessage;
 
-    public CustomerServicePromptService(ChatClient.Builder chatClientBuilder) {
+    public CustomerServicePromptService(ChatClient.Builder chatClientBuilder,
+                                        TokenEstimator tokenEstimator,
+                                        @Value("${app.prompt-budget.max-message-tokens:1000}") int maxMessageTokens,
+                                        @Value("${app.prompt-budget.max-history-tokens:1500}") int maxHistoryTokens,
+                                        @Value("${app.prompt-budget.action:truncate}") String action) {
         this.chatClient = chatClientBuilder.build();
+        this.tokenEstimator = tokenEstimator;
+        this.maxMessageTokens = maxMessageTokens;
+        this.maxHistoryTokens = maxHistoryTokens;
+        this.rejectOversizedMessage = "reject".equalsIgnoreCase(action);
     }
 
+    /**
+     * 客服回复
+     * 客户消息与历史订单长度不受控，渲染前先按 token 预算裁剪：消息过长时截断或拒绝（413），
+     * 历史订单只保留最近的若干行
+     */
     public String handleCustomerInquiry(String customerMessage, String customerName, String orderHistory) {
+        int messageTokens = tokenEstimator.count(customerMessage);
+        if (messageTokens > maxMessageTokens) {
+            if (rejectOversizedMessage) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "客户消息约 " + messageTokens + " 个 token，超过上限 " + maxMessageTokens);
+            }
+            customerMessage = tokenEstimator.keepHead(customerMessage, maxMessageTokens);
+        }
+        orderHistory = tokenEstimator.keepTailLines(orderHistory, maxHistoryTokens);
+
         // 定义客服 Prompt 模板
         String promptTemplate = "你是一位专业的客服代表，名字叫小明。请根据以下信息为客户提供帮助：\n\n" +
                 "客户姓名：{customerName}\n" +
@@ -37,10 +72,7 @@ public class CustomerServicePromptService {
             "orderHistory", orderHistory
         ));
 
-        return chatClient.prompt()
-                .user(filledPrompt)
-                .call()
-                .content();
+        return callAndRecord(filledPrompt);
     }
 
     public String generateOrderStatusUpdate(String orderNumber, String status, String estimatedDelivery) {
@@ -63,9 +95,27 @@ public class CustomerServicePromptService {
             "estimatedDelivery", estimatedDelivery
         ));
 
-        return chatClient.prompt()
+        return callAndRecord(filledPrompt);
+    }
+
+    public Map<String, Object> getTokenStats() {
+        return tokenEstimator.getStats();
+    }
+
+    /**
+     * 调用模型，并用返回的实际 prompt token 数检验本地估算
+     */
+    private String callAndRecord(String filledPrompt) {
+        int estimated = tokenEstimator.count(filledPrompt) + MESSAGE_OVERHEAD;
+        ChatResponse response = chatClient.prompt()
                 .user(filledPrompt)
                 .call()
-                .content();
+                .chatResponse();
+
+        Usage usage = response.getMetadata().getUsage();
+        if (usage != null && usage.getPromptTokens() != null) {
+            tokenEstimator.record(estimated, usage.getPromptTokens());
+        }
+        return response.getResult().getOutput().getText();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.example.promptengineering.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.springframework.stereotype.Component;
+
+/**
+ * 模板变量的 token 计数与裁剪
+ * 使用 cl100k_base BPE 词表（懒加载一次）在本地计数，渲染模板前就能知道每个变量会占多少 token。
+ */
+@Component
+public class TokenEstimator {
+
+    private static final Encoding ENCODING = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+    private final LongAdder samples = new LongAdder();
+    private final DoubleAdder errorPercentTotal = new DoubleAdder();
+
+    public int count(String text) {
+        return text == null || text.isEmpty() ? 0 : ENCODING.countTokensOrdinary(text);
+    }
+
+    /**
+     * 从开头保留不超过 maxTokens 个 token
+     */
+    public String keepHead(String text, int maxTokens) {
+        EncodingResult result = ENCODING.encodeOrdinary(text, maxTokens);
+        return result.isTruncated() ? text.substring(0, result.getLastProcessedCharacterIndex() + 1) + "…" : text;
+    }
+
+    /**
+     * 按行从末尾往前保留，总数不超过 maxTokens；适合越靠后越新的记录（如历史订单）
+     */
+    public String keepTailLines(String text, int maxTokens) {
+        if (count(text) <= maxTokens) {
+            return text;
+        }
+        Deque<String> kept = new ArrayDeque<>();
+        int used = count("（更早的记录已省略）\n");
+        String[] lines = text.split("\\R");
+        for (int i = lines.length - 1; i >= 0; i--) {
+            int lineTokens = count(lines[i]) + 1;
+            if (used + lineTokens > maxTokens) {
+                break;
+            }
+            kept.addFirst(lines[i]);
+            used += lineTokens;
+        }
+        kept.addFirst("（更早的记录已省略）");
+        return String.join("\n", kept);
+    }
+
+    public void record(int estimatedTokens, int actualTokens) {
+        if (estimatedTokens > 0 && actualTokens > 0) {
+            samples.increment();
+            errorPercentTotal.add(Math.abs(estimatedTokens - actualTokens) * 100.0 / actualTokens);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long count = samples.sum();
+        return Map.of(
+                "encoding", ENCODING.getName(),
+                "samples", count,
+                "meanErrorPercent", count == 0 ? 0.0 : errorPercentTotal.sum() / count
+        );
+    }
+}
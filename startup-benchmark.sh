@@ -0,0 +1,66 @@
+#!/usr/bin/env bash
+# 启动基准：从进程启动到第一个成功请求（HTTP 2xx）的耗时
+# 对比三种模式：默认启动、Spring AOT、AOT + CDS 归档
+#
+# 用法：./startup-benchmark.sh <模块目录> [每种模式的运行次数，默认 5]
+# 前置：在模块目录下执行 mvn -Pstartup package（生成 AOT 代码、解压布局与 CDS 归档）
+set -euo pipefail
+
+module=${1:?"用法：$0 <模块目录> [运行次数]"}
+runs=${2:-5}
+port=${PORT:-18080}
+cd "$(dirname "$0")/$module"
+
+# 探测地址：不调用模型的轻量接口
+case "$module" in
+    model-integration-demo) probe=/actuator/health ;;
+    tool-calling-demo) probe=/api/tools/health ;;
+    chat-memory-demo) probe=/api/chat/health ;;
+    prompt-engineering-demo) probe=/api/prompt/health ;;
+    simple-chat-client) probe=/ok ;;
+    *) echo "未知模块：$module" >&2; exit 1 ;;
+esac
+
+jar=$(basename "$(ls target/*.jar | head -1)")
+if [[ ! -f target/startup/application.jsa ]]; then
+    echo "缺少 target/startup/application.jsa，请先执行 mvn -Pstartup package" >&2
+    exit 1
+fi
+java=${JAVA_HOME:+$JAVA_HOME/bin/}java
+
+# 启动一次并返回到首个成功请求的毫秒数
+measure() {
+    local start end pid
+    start=$(date +%s%N)
+    DEEPSEEK_API_KEY=${DEEPSEEK_API_KEY:-benchmark} "$java" "$@" --server.port="$port" >/dev/null 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "http://localhost:$port$probe"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "启动失败：$*" >&2
+            return 1
+        fi
+        sleep 0.02
+    done
+    end=$(date +%s%N)
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo $(((end - start) / 1000000))
+}
+
+run_mode() {
+    local label=$1
+    shift
+    local times=() sorted
+    for ((i = 0; i < runs; i++)); do
+        times+=("$(measure "$@")")
+    done
+    mapfile -t sorted < <(printf '%s\n' "${times[@]}" | sort -n)
+    printf '%-10s 中位数 %6d ms  最小 %6d ms  最大 %6d ms  [%s]\n' "$label" \
+        "${sorted[$((runs / 2))]}" "${sorted[0]}" "${sorted[$((runs - 1))]}" "${times[*]}"
+}
+
+echo "$module：到首个成功请求 $probe 的耗时，每种模式 $runs 次"
+run_mode default -jar "target/$jar"
+run_mode aot -Dspring.aot.enabled=true -jar "target/startup/$jar"
+run_mode aot+cds -XX:SharedArchiveFile=target/startup/application.jsa -Dspring.aot.enabled=true \
+    -jar "target/startup/$jar"
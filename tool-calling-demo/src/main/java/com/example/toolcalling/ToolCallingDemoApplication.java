@@ -7,6 +7,10 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class ToolCallingDemoApplication {
 
     public static void main(String[] args) {
+        // JDK HttpClient 默认空闲 30 秒即关闭连接；只在首次创建客户端时读取，须在启动前设置
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout", "300");
+        }
         SpringApplication.run(ToolCallingDemoApplication.class, args);
         
         System.out.println("🚀 Tool Calling Demo 启动成功！");
@@ -0,0 +1,191 @@
+package com.example.toolcalling.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.observation.ObservationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.DefaultToolCallingManager;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.ToolExecutionExceptionProcessor;
+import org.springframework.ai.tool.observation.ToolCallingObservationConvention;
+import org.springframework.ai.tool.resolution.ToolCallbackResolver;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 并行执行同一轮中的多个工具调用
+ * 模型一次返回多个 tool call 时（如两个城市的天气加当前时间），每个调用在独立的虚拟线程上交给默认的
+ * {@link DefaultToolCallingManager} 执行（工具解析、观测与异常处理保持不变），整轮耗时取决于最慢的工具而不是总和。
+ * 结果按模型给出的顺序合并为一条工具响应；超过 turn-deadline 仍未完成的调用被中断，以超时说明作为该工具的结果返回给模型，
+ * 单个调用的轮次也不例外。
+ */
+@Component
+public class ParallelToolCallingManager implements ToolCallingManager, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ParallelToolCallingManager.class);
+
+    private final DefaultToolCallingManager delegate;
+    private final Duration turnDeadline;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("tool-call-", 0).factory());
+
+    private final LongAdder turns = new LongAdder();
+    private final LongAdder parallelTurns = new LongAdder();
+    private final LongAdder toolCalls = new LongAdder();
+    private final LongAdder timedOutCalls = new LongAdder();
+    private final LongAdder wallMillis = new LongAdder();
+    private final LongAdder toolMillis = new LongAdder();
+
+    public ParallelToolCallingManager(ToolCallbackResolver toolCallbackResolver,
+                                      ToolExecutionExceptionProcessor toolExecutionExceptionProcessor,
+                                      ObjectProvider<ObservationRegistry> observationRegistry,
+                                      ObjectProvider<ToolCallingObservationConvention> observationConvention,
+                                      @Value("${app.tools.turn-deadline:30s}") Duration turnDeadline) {
+        this.delegate = DefaultToolCallingManager.builder()
+                .observationRegistry(observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP))
+                .toolCallbackResolver(toolCallbackResolver)
+                .toolExecutionExceptionProcessor(toolExecutionExceptionProcessor)
+                .build();
+        observationConvention.ifAvailable(delegate::setObservationConvention);
+        this.turnDeadline = turnDeadline;
+    }
+
+    @Override
+    public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+        return delegate.resolveToolDefinitions(chatOptions);
+    }
+
+    @Override
+    public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+        AssistantMessage assistantMessage = chatResponse.getResults().stream()
+                .map(Generation::getOutput)
+                .filter(AssistantMessage::hasToolCalls)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No tool call requested by the chat model"));
+        List<AssistantMessage.ToolCall> calls = assistantMessage.getToolCalls();
+
+        turns.increment();
+        toolCalls.add(calls.size());
+        if (calls.size() > 1) {
+            parallelTurns.increment();
+        }
+
+        List<Callable<TimedResponse>> tasks = new ArrayList<>(calls.size());
+        for (AssistantMessage.ToolCall call : calls) {
+            // 每个调用单独组成一条助手消息交给默认实现执行
+            ChatResponse single = new ChatResponse(List.of(new Generation(
+                    new AssistantMessage(assistantMessage.getText(), assistantMessage.getMetadata(), List.of(call)))));
+            tasks.add(() -> {
+                long start = System.nanoTime();
+                ToolExecutionResult result = delegate.executeToolCalls(prompt, single);
+                List<Message> history = result.conversationHistory();
+                ToolResponseMessage response = (ToolResponseMessage) history.get(history.size() - 1);
+                return new TimedResponse(response.getResponses().get(0), result.returnDirect(),
+                        (System.nanoTime() - start) / 1_000_000);
+            });
+        }
+
+        long start = System.nanoTime();
+        List<Future<TimedResponse>> futures;
+        try {
+            // invokeAll 按提交顺序返回，截止时仍未完成的任务会被取消（中断）；
+            // 只有一个调用时同样在工作线程上执行，才能在截止时间到达时中断挂起的工具
+            futures = executor.invokeAll(tasks, turnDeadline.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("工具调用被中断", e);
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>(calls.size());
+        boolean returnDirect = true;
+        long sequentialMillis = 0;
+        for (int i = 0; i < calls.size(); i++) {
+            AssistantMessage.ToolCall call = calls.get(i);
+            try {
+                TimedResponse timed = futures.get(i).get();
+                responses.add(timed.response());
+                returnDirect &= timed.returnDirect();
+                sequentialMillis += timed.millis();
+            } catch (CancellationException e) {
+                timedOutCalls.increment();
+                returnDirect = false;
+                sequentialMillis += elapsed;
+                log.warn("工具 {} 超过本轮截止时间 {} ms，已中断", call.name(), turnDeadline.toMillis());
+                responses.add(new ToolResponseMessage.ToolResponse(call.id(), call.name(),
+                        "工具调用超时（超过 " + turnDeadline.toMillis() + " ms），未获得结果"));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException runtime ? runtime
+                        : new IllegalStateException("工具 " + call.name() + " 执行失败", cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("工具调用被中断", e);
+            }
+        }
+        wallMillis.add(elapsed);
+        toolMillis.add(sequentialMillis);
+        log.debug("执行 {} 个工具调用：耗时 {} ms，各工具耗时合计 {} ms", calls.size(), elapsed, sequentialMillis);
+
+        List<Message> conversationHistory = new ArrayList<>(prompt.getInstructions());
+        conversationHistory.add(assistantMessage);
+        conversationHistory.add(new ToolResponseMessage(responses, Map.of()));
+        return ToolExecutionResult.builder()
+                .conversationHistory(conversationHistory)
+                .returnDirect(returnDirect)
+                .build();
+    }
+
+    /**
+     * 关闭时中断仍在执行的工具调用，不让工具线程活过应用上下文
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdownNow();
+        if (!executor.awaitTermination(turnDeadline.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("仍有工具调用未响应中断，不再等待");
+        }
+    }
+
+    /**
+     * 工具执行统计：多工具轮次占比、超时次数，以及实际耗时与各工具耗时之和（即串行执行时的耗时）的对比
+     */
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "turns", turns.sum(),
+                "parallelTurns", parallelTurns.sum(),
+                "toolCalls", toolCalls.sum(),
+                "timedOutCalls", timedOutCalls.sum(),
+                "wallMillis", wallMillis.sum(),
+                "toolMillis", toolMillis.sum(),
+                "savedMillis", Math.max(0, toolMillis.sum() - wallMillis.sum()),
+                "turnDeadlineMs", turnDeadline.toMillis()
+        );
+    }
+
+    private record TimedResponse(ToolResponseMessage.ToolResponse response, boolean returnDirect, long millis) {
+    }
+}
@@ -1,16 +1,113 @@
 package com.example.toolcalling.config;
 
-import org.springframework.cache.annotation.EnableCaching;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
 import org.springframework.web.client.RestTemplate;
 
+/**
+ * 工具与模型调用共用的 HTTP 传输
+ * 一个 JDK HttpClient 同时供工具的 RestTemplate 和 DeepSeek 的 RestClient/WebClient 使用：
+ * 优先 HTTP/2（同一主机多路复用一条连接），连接保持存活，避免每次调用都重新建连和 TLS 握手。
+ */
 @Configuration
-@EnableCaching
 public class ToolConfiguration {
 
+    private static final Logger log = LoggerFactory.getLogger(ToolConfiguration.class);
+
+    @Value("${app.http.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    @Value("${app.http.read-timeout:60s}")
+    private Duration readTimeout;
+
+    @Value("${app.http.prewarm.url:${spring.ai.deepseek.base-url:https://api.deepseek.com}}")
+    private String prewarmUrl;
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public HttpClient sharedHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    @Bean
+    public JdkClientHttpRequestFactory sharedRequestFactory(HttpClient sharedHttpClient) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(sharedHttpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        return requestFactory;
+    }
+
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder, JdkClientHttpRequestFactory sharedRequestFactory) {
+        return builder.requestFactory(() -> sharedRequestFactory).build();
+    }
+
+    /**
+     * DeepSeek 同步调用走共享连接池
+     */
+    @Bean
+    public RestClientCustomizer sharedTransportRestClientCustomizer(JdkClientHttpRequestFactory sharedRequestFactory) {
+        return builder -> builder.requestFactory(sharedRequestFactory);
+    }
+
+    /**
+     * DeepSeek 流式调用走共享连接池；排在 Spring Boot 默认 connector 之后以覆盖它
+     */
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public WebClientCustomizer sharedTransportWebClientCustomizer(HttpClient sharedHttpClient) {
+        return builder -> builder.clientConnector(new JdkClientHttpConnector(sharedHttpClient));
+    }
+
+    /**
+     * 启动后预先解析 DNS 并与模型服务建立连接，首个工具调用对话不必等待握手
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        HttpClient httpClient = sharedHttpClient();
+        URI uri = URI.create(prewarmUrl);
+        Thread.ofVirtual().name("http-prewarm").start(() -> {
+            try {
+                long start = System.nanoTime();
+                InetAddress.getAllByName(uri.getHost());
+                long resolved = System.nanoTime();
+                HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(uri)
+                                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                                .timeout(connectTimeout.multipliedBy(2))
+                                .build(),
+                        HttpResponse.BodyHandlers.discarding());
+                log.info("已预热 {}：DNS {} ms，建连及首个响应 {} ms，协议 {}", uri.getHost(),
+                        (resolved - start) / 1_000_000, (System.nanoTime() - resolved) / 1_000_000,
+                        response.version());
+            } catch (IOException e) {
+                log.warn("预热 {} 失败：{}", uri, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
     }
-} 
\ No newline at end of file
+}
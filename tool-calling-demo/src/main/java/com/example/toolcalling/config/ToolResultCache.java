@@ -0,0 +1,270 @@
+package com.example.toolcalling.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * 工具结果缓存
+ * 在 ToolCallback 层包装每个工具：按工具名读取 TTL 与键策略（app.tools.cache.ttl.&lt;工具&gt; / app.tools.cache.key.&lt;工具&gt;），
+ * TTL 为 0 的工具（有副作用或结果随时间变化）不缓存。所有工具共用一个按访问顺序淘汰的 LRU，总条数不超过 max-entries，过期条目在下次命中时删除或随 LRU 淘汰。
+ * 工具实现内部的后端查询也可以通过 {@link #get} 使用同一缓存，不依赖 Spring 代理，自调用同样生效。
+ */
+@Component
+public class ToolResultCache {
+
+    /**
+     * 缓存键策略：arguments 按参数 JSON（字段排序后）精确匹配；normalized 另将字符串参数去空白并转小写
+     */
+    public enum KeyPolicy {
+        ARGUMENTS, NORMALIZED
+    }
+
+    private record Policy(long ttlMillis, KeyPolicy key) {
+    }
+
+    private record Entry(String tool, Object value, long expiresAt) {
+    }
+
+    private final Environment environment;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final int maxEntries;
+    private final Duration defaultTtl;
+
+    private final Map<String, Entry> entries;
+    // 访问顺序的 LinkedHashMap 读操作也会修改链表，读写都需要加锁
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Policy> policies = new ConcurrentHashMap<>();
+    private final Map<String, ToolStats> stats = new ConcurrentHashMap<>();
+
+    public ToolResultCache(Environment environment,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.tools.cache.max-entries:1000}") int maxEntries,
+                           @Value("${app.tools.cache.default-ttl:0s}") Duration defaultTtl) {
+        this.environment = environment;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.maxEntries = maxEntries;
+        this.defaultTtl = defaultTtl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ToolResultCache.this.maxEntries) {
+                    statsFor(eldest.getValue().tool()).evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        Gauge.builder("ai.tool.cache.size", this, cache -> cache.entries.size())
+                .description("Cached tool results")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 为一组工具回调加上缓存；未配置 TTL 的工具原样返回
+     */
+    public List<ToolCallback> wrap(ToolCallback... callbacks) {
+        List<ToolCallback> wrapped = new ArrayList<>(callbacks.length);
+        for (ToolCallback callback : callbacks) {
+            String tool = callback.getToolDefinition().name();
+            wrapped.add(policyFor(tool).ttlMillis() > 0 ? new CachingToolCallback(callback) : callback);
+        }
+        return wrapped;
+    }
+
+    /**
+     * 按工具名与参数查缓存，未命中时调用 loader 并写入；arguments 可以是 JSON 字符串或可序列化为 JSON 的对象
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String tool, Object arguments, Supplier<T> loader) {
+        Policy policy = policyFor(tool);
+        if (policy.ttlMillis() <= 0) {
+            return loader.get();
+        }
+        ToolStats toolStats = statsFor(tool);
+        String key = tool + '\u0000' + canonicalKey(arguments, policy.key());
+        long now = System.currentTimeMillis();
+
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() > now) {
+                toolStats.hits.increment();
+                return (T) entry.value();
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        toolStats.misses.increment();
+        T value = loader.get();
+        if (value != null) {
+            lock.lock();
+            try {
+                entries.put(key, new Entry(tool, value, now + policy.ttlMillis()));
+            } finally {
+                lock.unlock();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 各工具的缓存策略与命中统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> tools = new TreeMap<>();
+        stats.forEach((tool, toolStats) -> {
+            Policy policy = policyFor(tool);
+            long hits = toolStats.hits.sum();
+            long misses = toolStats.misses.sum();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("ttlSeconds", policy.ttlMillis() / 1000);
+            entry.put("keyPolicy", policy.key().name().toLowerCase());
+            entry.put("hits", hits);
+            entry.put("misses", misses);
+            entry.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+            entry.put("evictions", toolStats.evictions.sum());
+            tools.put(tool, entry);
+        });
+        int size;
+        lock.lock();
+        try {
+            size = entries.size();
+        } finally {
+            lock.unlock();
+        }
+        return Map.of(
+                "entries", size,
+                "maxEntries", maxEntries,
+                "tools", tools
+        );
+    }
+
+    private Policy policyFor(String tool) {
+        return policies.computeIfAbsent(tool, name -> new Policy(
+                environment.getProperty("app.tools.cache.ttl." + name, Duration.class, defaultTtl).toMillis(),
+                KeyPolicy.valueOf(environment.getProperty("app.tools.cache.key." + name, "arguments")
+                        .trim().toUpperCase())));
+    }
+
+    private ToolStats statsFor(String tool) {
+        return stats.computeIfAbsent(tool, name -> {
+            ToolStats toolStats = new ToolStats();
+            FunctionCounter.builder("ai.tool.cache.requests", toolStats.hits, LongAdder::sum)
+                    .description("Tool result cache lookups")
+                    .tag("tool", name)
+                    .tag("result", "hit")
+                    .register(meterRegistry);
+            FunctionCounter.builder("ai.tool.cache.requests", toolStats.misses, LongAdder::sum)
+                    .description("Tool result cache lookups")
+                    .tag("tool", name)
+                    .tag("result", "miss")
+                    .register(meterRegistry);
+            FunctionCounter.builder("ai.tool.cache.evictions", toolStats.evictions, LongAdder::sum)
+                    .description("Tool results evicted to stay within max-entries")
+                    .tag("tool", name)
+                    .register(meterRegistry);
+            return toolStats;
+        });
+    }
+
+    /**
+     * 参数的规范化表示：对象字段按名称排序，normalized 策略下字符串去空白并转小写；无法解析的 JSON 按原文处理
+     */
+    private String canonicalKey(Object arguments, KeyPolicy policy) {
+        JsonNode node;
+        try {
+            node = arguments instanceof String json
+                    ? (json.isBlank() ? objectMapper.nullNode() : objectMapper.readTree(json))
+                    : objectMapper.valueToTree(arguments);
+        } catch (JsonProcessingException e) {
+            String raw = (String) arguments;
+            return policy == KeyPolicy.NORMALIZED ? raw.strip().toLowerCase() : raw;
+        }
+        return canonical(node, policy);
+    }
+
+    private static String canonical(JsonNode node, KeyPolicy policy) {
+        if (node.isObject()) {
+            Map<String, String> fields = new TreeMap<>();
+            node.fields().forEachRemaining(field -> fields.put(field.getKey(), canonical(field.getValue(), policy)));
+            return fields.toString();
+        }
+        if (node.isArray()) {
+            List<String> items = new ArrayList<>();
+            node.forEach(item -> items.add(canonical(item, policy)));
+            return items.toString();
+        }
+        if (node.isTextual() && policy == KeyPolicy.NORMALIZED) {
+            return '"' + node.asText().strip().toLowerCase() + '"';
+        }
+        return node.toString();
+    }
+
+    private static final class ToolStats {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+    }
+
+    /**
+     * 以工具名和调用参数为键缓存工具返回的文本；调用抛出的异常不缓存
+     */
+    private final class CachingToolCallback implements ToolCallback {
+
+        private final ToolCallback delegate;
+
+        CachingToolCallback(ToolCallback delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return delegate.getToolDefinition();
+        }
+
+        @Override
+        public ToolMetadata getToolMetadata() {
+            return delegate.getToolMetadata();
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return get(delegate.getToolDefinition().name(), toolInput, () -> delegate.call(toolInput));
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            return get(delegate.getToolDefinition().name(), toolInput, () -> delegate.call(toolInput, toolContext));
+        }
+    }
+}
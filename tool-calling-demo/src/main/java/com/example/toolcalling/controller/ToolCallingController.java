@@ -1,8 +1,12 @@
 package com.example.toolcalling.controller;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+import com.example.toolcalling.config.ParallelToolCallingManager;
+import com.example.toolcalling.config.ToolResultCache;
 import com.example.toolcalling.service.ToolCallingChatService;
+import com.example.toolcalling.service.ToolSelector;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -21,15 +25,24 @@ public class ToolCallingController {
     private final WeatherTools weatherTools;
     private final FileOperationTools fileOperationTools;
     private final DatabaseQueryTools databaseQueryTools;
+    private final ParallelToolCallingManager toolCallingManager;
+    private final ToolResultCache toolResultCache;
+    private final ToolSelector toolSelector;
 
     public ToolCallingController(ToolCallingChatService chatService,
                                 WeatherTools weatherTools,
                                 FileOperationTools fileOperationTools,
-                                DatabaseQueryTools databaseQueryTools) {
+                                DatabaseQueryTools databaseQueryTools,
+                                ParallelToolCallingManager toolCallingManager,
+                                ToolResultCache toolResultCache,
+                                ToolSelector toolSelector) {
         this.chatService = chatService;
         this.weatherTools = weatherTools;
         this.fileOperationTools = fileOperationTools;
         this.databaseQueryTools = databaseQueryTools;
+        this.toolCallingManager = toolCallingManager;
+        this.toolResultCache = toolResultCache;
+        this.toolSelector = toolSelector;
     }
 
     @GetMapping("/health")
@@ -207,6 +220,46 @@ public class ToolCallingController {
         );
     }
 
+    /**
+     * 工具执行统计：并行轮次、超时次数与节省的耗时
+     */
+    @GetMapping("/execution/stats")
+    public Map<String, Object> executionStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(toolCallingManager.getStats());
+        stats.put("timestamp", System.currentTimeMillis());
+        return stats;
+    }
+
+    /**
+     * 工具结果缓存统计：各工具的 TTL、键策略、命中率与淘汰次数
+     */
+    @GetMapping("/cache/stats")
+    public Map<String, Object> cacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(toolResultCache.getStats());
+        stats.put("timestamp", System.currentTimeMillis());
+        return stats;
+    }
+
+    /**
+     * 工具选择统计：只发送部分工具的请求占比、未命中率与节省的工具定义 token
+     */
+    @GetMapping("/selection/stats")
+    public Map<String, Object> selectionStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(toolSelector.getStats());
+        stats.put("timestamp", System.currentTimeMillis());
+        return stats;
+    }
+
+    /**
+     * 预览一条消息会选中哪些工具组（不调用模型）
+     */
+    @PostMapping("/selection/preview")
+    public Map<String, Object> selectionPreview(@RequestBody Map<String, String> request) {
+        Map<String, Object> preview = new LinkedHashMap<>(toolSelector.preview(request.get("message")));
+        preview.put("timestamp", System.currentTimeMillis());
+        return preview;
+    }
+
     // 简单的城市名提取逻辑
     private String extractCityFromMessage(String message) {
         String[] cities = {"北京", "上海", "广州", "深圳", "杭州", "南京", "武汉", "成都", "西安", "重庆"};
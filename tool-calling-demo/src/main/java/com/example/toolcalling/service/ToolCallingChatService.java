@@ -1,62 +1,112 @@
 package com.example.toolcalling.service;
 
-import com.example.toolcalling.tools.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.ToolCallback;
 import org.springframework.stereotype.Service;
 
 @Service
 public class ToolCallingChatService {
 
+    private static final String SYSTEM_PROMPT = """
+            你是一个智能助手，可以使用多种工具来帮助用户。
+            你有以下工具可以使用：
+            1. 时间工具：获取当前时间和不同时区的时间
+            2. 计算器工具：执行数学运算和计算
+            3. 天气工具：查询城市天气信息和穿衣建议
+            4. 文件操作工具：创建、读取、删除文件等
+            5. 数据库查询工具：查询用户信息和统计数据
+            
+            请根据用户的问题，智能选择合适的工具来提供准确的信息。
+            如果需要使用多个工具，请合理安排调用顺序。
+            """;
+
+    /**
+     * 只在发送部分工具（附带 requestMoreTools）时追加
+     */
+    private static final String MORE_TOOLS_HINT =
+            "本次只提供与问题相关的部分工具；如果需要的工具不在其中，请调用 requestMoreTools 说明缺少的能力。\n";
+
+    private final ChatModel chatModel;
     private final ChatClient chatClient;
-    private final DateTimeTools dateTimeTools;
-    private final CalculatorTools calculatorTools;
-    private final WeatherTools weatherTools;
-    private final FileOperationTools fileOperationTools;
-    private final DatabaseQueryTools databaseQueryTools;
-
-    public ToolCallingChatService(ChatModel chatModel,
-                                 DateTimeTools dateTimeTools,
-                                 CalculatorTools calculatorTools,
-                                 WeatherTools weatherTools,
-                                 FileOperationTools fileOperationTools,
-                                 DatabaseQueryTools databaseQueryTools) {
-        this.dateTimeTools = dateTimeTools;
-        this.calculatorTools = calculatorTools;
-        this.weatherTools = weatherTools;
-        this.fileOperationTools = fileOperationTools;
-        this.databaseQueryTools = databaseQueryTools;
+    private final ToolSelector toolSelector;
+    private final ToolCallingManager toolCallingManager;
+
+    public ToolCallingChatService(ChatModel chatModel, ToolSelector toolSelector,
+                                  ToolCallingManager toolCallingManager) {
+        this.chatModel = chatModel;
+        this.toolSelector = toolSelector;
+        this.toolCallingManager = toolCallingManager;
 
         // 创建支持工具调用的 ChatClient
         this.chatClient = ChatClient.builder(chatModel)
-                .defaultSystem("""
-                    你是一个智能助手，可以使用多种工具来帮助用户。
-                    你有以下工具可以使用：
-                    1. 时间工具：获取当前时间和不同时区的时间
-                    2. 计算器工具：执行数学运算和计算
-                    3. 天气工具：查询城市天气信息和穿衣建议
-                    4. 文件操作工具：创建、读取、删除文件等
-                    5. 数据库查询工具：查询用户信息和统计数据
-                    
-                    请根据用户的问题，智能选择合适的工具来提供准确的信息。
-                    如果需要使用多个工具，请合理安排调用顺序。
-                    """)
+                .defaultSystem(SYSTEM_PROMPT)
                 .build();
     }
 
+    /**
+     * 按消息内容只发送相关工具组的定义
+     * 工具调用循环由这里驱动而不是交给模型内部执行：模型调用 requestMoreTools 时，这一轮的工具都不执行，
+     * 换成完整工具集后带着已有的对话与工具结果继续，之前各轮执行过的工具（可能有副作用）不会重复执行。
+     */
     public String chatWithTools(String userMessage) {
-        return chatClient.prompt()
-                .user(userMessage)
-                .tools(dateTimeTools, calculatorTools, weatherTools, fileOperationTools, databaseQueryTools)
-                .call()
-                .content();
+        ToolSelector.Selection selection = toolSelector.select(userMessage);
+        List<ToolCallback> callbacks = selection.callbacks();
+        String system = selection.fallback() ? SYSTEM_PROMPT : SYSTEM_PROMPT + MORE_TOOLS_HINT;
+        List<Message> messages = new ArrayList<>(List.of(new SystemMessage(system), new UserMessage(userMessage)));
+        while (true) {
+            Prompt prompt = new Prompt(messages, ToolCallingChatOptions.builder()
+                    .toolCallbacks(callbacks)
+                    .internalToolExecutionEnabled(false)
+                    .build());
+            ChatResponse response = chatModel.call(prompt);
+            if (!response.hasToolCalls()) {
+                return response.getResult().getOutput().getText();
+            }
+            AssistantMessage assistantMessage = response.getResults().stream()
+                    .map(Generation::getOutput)
+                    .filter(AssistantMessage::hasToolCalls)
+                    .findFirst()
+                    .orElseThrow();
+            if (!selection.missed() && toolSelector.requestsMoreTools(assistantMessage)) {
+                callbacks = toolSelector.escalate(selection, assistantMessage);
+                // 完整工具集里没有 requestMoreTools，提示也一并去掉
+                messages.set(0, new SystemMessage(SYSTEM_PROMPT));
+                messages.add(assistantMessage);
+                messages.add(toolSelector.escalationResponse(assistantMessage));
+                continue;
+            }
+            ToolExecutionResult result = toolCallingManager.executeToolCalls(prompt, response);
+            messages = new ArrayList<>(result.conversationHistory());
+            if (result.returnDirect()) {
+                ToolResponseMessage toolResponse = (ToolResponseMessage) messages.get(messages.size() - 1);
+                return toolResponse.getResponses().stream()
+                        .map(ToolResponseMessage.ToolResponse::responseData)
+                        .collect(Collectors.joining("\n"));
+            }
+        }
     }
 
     // 只使用特定工具的方法
     public String chatWithTimeTools(String userMessage) {
         return chatClient.prompt()
                 .user(userMessage)
-                .tools(dateTimeTools)
+                .toolCallbacks(toolSelector.callbacks("time"))
                 .call()
                 .content();
     }
@@ -64,7 +114,7 @@ public class ToolCallingChatService {
     public String chatWithCalculator(String userMessage) {
         return chatClient.prompt()
                 .user(userMessage)
-                .tools(calculatorTools)
+                .toolCallbacks(toolSelector.callbacks("calculator"))
                 .call()
                 .content();
     }
@@ -72,7 +122,7 @@ public class ToolCallingChatService {
     public String chatWithWeatherTools(String userMessage) {
         return chatClient.prompt()
                 .user(userMessage)
-                .tools(weatherTools)
+                .toolCallbacks(toolSelector.callbacks("weather"))
                 .call()
                 .content();
     }
@@ -80,7 +130,7 @@ public class ToolCallingChatService {
     public String chatWithFileTools(String userMessage) {
         return chatClient.prompt()
                 .user(userMessage)
-                .tools(fileOperationTools)
+                .toolCallbacks(toolSelector.callbacks("files"))
                 .call()
                 .content();
     }
@@ -88,7 +138,7 @@ public class ToolCallingChatService {
     public String chatWithDatabaseTools(String userMessage) {
         return chatClient.prompt()
                 .user(userMessage)
-                .tools(databaseQueryTools)
+                .toolCallbacks(toolSelector.callbacks("database"))
                 .call()
                 .content();
     }
@@ -97,7 +147,7 @@ public class ToolCallingChatService {
     public String chatWithBasicTools(String userMessage) {
         return chatClient.prompt()
                 .user(userMessage)
-                .tools(dateTimeTools, calculatorTools, weatherTools)
+                .toolCallbacks(toolSelector.callbacks("time", "calculator", "weather"))
                 .call()
                 .content();
     }
@@ -105,8 +155,8 @@ public class ToolCallingChatService {
     public String chatWithDataTools(String userMessage) {
         return chatClient.prompt()
                 .user(userMessage)
-                .tools(fileOperationTools, databaseQueryTools)
+                .toolCallbacks(toolSelector.callbacks("files", "database"))
                 .call()
                 .content();
     }
-} 
\ No newline at end of file
+}
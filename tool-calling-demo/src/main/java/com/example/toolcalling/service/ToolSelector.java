@@ -0,0 +1,352 @@
+package com.example.toolcalling.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.toolcalling.config.ToolResultCache;
+import com.example.toolcalling.tools.CalculatorTools;
+import com.example.toolcalling.tools.DatabaseQueryTools;
+import com.example.toolcalling.tools.DateTimeTools;
+import com.example.toolcalling.tools.FileOperationTools;
+import com.example.toolcalling.tools.WeatherTools;
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.function.FunctionToolCallback;
+import org.springframework.ai.util.json.JsonParser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * 按请求挑选工具组
+ * 工具按 Bean 分组（time、calculator、weather、files、database），每组的工具名、描述与关键词
+ * （默认见 DEFAULT_KEYWORDS，可用 app.tools.selection.keywords.&lt;组&gt; 覆盖）建成倒排索引：
+ * 中文按字二元组、英文按单词切分，词项按出现的组数取 IDF 权重。
+ * 用户消息得分达到 min-score 的组才随请求发送工具定义；没有组达到阈值时发送完整工具集。
+ * 只发送部分工具时另附一个 requestMoreTools 工具，模型认为缺少工具时调用它，本次计为未命中：
+ * 调用方在执行工具之前识别这次调用，换成完整工具集后在同一段对话中继续，已执行过的工具不会重复执行。
+ * 工具定义的 token 数用 cl100k_base BPE 词表在本地计数，与供应商的分词不完全一致，用于比较选择前后的相对大小。
+ */
+@Component
+public class ToolSelector {
+
+    private static final Logger log = LoggerFactory.getLogger(ToolSelector.class);
+
+    static final String MORE_TOOLS = "requestMoreTools";
+
+    private static final Encoding ENCODING = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+    // 写在代码里而不是 application.properties：properties 文件按 ISO-8859-1 读取，中文需转义
+    private static final Map<String, String> DEFAULT_KEYWORDS = Map.of(
+            "time", "几点,时间,日期,今天,明天,星期,周几,时区,time,date",
+            "calculator", "计算,算一下,加上,减去,乘以,除以,平方,次方,开方,百分,+,*,=",
+            "weather", "天气,气温,温度,下雨,穿衣,穿什么,weather",
+            "files", "文件,目录,读取,写入,删除,file",
+            "database", "用户,数据库,邮箱,注册,user,email"
+    );
+
+    /**
+     * 一次选择的结果；missing 在模型请求更多工具、调用 {@link #escalate} 时写入
+     */
+    public record Selection(List<String> groups, boolean fallback, List<ToolCallback> callbacks,
+                            int schemaTokens, AtomicReference<String> missing) {
+
+        public boolean missed() {
+            return missing.get() != null;
+        }
+    }
+
+    public record MoreToolsRequest(String capability) {
+    }
+
+    private record Group(List<ToolCallback> callbacks, Set<String> terms, List<String> keywords, int schemaTokens) {
+    }
+
+    private final Map<String, Group> groups = new LinkedHashMap<>();
+    private final Map<String, Double> idf = new HashMap<>();
+    private final List<ToolCallback> allCallbacks = new ArrayList<>();
+    private final ToolCallback moreTools = moreToolsCallback();
+    private final int fullSchemaTokens;
+    private final boolean enabled;
+    private final double minScore;
+    private final double keywordWeight;
+
+    private final LongAdder subsetRequests = new LongAdder();
+    private final LongAdder fallbackRequests = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder schemaTokensSent = new LongAdder();
+    private final LongAdder schemaTokensFull = new LongAdder();
+
+    public ToolSelector(ToolResultCache toolResultCache,
+                        Environment environment,
+                        MeterRegistry meterRegistry,
+                        DateTimeTools dateTimeTools,
+                        CalculatorTools calculatorTools,
+                        WeatherTools weatherTools,
+                        FileOperationTools fileOperationTools,
+                        DatabaseQueryTools databaseQueryTools,
+                        @Value("${app.tools.selection.enabled:true}") boolean enabled,
+                        @Value("${app.tools.selection.min-score:1.0}") double minScore,
+                        @Value("${app.tools.selection.keyword-weight:2.0}") double keywordWeight) {
+        this.enabled = enabled;
+        this.minScore = minScore;
+        this.keywordWeight = keywordWeight;
+
+        Map<String, Object> beans = new LinkedHashMap<>();
+        beans.put("time", dateTimeTools);
+        beans.put("calculator", calculatorTools);
+        beans.put("weather", weatherTools);
+        beans.put("files", fileOperationTools);
+        beans.put("database", databaseQueryTools);
+
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        beans.forEach((name, bean) -> {
+            // 回调只解析一次，并按各工具的缓存策略包装
+            List<ToolCallback> callbacks = toolResultCache.wrap(ToolCallbacks.from(bean));
+            List<String> keywords = new ArrayList<>();
+            for (String keyword : environment.getProperty("app.tools.selection.keywords." + name,
+                    DEFAULT_KEYWORDS.getOrDefault(name, "")).split(",")) {
+                if (!keyword.isBlank()) {
+                    keywords.add(keyword.strip().toLowerCase());
+                }
+            }
+            StringBuilder text = new StringBuilder(String.join(" ", keywords));
+            int tokens = 0;
+            for (ToolCallback callback : callbacks) {
+                ToolDefinition definition = callback.getToolDefinition();
+                text.append(' ').append(definition.name()).append(' ').append(definition.description());
+                tokens += schemaTokens(definition);
+            }
+            Set<String> terms = terms(text.toString());
+            terms.forEach(term -> documentFrequency.merge(term, 1, Integer::sum));
+            groups.put(name, new Group(callbacks, terms, keywords, tokens));
+            allCallbacks.addAll(callbacks);
+        });
+        // 所有组都有的词项（如「获取」「查询」）权重为 0，不参与区分
+        documentFrequency.forEach((term, df) -> idf.put(term, Math.log((double) groups.size() / df)));
+        this.fullSchemaTokens = groups.values().stream().mapToInt(Group::schemaTokens).sum();
+
+        FunctionCounter.builder("ai.tool.selection.requests", subsetRequests, LongAdder::sum)
+                .description("Tool-calling requests by tool selection outcome")
+                .tag("outcome", "subset")
+                .register(meterRegistry);
+        FunctionCounter.builder("ai.tool.selection.requests", fallbackRequests, LongAdder::sum)
+                .description("Tool-calling requests by tool selection outcome")
+                .tag("outcome", "fallback")
+                .register(meterRegistry);
+        FunctionCounter.builder("ai.tool.selection.misses", misses, LongAdder::sum)
+                .description("Requests where the model asked for tools outside the selected groups")
+                .register(meterRegistry);
+        FunctionCounter.builder("ai.tool.selection.schema.tokens", schemaTokensSent, LongAdder::sum)
+                .description("Estimated prompt tokens spent on tool definitions")
+                .tag("set", "sent")
+                .register(meterRegistry);
+        FunctionCounter.builder("ai.tool.selection.schema.tokens", schemaTokensFull, LongAdder::sum)
+                .description("Estimated prompt tokens spent on tool definitions")
+                .tag("set", "full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 为一条用户消息挑选工具并计入统计
+     */
+    public Selection select(String userMessage) {
+        Selection selection = choose(userMessage);
+        (selection.fallback() ? fallbackRequests : subsetRequests).increment();
+        schemaTokensSent.add(selection.schemaTokens());
+        schemaTokensFull.add(fullSchemaTokens);
+        log.debug("工具选择：{} -> {}（工具定义约 {}/{} tokens）",
+                userMessage, selection.groups(), selection.schemaTokens(), fullSchemaTokens);
+        return selection;
+    }
+
+    /**
+     * 选中组的得分明细，不计入统计、不调用模型
+     */
+    public Map<String, Object> preview(String userMessage) {
+        Selection selection = choose(userMessage);
+        return Map.of(
+                "scores", scores(userMessage),
+                "groups", selection.groups(),
+                "fallback", selection.fallback(),
+                "schemaTokens", selection.schemaTokens(),
+                "fullSchemaTokens", fullSchemaTokens
+        );
+    }
+
+    /**
+     * 模型本轮是否调用了 requestMoreTools
+     */
+    public boolean requestsMoreTools(AssistantMessage message) {
+        return message.getToolCalls().stream().anyMatch(call -> MORE_TOOLS.equals(call.name()));
+    }
+
+    /**
+     * 选中的工具组不够用时改用完整工具集；之后各轮发送的工具定义同样计入已发送
+     */
+    public List<ToolCallback> escalate(Selection selection, AssistantMessage message) {
+        String capability = message.getToolCalls().stream()
+                .filter(call -> MORE_TOOLS.equals(call.name()))
+                .map(call -> JsonParser.fromJson(call.arguments(), MoreToolsRequest.class).capability())
+                .findFirst()
+                .orElse(null);
+        selection.missing().set(capability == null ? "" : capability);
+        misses.increment();
+        schemaTokensSent.add(fullSchemaTokens);
+        log.info("工具选择未命中：选中 {}，模型需要「{}」，改用完整工具集", selection.groups(), capability);
+        return allCallbacks;
+    }
+
+    /**
+     * 请求更多工具的这一轮不执行任何工具：每个调用都以说明作为结果，模型在下一轮用完整工具集重新发起需要的调用
+     */
+    public ToolResponseMessage escalationResponse(AssistantMessage message) {
+        List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>();
+        for (AssistantMessage.ToolCall call : message.getToolCalls()) {
+            responses.add(new ToolResponseMessage.ToolResponse(call.id(), call.name(), MORE_TOOLS.equals(call.name())
+                    ? "已切换到完整工具集，请继续完成用户的请求"
+                    : "未执行：工具集正在切换，如仍需要请重新调用"));
+        }
+        return new ToolResponseMessage(responses, Map.of());
+    }
+
+    /**
+     * 指定工具组的回调，用于固定工具组的接口
+     */
+    public List<ToolCallback> callbacks(String... groupNames) {
+        List<ToolCallback> callbacks = new ArrayList<>();
+        for (String name : groupNames) {
+            callbacks.addAll(groups.get(name).callbacks());
+        }
+        return callbacks;
+    }
+
+    public Map<String, Object> getStats() {
+        long subset = subsetRequests.sum();
+        long full = schemaTokensFull.sum();
+        long sent = schemaTokensSent.sum();
+        return Map.of(
+                "enabled", enabled,
+                "requests", subset + fallbackRequests.sum(),
+                "subsetRequests", subset,
+                "fallbackRequests", fallbackRequests.sum(),
+                "misses", misses.sum(),
+                "missRate", subset == 0 ? 0.0 : (double) misses.sum() / subset,
+                "schemaTokensSent", sent,
+                "schemaTokensFull", full,
+                "schemaTokensSaved", full - sent,
+                "savedRatio", full == 0 ? 0.0 : (double) (full - sent) / full
+        );
+    }
+
+    private Selection choose(String userMessage) {
+        List<String> chosen = new ArrayList<>();
+        if (enabled) {
+            scores(userMessage).forEach((name, score) -> {
+                if (score >= minScore) {
+                    chosen.add(name);
+                }
+            });
+        }
+        AtomicReference<String> missing = new AtomicReference<>();
+        if (chosen.isEmpty() || chosen.size() == groups.size()) {
+            return new Selection(List.copyOf(groups.keySet()), true, allCallbacks, fullSchemaTokens, missing);
+        }
+        List<ToolCallback> callbacks = new ArrayList<>(callbacks(chosen.toArray(String[]::new)));
+        callbacks.add(moreTools);
+        int tokens = schemaTokens(moreTools.getToolDefinition());
+        for (String name : chosen) {
+            tokens += groups.get(name).schemaTokens();
+        }
+        return new Selection(chosen, false, callbacks, tokens, missing);
+    }
+
+    private Map<String, Double> scores(String userMessage) {
+        String message = userMessage == null ? "" : userMessage.toLowerCase();
+        Set<String> queryTerms = terms(message);
+        Map<String, Double> scores = new LinkedHashMap<>();
+        groups.forEach((name, group) -> {
+            double score = 0;
+            for (String term : queryTerms) {
+                if (group.terms().contains(term)) {
+                    score += idf.getOrDefault(term, 0.0);
+                }
+            }
+            // 关键词按子串匹配，覆盖单字（如「乘」）和运算符等切分不出词项的情况
+            for (String keyword : group.keywords()) {
+                if (message.contains(keyword)) {
+                    score += keywordWeight;
+                }
+            }
+            scores.put(name, Math.round(score * 100) / 100.0);
+        });
+        return scores;
+    }
+
+    /**
+     * 只提供定义给模型：调用方在执行工具前拦截这次调用（见 {@link #requestsMoreTools}），函数本身不会被执行
+     */
+    private static ToolCallback moreToolsCallback() {
+        return FunctionToolCallback.builder(MORE_TOOLS, (MoreToolsRequest request) -> "已切换到完整工具集")
+                .description("当前提供的工具无法完成用户请求时调用，参数说明缺少的能力（如天气查询、文件读写）")
+                .inputType(MoreToolsRequest.class)
+                .build();
+    }
+
+    /**
+     * 中文连续字符取二元组，其余按字母数字切分为单词（驼峰拆开）
+     */
+    private static Set<String> terms(String text) {
+        Set<String> terms = new HashSet<>();
+        String spaced = text.replaceAll("([a-z])([A-Z])", "$1 $2").toLowerCase();
+        StringBuilder word = new StringBuilder();
+        char previousHan = 0;
+        for (int i = 0; i < spaced.length(); i++) {
+            char c = spaced.charAt(i);
+            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN) {
+                if (previousHan != 0) {
+                    terms.add("" + previousHan + c);
+                }
+                previousHan = c;
+            } else {
+                previousHan = 0;
+            }
+            if (Character.isLetterOrDigit(c) && c < 0x80) {
+                word.append(c);
+            } else {
+                if (word.length() >= 2) {
+                    terms.add(word.toString());
+                }
+                word.setLength(0);
+            }
+        }
+        if (word.length() >= 2) {
+            terms.add(word.toString());
+        }
+        return terms;
+    }
+
+    /**
+     * 工具定义（名称、描述、参数 schema）的 BPE token 数
+     */
+    private static int schemaTokens(ToolDefinition definition) {
+        return ENCODING.countTokensOrdinary(definition.name() + definition.description() + definition.inputSchema());
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.toolcalling.tools;
 
+import java.util.Map;
+
+import com.example.toolcalling.config.ToolResultCache;
 import org.springframework.ai.tool.annotation.Tool;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
@@ -9,20 +11,21 @@ import org.springframework.web.client.RestTemplate;
 public class WeatherTools {
 
     private final RestTemplate restTemplate;
+    private final ToolResultCache cache;
 
-    public WeatherTools() {
-        this.restTemplate = new RestTemplate();
+    public WeatherTools(RestTemplate restTemplate, ToolResultCache cache) {
+        this.restTemplate = restTemplate;
+        this.cache = cache;
     }
 
     @Tool(description = "查询指定城市的当前天气情况，包括温度、天气状况、湿度等信息")
-    @Cacheable(value = "weather", key = "#city")
     public String getWeather(String city) {
         try {
             // 这里使用模拟的天气数据，实际项目中应该调用真实的天气API
             // 例如 OpenWeatherMap, 和风天气等
             
             // 模拟调用天气API
-            WeatherResponse weather = simulateWeatherAPI(city);
+            WeatherResponse weather = lookup(city);
             
             return String.format("""
                 城市：%s
@@ -61,7 +64,7 @@ public class WeatherTools {
 
     @Tool(description = "查询城市的温度范围建议，给出穿衣指导")
     public String getClothingAdvice(String city) {
-        WeatherResponse weather = simulateWeatherAPI(city);
+        WeatherResponse weather = lookup(city);
         
         String advice;
         if (weather.temperature >= 25) {
@@ -78,6 +81,11 @@ public class WeatherTools {
                 city, weather.weather, weather.temperature, advice);
     }
 
+    // 天气 API 查询经由工具结果缓存：getWeather、compareWeather、getClothingAdvice 之间的内部调用同样命中
+    private WeatherResponse lookup(String city) {
+        return cache.get("weather-api", Map.of("city", city), () -> simulateWeatherAPI(city));
+    }
+
     // 模拟天气API调用（实际使用时替换为真实API）
     private WeatherResponse simulateWeatherAPI(String city) {
         // 简单的城市天气模拟